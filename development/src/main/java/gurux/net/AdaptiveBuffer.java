@@ -0,0 +1,140 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Adapts the size of the receive buffer to the amount of received data.
+ * <p>
+ * Buffer is doubled when a read fills it and halved when several reads in a
+ * row use less than half of it. When connection is idle, buffer returns to
+ * its initial size.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class AdaptiveBuffer {
+    /**
+     * Minimum size of the buffer.
+     */
+    static final int MINIMUM_SIZE = 64;
+
+    /**
+     * How many small reads in a row are needed before buffer is shrunk.
+     */
+    private static final int SHRINK_COUNT = 8;
+
+    /**
+     * Time in milliseconds after which connection is idle.
+     */
+    static final int IDLE_TIME = 1000;
+
+    /**
+     * Maximum size of the buffer.
+     */
+    private final int maximum;
+
+    /**
+     * Initial size of the buffer.
+     */
+    private final int initial;
+
+    /**
+     * Amount of small reads in a row.
+     */
+    private int smallReads;
+
+    /**
+     * Constructor.
+     * 
+     * @param size
+     *            Initial size of the buffer.
+     * @param max
+     *            Maximum size of the buffer.
+     */
+    AdaptiveBuffer(final int size, final int max) {
+        initial = size;
+        maximum = max;
+    }
+
+    /**
+     * Check is buffer larger than its initial size.
+     * 
+     * @param buffer
+     *            Current buffer.
+     * @return True, if buffer has grown.
+     */
+    boolean isGrown(final byte[] buffer) {
+        return buffer.length > initial;
+    }
+
+    /**
+     * Get buffer when connection is idle.
+     * 
+     * @return Buffer of initial size.
+     */
+    byte[] reset() {
+        smallReads = 0;
+        return new byte[initial];
+    }
+
+    /**
+     * Get buffer for the next read.
+     * 
+     * @param buffer
+     *            Current buffer.
+     * @param count
+     *            Amount of bytes that the last read returned.
+     * @return Current buffer or a new buffer if the size is changed.
+     */
+    byte[] next(final byte[] buffer, final int count) {
+        int size = buffer.length;
+        if (count == size) {
+            smallReads = 0;
+            if (size < maximum) {
+                return new byte[Math.min(maximum, 2 * size)];
+            }
+        } else if (count <= size / 2 && size > MINIMUM_SIZE) {
+            if (++smallReads == SHRINK_COUNT) {
+                smallReads = 0;
+                return new byte[Math.max(MINIMUM_SIZE, size / 2)];
+            }
+        } else {
+            smallReads = 0;
+        }
+        return buffer;
+    }
+}
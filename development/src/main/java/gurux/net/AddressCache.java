@@ -0,0 +1,152 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size bounded cache of resolved addresses. Entries expire after the cache
+ * time.
+ * 
+ * @param <K>
+ *            Key type.
+ * @param <V>
+ *            Value type.
+ * @author Gurux Ltd.
+ *
+ */
+final class AddressCache<K, V> {
+
+    /**
+     * Cached value.
+     * 
+     * @param <V>
+     *            Value type.
+     */
+    private static final class CacheEntry<V> {
+        /**
+         * Value.
+         */
+        private final V value;
+        /**
+         * Expiration time in milliseconds.
+         */
+        private final long expires;
+
+        /**
+         * Constructor.
+         * 
+         * @param v
+         *            Value.
+         * @param time
+         *            Expiration time in milliseconds.
+         */
+        CacheEntry(final V v, final long time) {
+            value = v;
+            expires = time;
+        }
+    }
+
+    /**
+     * Cached entries in access order.
+     */
+    private final LinkedHashMap<K, CacheEntry<V>> entries;
+    /**
+     * How long (milliseconds) entry is kept in the cache.
+     */
+    private final int time;
+
+    /**
+     * Constructor.
+     * 
+     * @param size
+     *            Maximum amount of cached entries.
+     * @param cacheTime
+     *            How long (milliseconds) entry is kept in the cache.
+     */
+    AddressCache(final int size, final int cacheTime) {
+        time = cacheTime;
+        entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<K, CacheEntry<V>> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * Get cached value.
+     * 
+     * @param key
+     *            Key.
+     * @return Cached value or null, if value is not cached or it's expired.
+     */
+    synchronized V get(final K key) {
+        CacheEntry<V> e = entries.get(key);
+        if (e == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() > e.expires) {
+            entries.remove(key);
+            return null;
+        }
+        return e.value;
+    }
+
+    /**
+     * Add value to the cache.
+     * 
+     * @param key
+     *            Key.
+     * @param value
+     *            Value.
+     */
+    synchronized void put(final K key, final V value) {
+        entries.put(key,
+                new CacheEntry<V>(value, System.currentTimeMillis() + time));
+    }
+
+    /**
+     * @return Amount of cached entries.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,156 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+import gurux.net.enums.ConnectionRejectReason;
+
+/**
+ * Counts connected TCP/IP clients in server mode and decides can a new
+ * client connect.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class AdmissionControl {
+    /**
+     * Parent media where limits are read.
+     */
+    private final GXNet parentMedia;
+    /**
+     * Amount of connected clients.
+     */
+    private int count;
+    /**
+     * Amount of connected clients by IP address.
+     */
+    private final Map<InetAddress, Integer> addresses =
+            new HashMap<InetAddress, Integer>();
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Parent media.
+     */
+    AdmissionControl(final GXNet parent) {
+        parentMedia = parent;
+    }
+
+    /**
+     * Check can client connect. If client can connect it's counted until
+     * it's released.
+     * 
+     * @param address
+     *            Client's IP address.
+     * @return Reject reason or NONE, if client can connect.
+     */
+    synchronized ConnectionRejectReason admit(final InetAddress address) {
+        if (isFull()) {
+            return ConnectionRejectReason.MAX_CLIENT_COUNT;
+        }
+        Integer value = addresses.get(address);
+        int cnt = value == null ? 0 : value.intValue();
+        int max = parentMedia.getMaxAddressClientCount();
+        if (max != 0 && cnt >= max) {
+            return ConnectionRejectReason.MAX_ADDRESS_CLIENT_COUNT;
+        }
+        ++count;
+        addresses.put(address, cnt + 1);
+        return ConnectionRejectReason.NONE;
+    }
+
+    /**
+     * Release client after it has disconnected.
+     * 
+     * @param address
+     *            Client's IP address.
+     */
+    synchronized void release(final InetAddress address) {
+        Integer value = addresses.get(address);
+        // Counters are cleared when server is opened again.
+        if (value != null) {
+            if (value.intValue() == 1) {
+                addresses.remove(address);
+            } else {
+                addresses.put(address, value - 1);
+            }
+            --count;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return Amount of connected clients.
+     */
+    synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Check is maximum client count reached.
+     * 
+     * @return True, if new clients can't connect.
+     */
+    synchronized boolean isFull() {
+        int max = parentMedia.getMaxClientCount();
+        return max != 0 && count >= max;
+    }
+
+    /**
+     * Wait until maximum client count is not reached.
+     * 
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    synchronized void waitUntilFree() throws InterruptedException {
+        while (isFull()) {
+            // Wake up also if maximum client count is changed.
+            wait(1000);
+        }
+    }
+
+    /**
+     * Clear counters.
+     */
+    synchronized void clear() {
+        count = 0;
+        addresses.clear();
+    }
+}
@@ -34,6 +34,8 @@
 
 package gurux.net;
 
+import gurux.net.enums.ConnectionRejectReason;
+
 /**
  * Argument class for IGXMedia connection and disconnection events.
  */
@@ -46,6 +48,14 @@ public class ConnectionEventArgs {
      * Is server accepting client connection.
      */
     private boolean accept;
+    /**
+     * Client connection.
+     */
+    private GXNetConnection connection;
+    /**
+     * Reason why server rejected the connection.
+     */
+    private ConnectionRejectReason reason = ConnectionRejectReason.NONE;
 
     /**
      * Constructor.
@@ -65,6 +75,17 @@ public class ConnectionEventArgs {
         setInfo(information);
     }
 
+    /**
+     * Constructor.
+     * 
+     * @param target
+     *            Client connection.
+     */
+    ConnectionEventArgs(final GXNetConnection target) {
+        this(target.getInfo());
+        connection = target;
+    }
+
     /**
      * Get connection TCP/IP and port number information.
      * 
@@ -84,6 +105,16 @@ public class ConnectionEventArgs {
         info = value;
     }
 
+    /**
+     * Get client connection. Connection can be used as a target when data is
+     * sent to the client.
+     * 
+     * @return Client connection or null, if not available.
+     */
+    public final GXNetConnection getConnection() {
+        return connection;
+    }
+
     /**
      * Get is server accepting client connection.
      * 
@@ -102,4 +133,25 @@ public class ConnectionEventArgs {
     public final void setAccept(final boolean value) {
         accept = value;
     }
+
+    /**
+     * Get reason why server rejected the connection. If server has rejected
+     * the connection, accept is false and client is already closed.
+     * 
+     * @return Reject reason or NONE, if server has not rejected the
+     *         connection.
+     */
+    public final ConnectionRejectReason getReason() {
+        return reason;
+    }
+
+    /**
+     * Set reason why server rejected the connection.
+     * 
+     * @param value
+     *            Reject reason.
+     */
+    final void setReason(final ConnectionRejectReason value) {
+        reason = value;
+    }
 }
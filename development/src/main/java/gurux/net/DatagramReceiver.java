@@ -0,0 +1,302 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+
+import gurux.common.AutoResetEvent;
+import gurux.common.ReceiveEventArgs;
+
+/**
+ * UDP connection that is served with a datagram channel. All pending
+ * datagrams are read when the selector wakes up and they are delivered to
+ * the listeners as a batch.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class DatagramReceiver implements Closeable, Runnable {
+    /**
+     * Maximum amount of datagrams that are delivered in one batch.
+     */
+    static final int MAX_BATCH_SIZE = 256;
+
+    /**
+     * Is thread started.
+     */
+    private AutoResetEvent started = new AutoResetEvent(false);
+    /**
+     * Parent component where notifies are send.
+     */
+    private final GXNet parentMedia;
+    /**
+     * Datagram channel.
+     */
+    private final DatagramChannel channel;
+    /**
+     * Used selector.
+     */
+    private final Selector selector;
+    /**
+     * Selector that is used to wait until datagram can be sent. Channel is
+     * registered to it when send buffer is full first time.
+     */
+    private final Selector writeSelector;
+    /**
+     * Is channel registered to the write selector.
+     */
+    private boolean writeRegistered;
+    /**
+     * Thread where channel is listened.
+     */
+    private Thread thread;
+    /**
+     * Read buffer.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Received datagrams that are delivered as a batch.
+     */
+    private final List<ReceiveEventArgs> batch =
+            new ArrayList<ReceiveEventArgs>();
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Parent media.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    DatagramReceiver(final GXNet parent) throws IOException {
+        parentMedia = parent;
+        buffer = ByteBuffer.allocate(parent.getReceiveBufferSize());
+        channel = DatagramChannel.open();
+        try {
+            selector = Selector.open();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        try {
+            writeSelector = Selector.open();
+        } catch (IOException e) {
+            selector.close();
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return Local port of the channel.
+     */
+    int getLocalPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    /**
+     * Bind the channel and start listening it.
+     * 
+     * @param port
+     *            Local port. Zero if port is selected by the system.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    void open(final int port) throws IOException {
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+        thread = new Thread(this, "GXNet " + channel.getLocalAddress());
+        thread.start();
+        started.waitOne();
+    }
+
+    /**
+     * Send datagram.
+     * 
+     * @param data
+     *            Sent data.
+     * @param target
+     *            Receiver address.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    void send(final ByteBuffer data, final SocketAddress target)
+            throws IOException {
+        // Channel is in non-blocking mode. Wait until there is room in the
+        // send buffer of the socket.
+        while (channel.send(data, target) == 0) {
+            waitWritable();
+        }
+    }
+
+    /**
+     * Wait until channel is writable. Senders wait one at the time.
+     * 
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private void waitWritable() throws IOException {
+        synchronized (writeSelector) {
+            try {
+                if (!writeRegistered) {
+                    channel.register(writeSelector, SelectionKey.OP_WRITE);
+                    writeRegistered = true;
+                }
+                writeSelector.select();
+                writeSelector.selectedKeys().clear();
+            } catch (ClosedSelectorException e) {
+                throw new ClosedChannelException();
+            }
+        }
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    /**
+     * Read all pending datagrams.
+     * 
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private void read() throws IOException {
+        SocketAddress address;
+        while (true) {
+            buffer.clear();
+            address = channel.receive(buffer);
+            if (address == null) {
+                break;
+            }
+            String info =
+                    parentMedia.getSenderInfo((InetSocketAddress) address);
+            ReceiveEventArgs e = parentMedia.handleDatagram(buffer.array(),
+                    buffer.position(), info);
+            if (e != null) {
+                batch.add(e);
+                if (batch.size() == MAX_BATCH_SIZE) {
+                    deliver();
+                }
+            }
+        }
+        deliver();
+    }
+
+    /**
+     * Deliver received datagrams to the listeners.
+     */
+    private void deliver() {
+        if (!batch.isEmpty()) {
+            try {
+                parentMedia.notifyReceivedBatch(batch);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Notify listeners from error occurred.
+     * 
+     * @param ex
+     *            Occurred error.
+     */
+    private void notifyError(final RuntimeException ex) {
+        try {
+            parentMedia.notifyError(ex);
+        } catch (RuntimeException e) {
+            // Listener failure must not stop receiving.
+        }
+    }
+
+    @Override
+    public void run() {
+        // Notify caller that thread is started.
+        started.set();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+                selector.selectedKeys().clear();
+                read();
+            } catch (ClosedChannelException | ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                if (!Thread.currentThread().isInterrupted()) {
+                    notifyError(new RuntimeException(e.getMessage()));
+                }
+            } catch (RuntimeException e) {
+                // Listener failure must not stop receiving.
+                notifyError(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (thread != null) {
+            thread.interrupt();
+            selector.wakeup();
+            if (thread != Thread.currentThread()) {
+                try {
+                    thread.join(10000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        try {
+            channel.close();
+        } finally {
+            try {
+                selector.close();
+            } finally {
+                // Wakes up the senders that are waiting.
+                writeSelector.close();
+            }
+        }
+    }
+}
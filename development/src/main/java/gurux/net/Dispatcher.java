@@ -0,0 +1,278 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs listener callbacks with the executor. Callbacks of the same
+ * connection are run one at the time in the order they are received.
+ * Callbacks of different connections are run in parallel.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class Dispatcher {
+    /**
+     * How many callbacks are run before the executor thread is given to
+     * other connections.
+     */
+    private static final int MAX_RUN_COUNT = 64;
+
+    /**
+     * Parent media.
+     */
+    private final GXNet parentMedia;
+    /**
+     * Executor that runs the callbacks.
+     */
+    private final Executor executor;
+    /**
+     * Callback queues by connection.
+     */
+    private final ConcurrentHashMap<String, SerialQueue> queues =
+            new ConcurrentHashMap<String, SerialQueue>();
+    /**
+     * Amount of queued callbacks.
+     */
+    private final AtomicInteger depth = new AtomicInteger();
+
+    /**
+     * Callbacks of one connection.
+     */
+    private final class SerialQueue implements Runnable {
+        /**
+         * Connection key.
+         */
+        private final String key;
+        /**
+         * Queued callbacks.
+         */
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+        /**
+         * Is queue given to the executor.
+         */
+        private boolean running;
+        /**
+         * Is queue removed from the queues. Removed queue is not used
+         * anymore.
+         */
+        private boolean removed;
+        /**
+         * Connection whose reading is paused until there is space in the
+         * queue. Null if reading is not paused.
+         */
+        private GXNetConnection paused;
+
+        /**
+         * Constructor.
+         * 
+         * @param value
+         *            Connection key.
+         */
+        SerialQueue(final String value) {
+            key = value;
+        }
+
+        @Override
+        public void run() {
+            while (runTasks()) {
+                // Give other connections a turn.
+                try {
+                    executor.execute(this);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // Continue in this thread.
+                }
+            }
+        }
+
+        /**
+         * Run queued callbacks.
+         * 
+         * @return True, if there are callbacks left.
+         */
+        private boolean runTasks() {
+            for (int pos = 0; pos != MAX_RUN_COUNT; ++pos) {
+                Runnable task;
+                GXNetConnection resumed = null;
+                synchronized (this) {
+                    task = tasks.poll();
+                    if (task == null) {
+                        running = false;
+                        removed = true;
+                        queues.remove(key, this);
+                        return false;
+                    }
+                    if (paused != null && tasks.size() < parentMedia
+                            .getDispatchQueueSize()) {
+                        resumed = paused;
+                        paused = null;
+                    }
+                    // Wake up receiver that is waiting for free space.
+                    notifyAll();
+                }
+                if (resumed != null) {
+                    resumed.resumeReading();
+                }
+                depth.decrementAndGet();
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    parentMedia.notifyError(ex);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Parent media where queue size is read.
+     * @param value
+     *            Executor that runs the callbacks.
+     */
+    Dispatcher(final GXNet parent, final Executor value) {
+        parentMedia = parent;
+        executor = value;
+    }
+
+    /**
+     * @return Executor that runs the callbacks.
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return Amount of queued callbacks.
+     */
+    int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Queue callback after the earlier callbacks of the connection. If the
+     * queue of the connection is full, reading of the connection is paused
+     * until there is space, so data is not read from the connection faster
+     * than it's handled. If connection can't pause reading, caller waits
+     * until there is space.
+     * 
+     * @param key
+     *            Connection key.
+     * @param task
+     *            Callback.
+     * @param connection
+     *            Connection where data is read. Null if caller waits.
+     */
+    void dispatch(final String key, final Runnable task,
+            final GXNetConnection connection) {
+        SerialQueue q;
+        boolean start;
+        while (true) {
+            q = queues.get(key);
+            if (q == null) {
+                q = new SerialQueue(key);
+                SerialQueue tmp = queues.putIfAbsent(key, q);
+                if (tmp != null) {
+                    q = tmp;
+                }
+            }
+            synchronized (q) {
+                if (q.removed) {
+                    continue;
+                }
+                if (q.running && q.tasks.size() >= parentMedia
+                        .getDispatchQueueSize()) {
+                    if (connection != null && connection.pauseReading()) {
+                        // Reading is resumed when there is space.
+                        q.paused = connection;
+                    } else {
+                        waitSpace(q);
+                    }
+                }
+                q.tasks.add(task);
+                depth.incrementAndGet();
+                start = !q.running;
+                q.running = true;
+            }
+            break;
+        }
+        if (start) {
+            execute(q);
+        }
+    }
+
+    /**
+     * Wait until there is space in the queue.
+     * 
+     * @param q
+     *            Callback queue.
+     */
+    private void waitSpace(final SerialQueue q) {
+        try {
+            while (q.tasks.size() >= parentMedia.getDispatchQueueSize()
+                    && q.running) {
+                q.wait();
+            }
+        } catch (InterruptedException e) {
+            // Media is closing. Callback is queued anyway so
+            // received data is not lost.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Give queue to the executor. Queue is run by the caller if the
+     * executor doesn't accept it.
+     * 
+     * @param q
+     *            Callback queue.
+     */
+    private void execute(final SerialQueue q) {
+        try {
+            executor.execute(q);
+        } catch (RejectedExecutionException e) {
+            q.run();
+        }
+    }
+}
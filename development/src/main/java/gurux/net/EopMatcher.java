@@ -0,0 +1,217 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+import gurux.common.GXSynchronousMediaBase;
+
+/**
+ * Finds end of packet from received data.
+ * <p>
+ * All end of packet markers are compiled to one state machine when end of
+ * packet is set, so received data is searched only once. Match state is kept
+ * between the reads, so end of packet that is split to several reads is
+ * found.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class EopMatcher {
+    /**
+     * Next state for each state and byte value.
+     */
+    private final int[][] transitions;
+    /**
+     * Is end of packet found when state is reached.
+     */
+    private final boolean[] matches;
+    /**
+     * Current state.
+     */
+    private int state;
+
+    /**
+     * Constructor.
+     * 
+     * @param next
+     *            Next state for each state and byte value.
+     * @param found
+     *            Is end of packet found when state is reached.
+     */
+    private EopMatcher(final int[][] next, final boolean[] found) {
+        transitions = next;
+        matches = found;
+    }
+
+    /**
+     * Compile end of packet.
+     * 
+     * @param eop
+     *            End of packet or array of end of packets.
+     * @return Compiled end of packet or null, if end of packet is not used.
+     */
+    static EopMatcher compile(final Object eop) {
+        if (eop == null) {
+            return null;
+        }
+        List<byte[]> patterns = new ArrayList<byte[]>();
+        if (eop instanceof Object[]) {
+            for (Object it : (Object[]) eop) {
+                add(patterns, it);
+            }
+        } else {
+            add(patterns, eop);
+        }
+        if (patterns.isEmpty()) {
+            return null;
+        }
+        // Build trie from the patterns.
+        List<int[]> next = new ArrayList<int[]>();
+        List<Boolean> found = new ArrayList<Boolean>();
+        next.add(newState());
+        found.add(false);
+        for (byte[] it : patterns) {
+            int s = 0;
+            for (byte b : it) {
+                int ch = b & 0xFF;
+                if (next.get(s)[ch] == -1) {
+                    next.get(s)[ch] = next.size();
+                    next.add(newState());
+                    found.add(false);
+                }
+                s = next.get(s)[ch];
+            }
+            found.set(s, true);
+        }
+        // Add failure transitions so that each state has a next state for
+        // each byte value.
+        int[] fail = new int[next.size()];
+        Queue<Integer> queue = new ArrayDeque<Integer>();
+        int[] root = next.get(0);
+        for (int ch = 0; ch != 256; ++ch) {
+            if (root[ch] == -1) {
+                root[ch] = 0;
+            } else {
+                fail[root[ch]] = 0;
+                queue.add(root[ch]);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            if (found.get(fail[s])) {
+                found.set(s, true);
+            }
+            int[] t = next.get(s);
+            int[] f = next.get(fail[s]);
+            for (int ch = 0; ch != 256; ++ch) {
+                if (t[ch] == -1) {
+                    t[ch] = f[ch];
+                } else {
+                    fail[t[ch]] = f[ch];
+                    queue.add(t[ch]);
+                }
+            }
+        }
+        boolean[] tmp = new boolean[found.size()];
+        for (int pos = 0; pos != tmp.length; ++pos) {
+            tmp[pos] = found.get(pos);
+        }
+        return new EopMatcher(next.toArray(new int[next.size()][]), tmp);
+    }
+
+    /**
+     * Add end of packet to the patterns.
+     * 
+     * @param patterns
+     *            Patterns.
+     * @param value
+     *            End of packet.
+     */
+    private static void add(final List<byte[]> patterns, final Object value) {
+        byte[] tmp = GXSynchronousMediaBase.getAsByteArray(value);
+        if (tmp != null && tmp.length != 0) {
+            patterns.add(tmp);
+        }
+    }
+
+    /**
+     * @return New state without transitions.
+     */
+    private static int[] newState() {
+        int[] tmp = new int[256];
+        Arrays.fill(tmp, -1);
+        return tmp;
+    }
+
+    /**
+     * Search end of packet from received data. Match state is kept for the
+     * next search.
+     * 
+     * @param data
+     *            Received data.
+     * @param index
+     *            Start index.
+     * @param count
+     *            Amount of bytes.
+     * @return Index after the first end of packet or -1 if end of packet is
+     *         not found.
+     */
+    int find(final byte[] data, final int index, final int count) {
+        int ret = -1;
+        int s = state;
+        for (int pos = index; pos != index + count; ++pos) {
+            s = transitions[s][data[pos] & 0xFF];
+            if (ret == -1 && matches[s]) {
+                ret = pos + 1;
+            }
+        }
+        state = s;
+        return ret;
+    }
+
+    /**
+     * Reset match state.
+     */
+    void reset() {
+        state = 0;
+    }
+}
@@ -0,0 +1,138 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Received data of a connection that doesn't form a complete frame yet.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class FrameBuffer {
+    /**
+     * Data.
+     */
+    private byte[] data;
+    /**
+     * Amount of bytes in the buffer.
+     */
+    private int size;
+    /**
+     * Amount of bytes that frame decoder has searched from the incomplete
+     * frame.
+     */
+    private int scanned;
+
+    /**
+     * @return Data.
+     */
+    byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return Amount of bytes in the buffer.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Amount of bytes that frame decoder has searched from the
+     *         incomplete frame.
+     */
+    int getScanned() {
+        return scanned;
+    }
+
+    /**
+     * @param value
+     *            Amount of bytes that frame decoder has searched from the
+     *            incomplete frame.
+     */
+    void setScanned(final int value) {
+        scanned = value;
+    }
+
+    /**
+     * Append data to the buffer.
+     * 
+     * @param value
+     *            Appended data.
+     * @param index
+     *            Start index.
+     * @param count
+     *            Amount of bytes.
+     */
+    void append(final byte[] value, final int index, final int count) {
+        if (data == null || size + count > data.length) {
+            int capacity = Math.max(size + count, 2 * size);
+            byte[] tmp = new byte[capacity];
+            if (size != 0) {
+                System.arraycopy(data, 0, tmp, 0, size);
+            }
+            data = tmp;
+        }
+        System.arraycopy(value, index, data, size, count);
+        size += count;
+    }
+
+    /**
+     * Remove bytes from the beginning of the buffer.
+     * 
+     * @param count
+     *            Amount of removed bytes.
+     */
+    void remove(final int count) {
+        if (count == size) {
+            clear();
+        } else if (count != 0) {
+            System.arraycopy(data, count, data, 0, size - count);
+            size -= count;
+            scanned = 0;
+        }
+    }
+
+    /**
+     * Clear the buffer. Buffer is released so that idle connections don't
+     * keep memory.
+     */
+    void clear() {
+        data = null;
+        size = 0;
+        scanned = 0;
+    }
+}
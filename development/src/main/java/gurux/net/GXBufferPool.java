@@ -0,0 +1,158 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of receive buffers.
+ * <p>
+ * When buffer pool is set to the media, received data is delivered to the
+ * listeners as a {@link GXPooledBuffer} instead of a new byte array. The
+ * same pool can be shared between several media.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ * @see GXNet#setBufferPool(GXBufferPool)
+ */
+public class GXBufferPool {
+    /**
+     * Default amount of buffers that are kept in the pool.
+     */
+    public static final int DEFAULT_MAX_COUNT = 1024;
+
+    /**
+     * Size of pooled buffers.
+     */
+    private final int bufferSize;
+    /**
+     * Maximum amount of buffers that are kept in the pool.
+     */
+    private final int maxCount;
+    /**
+     * Free buffers.
+     */
+    private final ArrayDeque<GXPooledBuffer> free;
+
+    /**
+     * Constructor.
+     */
+    public GXBufferPool() {
+        this(ReceiveThread.RECEIVE_BUFFER_SIZE, DEFAULT_MAX_COUNT);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param size
+     *            Size of pooled buffers.
+     * @param count
+     *            Maximum amount of buffers that are kept in the pool.
+     */
+    public GXBufferPool(final int size, final int count) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid buffer size.");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Invalid buffer count.");
+        }
+        bufferSize = size;
+        maxCount = count;
+        free = new ArrayDeque<GXPooledBuffer>(Math.min(count, 64));
+    }
+
+    /**
+     * @return Size of pooled buffers.
+     */
+    public final int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return Maximum amount of buffers that are kept in the pool.
+     */
+    public final int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return Amount of free buffers in the pool.
+     */
+    public final int getAvailable() {
+        synchronized (free) {
+            return free.size();
+        }
+    }
+
+    /**
+     * Get buffer from the pool. Buffer is returned to the pool when it's
+     * released.
+     * 
+     * @param length
+     *            Needed length.
+     * @return Buffer which reference count is one.
+     */
+    public final GXPooledBuffer acquire(final int length) {
+        GXPooledBuffer buff = null;
+        if (length <= bufferSize) {
+            synchronized (free) {
+                buff = free.poll();
+            }
+            if (buff == null) {
+                buff = new GXPooledBuffer(this, bufferSize);
+            }
+        } else {
+            // Buffer is too big for the pool.
+            buff = new GXPooledBuffer(null, length);
+        }
+        buff.acquired(length);
+        return buff;
+    }
+
+    /**
+     * Return released buffer to the pool.
+     * 
+     * @param buff
+     *            Released buffer.
+     */
+    final void recycle(final GXPooledBuffer buff) {
+        synchronized (free) {
+            if (free.size() < maxCount) {
+                free.push(buff);
+            }
+        }
+    }
+}
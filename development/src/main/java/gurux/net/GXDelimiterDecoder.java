@@ -0,0 +1,144 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import gurux.common.GXSynchronousMediaBase;
+
+/**
+ * Decoder for frames that end to a delimiter.
+ * <p>
+ * Delimiter is the same kind of end of packet value that is used with the
+ * media. Several delimiters can be given as an array. Delimiter is included
+ * to the frame. Incomplete frame is searched only from the data that was
+ * not searched before.
+ * </p>
+ * 
+ * @author Gurux Ltd
+ */
+public class GXDelimiterDecoder implements IGXIncrementalFrameDecoder {
+    /**
+     * Delimiters.
+     */
+    private final byte[][] delimiters;
+    /**
+     * Length of the longest delimiter.
+     */
+    private final int maxLength;
+
+    /**
+     * Constructor.
+     * 
+     * @param eop
+     *            Delimiter or array of delimiters.
+     */
+    public GXDelimiterDecoder(final Object eop) {
+        if (eop == null) {
+            throw new IllegalArgumentException("Invalid delimiter.");
+        }
+        if (eop instanceof Object[]) {
+            Object[] tmp = (Object[]) eop;
+            delimiters = new byte[tmp.length][];
+            for (int pos = 0; pos != tmp.length; ++pos) {
+                delimiters[pos] = getDelimiter(tmp[pos]);
+            }
+        } else {
+            delimiters = new byte[][] { getDelimiter(eop) };
+        }
+        int max = 0;
+        for (byte[] it : delimiters) {
+            max = Math.max(max, it.length);
+        }
+        maxLength = max;
+    }
+
+    /**
+     * Convert delimiter to byte array.
+     * 
+     * @param value
+     *            Delimiter.
+     * @return Delimiter as byte array.
+     */
+    private static byte[] getDelimiter(final Object value) {
+        byte[] tmp = GXSynchronousMediaBase.getAsByteArray(value);
+        if (tmp == null || tmp.length == 0) {
+            throw new IllegalArgumentException("Invalid delimiter.");
+        }
+        return tmp;
+    }
+
+    @Override
+    public final int getFrameLength(final byte[] data, final int index,
+            final int count) {
+        return getFrameLength(data, index, count, 0);
+    }
+
+    @Override
+    public final int getFrameLength(final byte[] data, final int index,
+            final int count, final int scanned) {
+        int end = index + count;
+        // Delimiter might have started in the last searched bytes.
+        int start = index + Math.max(0, scanned - (maxLength - 1));
+        for (int pos = start; pos < end; ++pos) {
+            for (byte[] it : delimiters) {
+                if (pos + it.length <= end && matches(data, pos, it)) {
+                    return pos - index + it.length;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Check is delimiter in given position.
+     * 
+     * @param data
+     *            Received data.
+     * @param index
+     *            Position.
+     * @param delimiter
+     *            Delimiter.
+     * @return True, if delimiter is found.
+     */
+    private static boolean matches(final byte[] data, final int index,
+            final byte[] delimiter) {
+        for (int pos = 0; pos != delimiter.length; ++pos) {
+            if (data[index + pos] != delimiter[pos]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
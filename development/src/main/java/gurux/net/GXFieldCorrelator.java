@@ -0,0 +1,172 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Correlator that reads invoke ID from a fixed position of the request and
+ * the reply.
+ * <p>
+ * ID is an unsigned big-endian value. Mask is used when only some bits of
+ * the field are the ID. For example DLMS WRAPPER frame has 8 bytes header
+ * and invoke ID is in the lowest four bits of the third byte of the APDU.
+ * </p>
+ * 
+ * <pre>
+ * media.setRequestCorrelator(new GXFieldCorrelator(10, 10, 1, 0xF));
+ * </pre>
+ * 
+ * @author Gurux Ltd
+ */
+public class GXFieldCorrelator implements IGXRequestCorrelator {
+    /**
+     * Position of the ID in the request.
+     */
+    private final int requestOffset;
+    /**
+     * Position of the ID in the reply.
+     */
+    private final int replyOffset;
+    /**
+     * Size of the ID field.
+     */
+    private final int size;
+    /**
+     * Mask of the ID bits.
+     */
+    private final long mask;
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            Position of the ID in the request.
+     * @param reply
+     *            Position of the ID in the reply.
+     * @param idSize
+     *            Size of the ID field. Value must be from 1 to 4 bytes.
+     */
+    public GXFieldCorrelator(final int request, final int reply,
+            final int idSize) {
+        this(request, reply, idSize, 0xFFFFFFFFL);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            Position of the ID in the request.
+     * @param reply
+     *            Position of the ID in the reply.
+     * @param idSize
+     *            Size of the ID field. Value must be from 1 to 4 bytes.
+     * @param idMask
+     *            Mask of the ID bits.
+     */
+    public GXFieldCorrelator(final int request, final int reply,
+            final int idSize, final long idMask) {
+        if (idSize < 1 || idSize > 4) {
+            throw new IllegalArgumentException("Invalid ID size.");
+        }
+        if (request < 0 || reply < 0) {
+            throw new IllegalArgumentException("Invalid ID offset.");
+        }
+        requestOffset = request;
+        replyOffset = reply;
+        size = idSize;
+        mask = idMask;
+    }
+
+    /**
+     * @return Position of the ID in the request.
+     */
+    public final int getRequestOffset() {
+        return requestOffset;
+    }
+
+    /**
+     * @return Position of the ID in the reply.
+     */
+    public final int getReplyOffset() {
+        return replyOffset;
+    }
+
+    /**
+     * @return Size of the ID field.
+     */
+    public final int getSize() {
+        return size;
+    }
+
+    /**
+     * @return Mask of the ID bits.
+     */
+    public final long getMask() {
+        return mask;
+    }
+
+    @Override
+    public final Object getRequestId(final byte[] data) {
+        return getId(data, requestOffset, data.length);
+    }
+
+    @Override
+    public final Object getReplyId(final byte[] data, final int index,
+            final int count) {
+        return getId(data, index + replyOffset, index + count);
+    }
+
+    /**
+     * Read ID.
+     * 
+     * @param data
+     *            Data.
+     * @param offset
+     *            Position of the ID.
+     * @param end
+     *            End index of the data.
+     * @return ID or null, if data is too short.
+     */
+    private Long getId(final byte[] data, final int offset, final int end) {
+        if (offset + size > end) {
+            return null;
+        }
+        long value = 0;
+        for (int pos = 0; pos != size; ++pos) {
+            value = (value << 8) | (data[offset + pos] & 0xFF);
+        }
+        return value & mask;
+    }
+}
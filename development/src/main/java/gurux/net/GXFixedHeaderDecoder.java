@@ -0,0 +1,159 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Decoder for frames that start with a fixed size header which contains the
+ * length of the frame payload.
+ * <p>
+ * Length is an unsigned big-endian value. For example DLMS WRAPPER frame has
+ * 8 bytes header and the payload length is in the last two bytes of it.
+ * </p>
+ * 
+ * <pre>
+ * media.setFrameDecoder(new GXFixedHeaderDecoder(8, 6, 2));
+ * </pre>
+ * 
+ * @author Gurux Ltd
+ */
+public class GXFixedHeaderDecoder implements IGXFrameDecoder {
+    /**
+     * Size of the header.
+     */
+    private final int headerSize;
+    /**
+     * Position of the length field in the header.
+     */
+    private final int lengthOffset;
+    /**
+     * Size of the length field.
+     */
+    private final int lengthSize;
+    /**
+     * Does length include the header.
+     */
+    private final boolean lengthIncludesHeader;
+
+    /**
+     * Constructor.
+     * 
+     * @param header
+     *            Size of the header.
+     * @param offset
+     *            Position of the length field in the header.
+     * @param size
+     *            Size of the length field. Value must be from 1 to 4 bytes.
+     */
+    public GXFixedHeaderDecoder(final int header, final int offset,
+            final int size) {
+        this(header, offset, size, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param header
+     *            Size of the header.
+     * @param offset
+     *            Position of the length field in the header.
+     * @param size
+     *            Size of the length field. Value must be from 1 to 4 bytes.
+     * @param includesHeader
+     *            Does length include the header.
+     */
+    public GXFixedHeaderDecoder(final int header, final int offset,
+            final int size, final boolean includesHeader) {
+        if (size < 1 || size > 4) {
+            throw new IllegalArgumentException("Invalid length size.");
+        }
+        if (offset < 0 || offset + size > header) {
+            throw new IllegalArgumentException("Invalid length offset.");
+        }
+        headerSize = header;
+        lengthOffset = offset;
+        lengthSize = size;
+        lengthIncludesHeader = includesHeader;
+    }
+
+    /**
+     * @return Size of the header.
+     */
+    public final int getHeaderSize() {
+        return headerSize;
+    }
+
+    /**
+     * @return Position of the length field in the header.
+     */
+    public final int getLengthOffset() {
+        return lengthOffset;
+    }
+
+    /**
+     * @return Size of the length field.
+     */
+    public final int getLengthSize() {
+        return lengthSize;
+    }
+
+    /**
+     * @return Does length include the header.
+     */
+    public final boolean getLengthIncludesHeader() {
+        return lengthIncludesHeader;
+    }
+
+    @Override
+    public final int getFrameLength(final byte[] data, final int index,
+            final int count) {
+        if (count < headerSize) {
+            return 0;
+        }
+        long length = 0;
+        for (int pos = 0; pos != lengthSize; ++pos) {
+            length = (length << 8) | (data[index + lengthOffset + pos] & 0xFF);
+        }
+        if (!lengthIncludesHeader) {
+            length += headerSize;
+        } else if (length < headerSize) {
+            throw new IllegalArgumentException("Invalid frame length.");
+        }
+        if (length > count) {
+            return 0;
+        }
+        return (int) length;
+    }
+}
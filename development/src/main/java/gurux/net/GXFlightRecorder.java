@@ -0,0 +1,448 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Flight recorder keeps the latest sent and received data in a fixed size
+ * ring buffer outside of the Java heap.
+ * <p>
+ * Recording does not allocate objects and listeners are not notified, so
+ * it can be kept on in production. When the buffer is full, the oldest
+ * records are overwritten. Content is dumped on demand or automatically
+ * to a file when an error occurs. The same recorder can be shared between
+ * several media.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ * @see GXNet#setFlightRecorder(GXFlightRecorder)
+ */
+public final class GXFlightRecorder {
+    /**
+     * Magic of the saved recorder content.
+     */
+    public static final int MAGIC = 0x47584652;
+
+    /**
+     * Size of the record header: record size, time, original length,
+     * direction and peer length.
+     */
+    static final int HEADER_SIZE = 4 + 8 + 4 + 1 + 1;
+
+    /**
+     * Maximum length of the peer information.
+     */
+    private static final int MAX_PEER_LENGTH = 255;
+
+    /**
+     * Minimum time between error dumps in milliseconds.
+     */
+    private static final int ERROR_DUMP_INTERVAL = 1000;
+
+    /**
+     * Writes error dumps, so the thread that reports the error is not
+     * blocked by the file system.
+     */
+    private static final class DumpWriter {
+        /**
+         * Executor that is shared between all recorders.
+         */
+        private static final ExecutorService EXECUTOR =
+                Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        Thread t = new Thread(r, "GXFlightRecorder writer");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+
+        /**
+         * Constructor.
+         */
+        private DumpWriter() {
+
+        }
+    }
+
+    /**
+     * Ring buffer.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Size of the ring buffer.
+     */
+    private final int capacity;
+    /**
+     * Position of the oldest record. Positions grow and they are wrapped
+     * when the buffer is accessed.
+     */
+    private long head;
+    /**
+     * Position of the next record.
+     */
+    private long tail;
+    /**
+     * Amount of records in the buffer.
+     */
+    private int count;
+    /**
+     * File where content is written when an error occurs.
+     */
+    private volatile String errorDumpFile;
+    /**
+     * Time when content was last written to the error dump file.
+     */
+    private long lastErrorDump;
+
+    /**
+     * Constructor.
+     * 
+     * @param size
+     *            Size of the ring buffer in bytes.
+     */
+    public GXFlightRecorder(final int size) {
+        if (size < HEADER_SIZE + MAX_PEER_LENGTH) {
+            throw new IllegalArgumentException("Invalid recorder size.");
+        }
+        capacity = size;
+        buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @return Size of the ring buffer in bytes.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Amount of records in the buffer.
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets file where content is written when an error occurs.
+     * 
+     * @return File name or null, if content is not written on error.
+     */
+    public String getErrorDumpFile() {
+        return errorDumpFile;
+    }
+
+    /**
+     * Sets file where content is written when an error occurs. File is
+     * overwritten and it's written at most once in a second.
+     * 
+     * @param value
+     *            File name or null, if content is not written on error.
+     */
+    public void setErrorDumpFile(final String value) {
+        errorDumpFile = value;
+    }
+
+    /**
+     * Remove all records.
+     */
+    public synchronized void clear() {
+        head = tail;
+        count = 0;
+    }
+
+    /**
+     * Write byte to the ring buffer.
+     * 
+     * @param pos
+     *            Position.
+     * @param value
+     *            Value.
+     */
+    private void put(final long pos, final int value) {
+        buffer.put((int) (pos % capacity), (byte) value);
+    }
+
+    /**
+     * Write integer to the ring buffer.
+     * 
+     * @param pos
+     *            Position.
+     * @param value
+     *            Value.
+     */
+    private void putInt(final long pos, final int value) {
+        for (int i = 0; i != 4; ++i) {
+            put(pos + i, value >>> (24 - 8 * i));
+        }
+    }
+
+    /**
+     * Read integer from the ring buffer.
+     * 
+     * @param pos
+     *            Position.
+     * @return Value.
+     */
+    private int getInt(final long pos) {
+        int value = 0;
+        for (int i = 0; i != 4; ++i) {
+            value = (value << 8)
+                    | (buffer.get((int) ((pos + i) % capacity)) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Write bytes to the ring buffer.
+     * 
+     * @param pos
+     *            Position.
+     * @param data
+     *            Data.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     */
+    private void put(final long pos, final byte[] data, final int index,
+            final int length) {
+        int start = (int) (pos % capacity);
+        int first = Math.min(length, capacity - start);
+        buffer.position(start);
+        buffer.put(data, index, first);
+        if (first != length) {
+            buffer.position(0);
+            buffer.put(data, index + first, length - first);
+        }
+    }
+
+    /**
+     * Record sent or received data.
+     * 
+     * @param sent
+     *            Is data sent.
+     * @param peer
+     *            Receiver or sender information. Null if not known.
+     * @param data
+     *            Data.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     */
+    void record(final boolean sent, final String peer, final byte[] data,
+            final int index, final int length) {
+        long time = System.currentTimeMillis();
+        int peerLength = 0;
+        if (peer != null) {
+            peerLength = Math.min(peer.length(), MAX_PEER_LENGTH);
+        }
+        // Data that does not fit to the buffer is truncated.
+        int saved = Math.min(length, capacity - HEADER_SIZE - peerLength);
+        int size = HEADER_SIZE + peerLength + saved;
+        synchronized (this) {
+            while (tail + size - head > capacity) {
+                head += getInt(head);
+                --count;
+            }
+            long pos = tail;
+            putInt(pos, size);
+            putInt(pos + 4, (int) (time >>> 32));
+            putInt(pos + 8, (int) time);
+            putInt(pos + 12, length);
+            put(pos + 16, sent ? 1 : 0);
+            put(pos + 17, peerLength);
+            pos += HEADER_SIZE;
+            // Peer information is IP address and port, so it's ASCII.
+            for (int i = 0; i != peerLength; ++i) {
+                put(pos + i, peer.charAt(i));
+            }
+            put(pos + peerLength, data, index, saved);
+            tail += size;
+            ++count;
+        }
+    }
+
+    /**
+     * Copy records from the ring buffer.
+     * 
+     * @return Records from the oldest to the newest.
+     */
+    synchronized byte[] toArray() {
+        byte[] tmp = new byte[(int) (tail - head)];
+        if (tmp.length != 0) {
+            int start = (int) (head % capacity);
+            int first = Math.min(tmp.length, capacity - start);
+            buffer.position(start);
+            buffer.get(tmp, 0, first);
+            buffer.position(0);
+            buffer.get(tmp, first, tmp.length - first);
+        }
+        return tmp;
+    }
+
+    /**
+     * Write records as text from the oldest to the newest. Each record is
+     * written to its own line with time, direction, peer and data as hex.
+     * 
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    public void dump(final Appendable out) throws IOException {
+        dump(toArray(), out);
+    }
+
+    /**
+     * Write copied records as text.
+     * 
+     * @param records
+     *            Records from the oldest to the newest.
+     * @param out
+     *            Output.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private static void dump(final byte[] records, final Appendable out)
+            throws IOException {
+        final char[] hex = "0123456789ABCDEF".toCharArray();
+        SimpleDateFormat format =
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        ByteBuffer bb = ByteBuffer.wrap(records);
+        while (bb.hasRemaining()) {
+            int start = bb.position();
+            int size = bb.getInt();
+            long time = bb.getLong();
+            int length = bb.getInt();
+            boolean sent = bb.get() != 0;
+            int peerLength = bb.get() & 0xFF;
+            out.append(format.format(new Date(time)));
+            out.append(sent ? " TX " : " RX ");
+            for (int pos = 0; pos != peerLength; ++pos) {
+                out.append((char) bb.get());
+            }
+            int saved = size - HEADER_SIZE - peerLength;
+            for (int pos = 0; pos != saved; ++pos) {
+                int value = bb.get() & 0xFF;
+                out.append(' ');
+                out.append(hex[value >> 4]);
+                out.append(hex[value & 0xF]);
+            }
+            if (saved != length) {
+                out.append(" (" + length + " bytes)");
+            }
+            out.append(System.lineSeparator());
+            bb.position(start + size);
+        }
+    }
+
+    /**
+     * Save records in binary format from the oldest to the newest.
+     * <p>
+     * Content starts with {@link #MAGIC}. Each record contains record size
+     * (4 bytes), time in milliseconds (8 bytes), original length of the
+     * data (4 bytes), direction (1 byte, 1 if data is sent and 0 if it's
+     * received), length of the peer (1 byte), peer as ASCII and the data.
+     * Numbers are in big endian order.
+     * </p>
+     * 
+     * @param out
+     *            Output stream.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    public void save(final OutputStream out) throws IOException {
+        byte[] tmp = toArray();
+        out.write(new byte[] { (byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16),
+                (byte) (MAGIC >>> 8), (byte) MAGIC });
+        out.write(tmp);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            dump(sb);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw.
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write content to the error dump file if it's set. Records are copied
+     * on the calling thread and the file is written in the background.
+     * Dump is not written if writing fails.
+     */
+    void errorOccurred() {
+        final String file = errorDumpFile;
+        if (file == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        final byte[] records;
+        synchronized (this) {
+            if (now - lastErrorDump < ERROR_DUMP_INTERVAL) {
+                return;
+            }
+            lastErrorDump = now;
+            records = toArray();
+        }
+        DumpWriter.EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try (Writer w = new FileWriter(file)) {
+                    dump(records, w);
+                } catch (IOException e) {
+                    // Dump is not written.
+                }
+            }
+        });
+    }
+}
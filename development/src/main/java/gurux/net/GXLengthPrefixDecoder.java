@@ -0,0 +1,57 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Decoder for frames that start with the length of the frame payload.
+ * <p>
+ * Length is an unsigned big-endian value and it doesn't include the length
+ * field itself.
+ * </p>
+ * 
+ * @author Gurux Ltd
+ */
+public class GXLengthPrefixDecoder extends GXFixedHeaderDecoder {
+    /**
+     * Constructor.
+     * 
+     * @param size
+     *            Size of the length field. Value must be from 1 to 4 bytes.
+     */
+    public GXLengthPrefixDecoder(final int size) {
+        super(size, 0, size);
+    }
+}
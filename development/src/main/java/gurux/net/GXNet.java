@@ -34,7 +34,6 @@
 
 package gurux.net;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.io.StringReader;
 import java.net.DatagramPacket;
@@ -43,10 +42,28 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -68,8 +85,12 @@ import gurux.common.TraceEventArgs;
 import gurux.common.enums.MediaState;
 import gurux.common.enums.TraceLevel;
 import gurux.common.enums.TraceTypes;
+import gurux.net.enums.AdmissionMode;
 import gurux.net.enums.AvailableMediaSettings;
+import gurux.net.enums.ConnectionRejectReason;
+import gurux.net.enums.NetworkEngine;
 import gurux.net.enums.NetworkType;
+import gurux.net.enums.ReceiveMode;
 
 /**
  * The GXNet component determines methods that make the communication possible
@@ -77,6 +98,32 @@ import gurux.net.enums.NetworkType;
  * 
  */
 public class GXNet implements IGXMedia2, AutoCloseable {
+    /**
+     * Default maximum amount of cached addresses.
+     */
+    public static final int DEFAULT_ADDRESS_CACHE_SIZE = 1024;
+
+    /**
+     * Default time (milliseconds) how long resolved address is cached.
+     */
+    public static final int DEFAULT_ADDRESS_CACHE_TIME = 60000;
+
+    /**
+     * Default amount of pending bytes when connection becomes unwritable.
+     */
+    public static final int DEFAULT_WRITE_HIGH_WATERMARK = 65536;
+
+    /**
+     * Default amount of pending bytes when connection becomes writable
+     * again.
+     */
+    public static final int DEFAULT_WRITE_LOW_WATERMARK = 32768;
+
+    /**
+     * Default maximum amount of queued callbacks for each connection.
+     */
+    public static final int DEFAULT_DISPATCH_QUEUE_SIZE = 1024;
+
     private int receiveDelay;
 
     private int asyncWaitTime;
@@ -106,14 +153,15 @@ public class GXNet implements IGXMedia2, AutoCloseable {
     private java.io.Closeable socket = null;
 
     /**
-     * Connected TCP/IP clients.
+     * Connected TCP/IP clients by client address.
      */
-    private List<Socket> tcpIpClients = new ArrayList<Socket>();
+    private final Map<String, GXNetConnection> connections =
+            new ConcurrentHashMap<String, GXNetConnection>();
 
     /**
-     * Amount of sent bytes.
+     * Traffic counters.
      */
-    private long bytesSent = 0;
+    private final GXNetStatistics statistics = new GXNetStatistics();
     /**
      * Synchronous counter.
      */
@@ -126,24 +174,48 @@ public class GXNet implements IGXMedia2, AutoCloseable {
      * Maximum client count.
      */
     private int maxClientCount;
+    /**
+     * Maximum client count of one IP address.
+     */
+    private int maxAddressClientCount;
+    /**
+     * What server does when maximum client count is reached.
+     */
+    private AdmissionMode admissionMode = AdmissionMode.REJECT;
+    /**
+     * Accept backlog of the server socket.
+     */
+    private int acceptBacklog;
+    /**
+     * Counts connected clients.
+     */
+    private final AdmissionControl admission = new AdmissionControl(this);
     /**
      * Used end of packet.
      */
     private Object eop;
+    /**
+     * Compiled end of packet. Null if end of packet is not used.
+     */
+    private EopMatcher eopMatcher;
     /**
      * Configurable settings.
      */
     private int configurableSettings;
     /**
-     * Media listeners.
+     * Media listeners. Array is replaced when listeners are changed, so
+     * events are dispatched without locking.
      */
-    private List<IGXMediaListener> listeners =
-            new ArrayList<IGXMediaListener>();
+    private volatile IGXMediaListener[] listeners = new IGXMediaListener[0];
 
     /**
-     * Network listeners.
+     * Network listeners. Array is replaced when listeners are changed.
+     */
+    private volatile IGXNetListener[] netListeners = new IGXNetListener[0];
+    /**
+     * Serializes listener changes.
      */
-    private List<IGXNetListener> netListeners = new ArrayList<IGXNetListener>();
+    private final Object listenerSync = new Object();
     /**
      * Received thread.
      */
@@ -166,6 +238,190 @@ public class GXNet implements IGXMedia2, AutoCloseable {
 
     private boolean shutdownInput;
 
+    /**
+     * Used network engine.
+     */
+    private NetworkEngine engine = NetworkEngine.THREAD;
+
+    /**
+     * Name of the management bean. Null if bean is not registered.
+     */
+    private String managementName;
+
+    /**
+     * Registered management bean.
+     */
+    private GXNetManagement management;
+
+    /**
+     * Amount of selector event loops.
+     */
+    private int selectorCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Amount of threads that write broadcast data to the clients.
+     */
+    private int broadcastThreadCount =
+            Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Threads that write broadcast and queued data. Created when first
+     * needed.
+     */
+    private ExecutorService writeExecutor;
+
+    /**
+     * Requests that are waiting for the reply by target.
+     */
+    private final Map<String, RequestQueue> requests =
+            new ConcurrentHashMap<String, RequestQueue>();
+
+    /**
+     * Request correlator. Null if replies are in the same order as requests.
+     */
+    private IGXRequestCorrelator requestCorrelator;
+
+    /**
+     * Maximum amount of requests that are waiting for the reply from one
+     * target. Zero if not limited.
+     */
+    private int pipelineDepth;
+
+    /**
+     * Timer for request timeouts. One timer thread is shared between all
+     * media, so pooled connections don't each need their own thread.
+     */
+    private static final class RequestTimer {
+        /**
+         * Shared timer. Cancelled timeouts are removed at once, so they
+         * don't stay in the queue until their wait time has elapsed.
+         */
+        private static final ScheduledExecutorService TIMER;
+
+        static {
+            ScheduledThreadPoolExecutor tmp =
+                    new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                        @Override
+                        public Thread newThread(final Runnable r) {
+                            Thread t = new Thread(r, "GXNet timer");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            tmp.setRemoveOnCancelPolicy(true);
+            TIMER = tmp;
+        }
+
+        /**
+         * Constructor.
+         */
+        private RequestTimer() {
+
+        }
+    }
+
+    /**
+     * Is data queued and written by writer threads when client is served by
+     * a thread.
+     */
+    private boolean queuedWrite;
+
+    /**
+     * Amount of pending bytes when connection becomes unwritable.
+     */
+    private int writeHighWatermark = DEFAULT_WRITE_HIGH_WATERMARK;
+
+    /**
+     * Amount of pending bytes when connection becomes writable again.
+     */
+    private int writeLowWatermark = DEFAULT_WRITE_LOW_WATERMARK;
+
+    /**
+     * How data is read from TCP/IP stream.
+     */
+    private ReceiveMode receiveMode = ReceiveMode.DELAYED;
+
+    /**
+     * How long (milliseconds) data is coalesced in immediate receive mode.
+     */
+    private int coalesceTime;
+
+    /**
+     * Buffer pool for received data. Null if pooling is not used.
+     */
+    private GXBufferPool bufferPool;
+
+    /**
+     * Dispatcher of received data. Null if listeners are called from the
+     * receiving thread.
+     */
+    private volatile Dispatcher dispatcher;
+
+    /**
+     * Maximum amount of queued callbacks for each connection.
+     */
+    private int dispatchQueueSize = DEFAULT_DISPATCH_QUEUE_SIZE;
+
+    /**
+     * Flight recorder. Null if sent and received data is not recorded.
+     */
+    private GXFlightRecorder flightRecorder;
+
+    /**
+     * Capture file writer. Null if data is not captured.
+     */
+    private GXNetCapture capture;
+
+    /**
+     * Size of receive buffer.
+     */
+    private int receiveBufferSize = ReceiveThread.RECEIVE_BUFFER_SIZE;
+
+    /**
+     * Size of the buffer of synchronous data handler.
+     */
+    private int syncBaseSize = ReceiveThread.RECEIVE_BUFFER_SIZE;
+
+    /**
+     * Is receive buffer size adapted to received data.
+     */
+    private boolean adaptiveReceiveBuffer;
+
+    /**
+     * Maximum size of adaptive receive buffer.
+     */
+    private int maxReceiveBufferSize = ReceiveThread.MAX_RECEIVE_BUFFER_SIZE;
+
+    /**
+     * Frame decoder. Null if received data is delivered as it's read.
+     */
+    private IGXFrameDecoder frameDecoder;
+
+    /**
+     * Is host name of UDP sender resolved with reverse DNS lookup.
+     */
+    private boolean reverseLookup = true;
+
+    /**
+     * Maximum amount of cached addresses.
+     */
+    private int addressCacheSize = DEFAULT_ADDRESS_CACHE_SIZE;
+
+    /**
+     * How long (milliseconds) resolved address is cached.
+     */
+    private int addressCacheTime = DEFAULT_ADDRESS_CACHE_TIME;
+
+    /**
+     * Resolved UDP target addresses. Null if addresses are not cached.
+     */
+    private AddressCache<String, InetSocketAddress> resolvedAddresses;
+
+    /**
+     * Resolved host names of UDP senders. Null if names are not cached.
+     */
+    private AddressCache<InetAddress, String> resolvedNames;
+
     /**
      * Constructor.
      */
@@ -175,6 +431,7 @@ public class GXNet implements IGXMedia2, AutoCloseable {
         setConfigurableSettings(AvailableMediaSettings.ALL.getValue());
         setProtocol(NetworkType.TCP);
         locale = Locale.getDefault();
+        createAddressCaches();
     }
 
     /**
@@ -215,6 +472,11 @@ public class GXNet implements IGXMedia2, AutoCloseable {
      * 
      * This can be used in server side if server want to start communicating
      * with client using synchronous communication. Close connection after use.
+     * <p>
+     * If this is called from a listener that is run by the selector thread,
+     * the connection is released after the listener returns and it can be
+     * used only after that.
+     * </p>
      * 
      * @param address
      *            cliend address to connect.
@@ -229,26 +491,49 @@ public class GXNet implements IGXMedia2, AutoCloseable {
         net.setConfigurableSettings(configurableSettings);
         net.setProtocol(protocol);
         net.setTrace(trace);
-        synchronized (tcpIpClients) {
-            for (Closeable it : tcpIpClients) {
-                if (it instanceof Socket) {
-                    Socket s = (Socket) it;
-                    if (s.getRemoteSocketAddress().toString().equals(address)) {
-                        net.socket = s;
-                        net.hostName = hostName;
-                        net.port = port;
-                        tcpIpClients.remove(s);
-                        net.receiverThread =
-                                new ReceiveThread(net, (java.io.Closeable) s);
-                        net.receiverThread.start();
-                        break;
-                    }
-                }
-            }
+        if (engine == NetworkEngine.VIRTUAL_THREAD) {
+            net.setEngine(engine);
+        }
+        net.setReceiveMode(receiveMode);
+        net.setBufferPool(bufferPool);
+        net.setDispatcher(getDispatcher());
+        net.setDispatchQueueSize(dispatchQueueSize);
+        net.setFlightRecorder(flightRecorder);
+        net.setCapture(capture);
+        net.setReceiveBufferSize(receiveBufferSize);
+        net.setAdaptiveReceiveBuffer(adaptiveReceiveBuffer);
+        net.setMaxReceiveBufferSize(maxReceiveBufferSize);
+        net.setFrameDecoder(frameDecoder);
+        net.setCoalesceTime(coalesceTime);
+        GXNetConnection c = connections.get(address);
+        if (c instanceof SelectorConnection) {
+            net.socket = ((SelectorConnection) c).getChannel().socket();
+        } else if (c instanceof SocketConnection) {
+            removeConnection(c);
+            net.socket = ((SocketConnection) c).getSocket();
         }
         if (net.socket == null) {
             throw new IllegalArgumentException("Unknown address.");
         }
+        net.hostName = hostName;
+        net.port = port;
+        final ReceiveThread receiver = new ReceiveThread(net, net.socket);
+        net.receiverThread = receiver;
+        if (c instanceof SelectorConnection) {
+            try {
+                ((SelectorServer) socket).detach((SelectorConnection) c,
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                receiver.start();
+                            }
+                        });
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage());
+            }
+        } else {
+            receiver.start();
+        }
         return net;
     }
 
@@ -263,10 +548,81 @@ public class GXNet implements IGXMedia2, AutoCloseable {
     }
 
     /**
-     * @return Gets connected TCP/IP clients.
+     * @return Connected TCP/IP clients by client address.
+     */
+    final Map<String, GXNetConnection> getConnectionMap() {
+        return connections;
+    }
+
+    /**
+     * @return Counts connected clients.
+     */
+    final AdmissionControl getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Check can client connect to the server.
+     * 
+     * @param address
+     *            Client's IP address.
+     * @return Reject reason or NONE, if client can connect.
+     */
+    final ConnectionRejectReason admit(final InetAddress address) {
+        return admission.admit(address);
+    }
+
+    /**
+     * Add accepted client connection.
+     * 
+     * @param connection
+     *            Client connection.
+     */
+    final void addConnection(final GXNetConnection connection) {
+        connections.put(connection.getInfo(), connection);
+    }
+
+    /**
+     * Remove client connection after it's closed or attached.
+     * 
+     * @param connection
+     *            Client connection.
+     * @return True, if connection was removed.
+     */
+    final boolean removeConnection(final GXNetConnection connection) {
+        if (connections.remove(connection.getInfo(), connection)) {
+            SocketAddress address = connection.getRemoteAddress();
+            if (address instanceof InetSocketAddress) {
+                admission.release(
+                        ((InetSocketAddress) address).getAddress());
+            }
+            Object tmp = socket;
+            if (tmp instanceof SelectorServer) {
+                ((SelectorServer) tmp).resumeAccept();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get connected TCP/IP clients in server mode.
+     * 
+     * @return Connected clients.
+     */
+    public final Collection<GXNetConnection> getConnections() {
+        return Collections.unmodifiableCollection(connections.values());
+    }
+
+    /**
+     * Find connected TCP/IP client in server mode.
+     * 
+     * @param address
+     *            Client address.
+     * @return Client connection or null, if client is not connected.
      */
-    final List<Socket> getTcpIpClients() {
-        return tcpIpClients;
+    public final GXNetConnection getConnection(final String address) {
+        return connections.get(address);
     }
 
     /**
@@ -308,15 +664,43 @@ public class GXNet implements IGXMedia2, AutoCloseable {
      *            Connection events argument.
      */
     final void notifyClientConnected(final ConnectionEventArgs e) {
-        synchronized (netListeners) {
-            for (IGXNetListener it : netListeners) {
-                it.onClientConnected(this, e);
+        for (IGXNetListener it : netListeners) {
+            it.onClientConnected(this, e);
+        }
+        if (e.getAccept()) {
+            statistics.connected();
+        } else {
+            statistics.rejected();
+        }
+        if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
+            for (IGXMediaListener it : listeners) {
+                it.onTrace(this, new TraceEventArgs(TraceTypes.INFO,
+                        "Client connected."));
             }
-            if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
-                for (IGXMediaListener it : listeners) {
-                    it.onTrace(this, new TraceEventArgs(TraceTypes.INFO,
-                            "Client connected."));
-                }
+        }
+    }
+
+    /**
+     * Notify that server has rejected the client. Client is already closed.
+     * 
+     * @param info
+     *            Client's IP address and port number.
+     * @param reason
+     *            Reject reason.
+     */
+    final void notifyClientRejected(final String info,
+            final ConnectionRejectReason reason) {
+        ConnectionEventArgs e = new ConnectionEventArgs(info);
+        e.setAccept(false);
+        e.setReason(reason);
+        statistics.rejected();
+        for (IGXNetListener it : netListeners) {
+            it.onClientConnected(this, e);
+        }
+        if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
+            for (IGXMediaListener it : listeners) {
+                it.onTrace(this, new TraceEventArgs(TraceTypes.INFO,
+                        "Client rejected: " + reason));
             }
         }
     }
@@ -328,15 +712,55 @@ public class GXNet implements IGXMedia2, AutoCloseable {
      *            Connection event argument.
      */
     final void notifyClientDisconnected(final ConnectionEventArgs e) {
-        synchronized (netListeners) {
-            for (IGXNetListener it : netListeners) {
-                it.onClientDisconnected(this, e);
-            }
-            if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
-                for (IGXMediaListener it : listeners) {
-                    it.onTrace(this, new TraceEventArgs(TraceTypes.INFO,
-                            "Client disconnected."));
+        if (!requests.isEmpty()) {
+            failRequests(e.getInfo(),
+                    new IOException("Client disconnected."));
+        }
+        statistics.disconnected();
+        Dispatcher d = dispatcher;
+        if (d != null) {
+            // Disconnect is notified after the data that is received
+            // before it.
+            d.dispatch(getRequestKey(e.getInfo()), new Runnable() {
+                @Override
+                public void run() {
+                    clientDisconnected(e);
                 }
+            }, e.getConnection());
+        } else {
+            clientDisconnected(e);
+        }
+    }
+
+    /**
+     * Notify listeners that client is disconnected.
+     * 
+     * @param e
+     *            Connection event argument.
+     */
+    private void clientDisconnected(final ConnectionEventArgs e) {
+        for (IGXNetListener it : netListeners) {
+            it.onClientDisconnected(this, e);
+        }
+        if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
+            for (IGXMediaListener it : listeners) {
+                it.onTrace(this, new TraceEventArgs(TraceTypes.INFO,
+                        "Client disconnected."));
+            }
+        }
+    }
+
+    /**
+     * Notify clients that connection has become writable or unwritable.
+     * 
+     * @param e
+     *            Connection event argument.
+     */
+    final void notifyWritabilityChanged(final ConnectionEventArgs e) {
+        for (IGXMediaListener it : listeners) {
+            if (it instanceof IGXNetWritabilityListener) {
+                ((IGXNetWritabilityListener) it).onWritabilityChanged(this,
+                        e);
             }
         }
     }
@@ -348,6 +772,11 @@ public class GXNet implements IGXMedia2, AutoCloseable {
      *            Occurred error.
      */
     final void notifyError(final RuntimeException ex) {
+        statistics.error(1);
+        GXFlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.errorOccurred();
+        }
         for (IGXMediaListener it : listeners) {
             it.onError(this, ex);
             if (trace.ordinal() >= TraceLevel.ERROR.ordinal()) {
@@ -369,377 +798,1332 @@ public class GXNet implements IGXMedia2, AutoCloseable {
     }
 
     /**
-     * Notify clients from trace events.
+     * Notify clients from received datagrams. Pooled buffers of the
+     * datagrams are released after the listeners are notified.
      * 
-     * @param e
-     *            Trace event argument.
+     * @param batch
+     *            Received datagrams.
      */
-    final void notifyTrace(final TraceEventArgs e) {
-        for (IGXMediaListener it : listeners) {
-            it.onTrace(this, e);
+    final void notifyReceivedBatch(final List<ReceiveEventArgs> batch) {
+        syncBase.resetReceivedSize();
+        Dispatcher d = dispatcher;
+        if (d != null) {
+            // Datagrams of each sender are dispatched together in the order
+            // they are received.
+            Map<String, List<ReceiveEventArgs>> senders =
+                    new LinkedHashMap<String, List<ReceiveEventArgs>>();
+            for (ReceiveEventArgs e : batch) {
+                List<ReceiveEventArgs> list = senders.get(e.getSenderInfo());
+                if (list == null) {
+                    list = new ArrayList<ReceiveEventArgs>();
+                    senders.put(e.getSenderInfo(), list);
+                }
+                list.add(e);
+            }
+            for (Map.Entry<String, List<ReceiveEventArgs>> it : senders
+                    .entrySet()) {
+                final List<ReceiveEventArgs> list = it.getValue();
+                d.dispatch(getRequestKey(it.getKey()), new Runnable() {
+                    @Override
+                    public void run() {
+                        receivedBatch(list);
+                    }
+                }, null);
+            }
+        } else {
+            receivedBatch(batch);
         }
     }
 
-    @Override
-    public final int getConfigurableSettings() {
-        return configurableSettings;
-    }
-
-    @Override
-    public final void setConfigurableSettings(final int value) {
-        this.configurableSettings = value;
-    }
-
-    @Override
-    public final boolean properties(final javax.swing.JFrame parent) {
-        GXSettings dlg = new GXSettings(parent, true, this, locale);
-        dlg.pack();
-        dlg.setVisible(true);
-        return dlg.isAccepted();
-    }
-
     /**
-     * Displays the copyright of the control, user license, and version
-     * information, in a dialog box.
+     * Notify listeners from received datagrams and release pooled buffers.
+     * 
+     * @param batch
+     *            Received datagrams.
      */
-    public final void aboutBox() {
-        throw new UnsupportedOperationException();
+    private void receivedBatch(final List<ReceiveEventArgs> batch) {
+        List<ReceiveEventArgs> tmp = Collections.unmodifiableList(batch);
+        try {
+            for (IGXMediaListener it : listeners) {
+                if (it instanceof IGXNetBatchListener) {
+                    ((IGXNetBatchListener) it).onReceivedBatch(this, tmp);
+                } else {
+                    for (ReceiveEventArgs e : batch) {
+                        it.onReceived(this, e);
+                    }
+                }
+            }
+        } finally {
+            for (ReceiveEventArgs e : batch) {
+                if (e.getData() instanceof GXPooledBuffer) {
+                    ((GXPooledBuffer) e.getData()).release();
+                }
+            }
+        }
     }
 
     /**
-     * @param target
-     *            IP address of the receiver (optional). Reply data is received
-     *            through OnReceived event.
+     * Handle received data.
+     * 
+     * @param buffer
+     *            Buffer where data is received.
+     * @param length
+     *            Length of received data.
+     * @param info
+     *            Sender information.
+     * @param frames
+     *            Incomplete frame of the connection. Null if data is not
+     *            decoded to frames.
+     * @param connection
+     *            Client connection in TCP/IP server mode. Otherwise null.
      */
-    @Override
-    public final void send(final Object data, final String target)
-            throws Exception {
-        if (socket == null) {
-            throw new RuntimeException("Invalid connection.");
-        }
-        if (trace == TraceLevel.VERBOSE) {
-            notifyTrace(new TraceEventArgs(TraceTypes.SENT, data));
+    final void handleReceivedData(final byte[] buffer, final int length,
+            final String info, final FrameBuffer frames,
+            final GXNetConnection connection) {
+        if (length == 0) {
+            return;
         }
-        // Reset last position if end of packet is used.
-        synchronized (syncBase.getSync()) {
-            syncBase.resetLastPosition();
-        }
-        byte[] buff = GXSynchronousMediaBase.getAsByteArray(data);
-        if (buff == null) {
-            throw new IllegalArgumentException(
-                    "Data send failed. Invalid data.");
-        }
-        if (getServer()) {
-            if (getProtocol() == NetworkType.TCP) {
-                synchronized (tcpIpClients) {
-                    for (Closeable it : tcpIpClients) {
-                        if (it instanceof Socket) {
-                            if (((Socket) it).getRemoteSocketAddress()
-                                    .toString().equals(target)) {
-                                ((Socket) it).getOutputStream().write(buff);
-                                break;
-                            }
-                        }
-                    }
-                }
-            } else {
-                String info;
-                if (target.startsWith("/")) {
-                    info = target.substring(1);
-                } else {
-                    info = target;
+        countReceived(buffer, length, info, connection);
+        if (getIsSynchronous()) {
+            TraceEventArgs arg = null;
+            synchronized (syncBase.getSync()) {
+                syncBase.appendData(buffer, 0, length);
+                int totalCount = length;
+                // Search end of packet if it is given.
+                if (eopMatcher != null) {
+                    totalCount = eopMatcher.find(buffer, 0, length);
                 }
-
-                int index = info.lastIndexOf(":");
-                if (index == -1) {
-                    throw new RuntimeException("Port is missing.");
+                if (totalCount != -1) {
+                    if (trace == TraceLevel.VERBOSE) {
+                        arg = new gurux.common.TraceEventArgs(
+                                TraceTypes.RECEIVED, buffer, 0, totalCount);
+                    }
+                    syncBase.setReceived();
+                    frameReceived(connection);
                 }
-                InetAddress addr =
-                        InetAddress.getByName(info.substring(0, index));
-                DatagramPacket p = new DatagramPacket(buff, buff.length, addr,
-                        Integer.parseInt(info.substring(1 + index)));
-                ((DatagramSocket) socket).send(p);
+            }
+            if (arg != null) {
+                notifyTrace(arg);
             }
         } else {
-            if (getProtocol() == NetworkType.TCP) {
-                ((Socket) socket).getOutputStream().write(buff);
-            } else if (getProtocol() == NetworkType.UDP) {
-                InetAddress addr = InetAddress.getByName(getHostName());
-                DatagramPacket p =
-                        new DatagramPacket(buff, buff.length, addr, getPort());
-                ((DatagramSocket) socket).send(p);
+            syncBase.resetReceivedSize();
+            IGXFrameDecoder decoder = frameDecoder;
+            if (decoder != null && frames != null) {
+                decodeFrames(decoder, buffer, length, info, frames,
+                        connection);
+            } else {
+                deliver(buffer, 0, length, info, connection);
             }
         }
-        this.bytesSent += buff.length;
-
     }
 
     /**
-     * Notify client from media state change.
+     * Handle received UDP datagram. In synchronous mode datagram is handled
+     * as any received data. Otherwise it's given to the waiting requests and
+     * the rest is returned so that datagrams can be delivered as a batch.
      * 
-     * @param state
-     *            New media state.
+     * @param buffer
+     *            Buffer where datagram is received.
+     * @param length
+     *            Length of the datagram.
+     * @param info
+     *            Sender information.
+     * @return Event argument that is delivered to the listeners or null if
+     *         there is nothing to deliver.
      */
-    void notifyMediaStateChange(final MediaState state) {
-        for (IGXMediaListener it : listeners) {
-            if (trace.ordinal() >= TraceLevel.ERROR.ordinal()) {
-                it.onTrace(this, new TraceEventArgs(TraceTypes.INFO, state));
-            }
-            it.onMediaStateChange(this, new MediaStateEventArgs(state));
+    final ReceiveEventArgs handleDatagram(final byte[] buffer,
+            final int length, final String info) {
+        if (getIsSynchronous()) {
+            handleReceivedData(buffer, length, info, null, null);
+            return null;
+        }
+        if (length == 0) {
+            return null;
         }
+        countReceived(buffer, length, info, null);
+        return takeFrame(buffer, 0, length, info, null);
     }
 
     /**
-     * Opens the connection. Protocol, Port and HostName must be set, before
-     * calling the Open method.
+     * Update received bytes and save received data.
      * 
-     * @see #port
-     * @see #hostName
-     * @see #protocol
-     * @see #server
-     * @see #close
+     * @param buffer
+     *            Buffer where data is received.
+     * @param length
+     *            Length of received data.
+     * @param info
+     *            Sender information.
+     * @param connection
+     *            Client connection in TCP/IP server mode. Otherwise null.
      */
-    @Override
-    public final void open() throws Exception {
-        close();
-        try {
-            synchronized (syncBase.getSync()) {
-                syncBase.resetLastPosition();
-            }
-            notifyMediaStateChange(MediaState.OPENING);
-            if (this.getServer()) {
-                if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
-                    notifyTrace(new TraceEventArgs(TraceTypes.INFO,
-                            "Server settings: Protocol: "
-                                    + this.getProtocol().toString() + " Port: "
-                                    + String.valueOf(getPort())));
-                }
-                if (getProtocol() == NetworkType.TCP) {
-                    socket = new ServerSocket(getPort());
-                    listenerThread = new ListenerThread(this, socket);
-                    listenerThread.start();
-                    listenerThread.waitUntilRun();
-                } else if (getProtocol() == NetworkType.UDP) {
-                    socket = new DatagramSocket(getPort());
-                    receiverThread = new ReceiveThread(this, socket);
-                    receiverThread.start();
-                    receiverThread.waitUntilRun();
-                }
-
-            } else {
-                // Create a stream-based, TCP socket using the InterNetwork
-                // Address Family.
-                if (getProtocol() == NetworkType.TCP) {
-                    // If value is zero OS wait time is used.
-                    if (connectionWaitTime == 0) {
-                        socket = new Socket(getHostName(), getPort());
-                    } else {
-                        socket = new Socket();
-                        ((Socket) socket).connect(
-                                new InetSocketAddress(getHostName(), getPort()),
-                                connectionWaitTime);
-                    }
-                } else if (getProtocol() == NetworkType.UDP) {
-                    socket = new DatagramSocket();
-                } else {
-                    throw new IllegalArgumentException("Protocol");
-                }
-                if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
-                    notifyTrace(new TraceEventArgs(TraceTypes.INFO,
-                            "Client settings: Protocol: "
-                                    + this.getProtocol().toString() + " Host: "
-                                    + getHostName() + " Port: "
-                                    + String.valueOf(getPort())));
-                }
-                receiverThread = new ReceiveThread(this, socket);
-                receiverThread.start();
-                receiverThread.waitUntilRun();
-            }
-            notifyMediaStateChange(MediaState.OPEN);
-        } catch (IOException e) {
-            close();
-            throw e;
+    private void countReceived(final byte[] buffer, final int length,
+            final String info, final GXNetConnection connection) {
+        statistics.received(length);
+        if (connection != null) {
+            connection.getStatistics().received(length);
         }
+        record(false, info, buffer, 0, length);
     }
 
-    @Override
-    public final void close() {
-        if (socket != null) {
-            if (getServer() && listenerThread != null) {
-                // Close all active sockets.
-                synchronized (tcpIpClients) {
-                    for (Closeable it : tcpIpClients) {
-                        if (it instanceof Socket) {
-                            try {
-                                it.close();
-                            } catch (IOException e) {
-                                // It's OK if this fails.
-                            }
-                        }
-                    }
-                }
-                listenerThread.interrupt();
-                listenerThread = null;
-            } else if (receiverThread != null) {
-                try {
-                    receiverThread.interrupt();
-                    if (socket instanceof Socket) {
-                        if (shutdownInput) {
-                            ((Socket) socket).shutdownInput();
-                        }
-                        ((Socket) socket).shutdownOutput();
-                        // Wait until the client has received server's ACK.
-                        receiverThread.join(10000);
-                    }
-                } catch (InterruptedException | IOException e) {
-                }
-                receiverThread = null;
-            }
-            try {
-                notifyMediaStateChange(MediaState.CLOSING);
-            } catch (RuntimeException ex) {
-                notifyError(ex);
-                throw ex;
-            } finally {
-                try {
-                    socket.close();
-                } catch (java.lang.Exception e) {
-                    // Ignore all errors on close.
-                }
-                socket = null;
-                notifyMediaStateChange(MediaState.CLOSED);
-                bytesSent = 0;
-                if (receiverThread != null) {
-                    receiverThread.resetBytesReceived();
-                }
-                syncBase.resetReceivedSize();
+    /**
+     * Save sent or received data to the flight recorder and capture file.
+     * 
+     * @param sent
+     *            Is data sent.
+     * @param peer
+     *            Receiver or sender information. Null if not known.
+     * @param data
+     *            Data.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     */
+    final void record(final boolean sent, final String peer,
+            final byte[] data, final int index, final int length) {
+        GXFlightRecorder recorder = flightRecorder;
+        if (recorder != null) {
+            recorder.record(sent, peer, data, index, length);
+        }
+        GXNetCapture c = capture;
+        if (c != null) {
+            String remote = peer;
+            if (remote == null) {
+                // Client sends always to the server.
+                remote = getHostName() + ":" + getPort();
             }
+            c.capture(sent, protocol == NetworkType.TCP, remote,
+                    getLocalPort(), data, index, length);
         }
     }
 
-    @Override
-    public final boolean isOpen() {
-        return socket != null;
+    /**
+     * @return Local port of the connection.
+     */
+    private int getLocalPort() {
+        Object tmp = socket;
+        if (tmp instanceof Socket) {
+            return ((Socket) tmp).getLocalPort();
+        }
+        if (tmp instanceof DatagramSocket) {
+            return ((DatagramSocket) tmp).getLocalPort();
+        }
+        if (tmp instanceof DatagramReceiver) {
+            return ((DatagramReceiver) tmp).getLocalPort();
+        }
+        return getPort();
     }
 
     /**
-     * Retrieves the used protocol.
+     * Count received frame.
      * 
-     * @return Protocol in use.
+     * @param connection
+     *            Client connection in TCP/IP server mode. Otherwise null.
      */
-    public final NetworkType getProtocol() {
-        return protocol;
+    private void frameReceived(final GXNetConnection connection) {
+        statistics.frameReceived();
+        if (connection != null) {
+            connection.getStatistics().frameReceived();
+        }
     }
 
     /**
-     * Sets the used protocol.
+     * Deliver received data to the listeners.
      * 
-     * @param value
-     *            Used protocol.
+     * @param buffer
+     *            Buffer where data is received.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     * @param info
+     *            Sender information.
+     * @param connection
+     *            Client connection in TCP/IP server mode. Otherwise null.
      */
-    public final void setProtocol(final NetworkType value) {
-        if (protocol != value) {
-            protocol = value;
-            notifyPropertyChanged("Protocol");
+    private void deliver(final byte[] buffer, final int index,
+            final int length, final String info,
+            final GXNetConnection connection) {
+        final ReceiveEventArgs e =
+                takeFrame(buffer, index, length, info, connection);
+        if (e == null) {
+            return;
+        }
+        Dispatcher d = dispatcher;
+        if (d != null) {
+            d.dispatch(getRequestKey(info), new Runnable() {
+                @Override
+                public void run() {
+                    received(e);
+                }
+            }, connection);
+        } else {
+            received(e);
         }
     }
 
     /**
-     * Retrieves the name or IP address of the host.
-     * 
-     * @return The name of the host.
+     * Count received frame and give it to the waiting requests.
      * 
-     * @see #open
-     * @see #port
-     * @see #protocol
+     * @param buffer
+     *            Buffer where data is received.
+     * @param index
+     *            Start index of the frame.
+     * @param length
+     *            Length of the frame.
+     * @param info
+     *            Sender information.
+     * @param connection
+     *            Client connection in TCP/IP server mode. Otherwise null.
+     * @return Event argument of the data that doesn't belong to the replies
+     *         or null if all data belongs to the replies.
      */
-    public final String getHostName() {
-        return hostName;
+    private ReceiveEventArgs takeFrame(final byte[] buffer, final int index,
+            final int length, final String info,
+            final GXNetConnection connection) {
+        frameReceived(connection);
+        int count = completeRequests(buffer, index, length, info);
+        if (count == length) {
+            return null;
+        }
+        return createReceiveEventArgs(buffer, index + count, length - count,
+                info);
     }
 
     /**
-     * Sets the name or IP address of the host.
+     * Notify listeners from received data and release pooled buffer.
      * 
-     * @param value
-     *            The name of the host.
+     * @param e
+     *            Received event argument.
      */
-    public final void setHostName(final String value) {
-        if (hostName == null || !hostName.equals(value)) {
-            hostName = value;
-            notifyPropertyChanged("HostName");
+    private void received(final ReceiveEventArgs e) {
+        try {
+            notifyReceived(e);
+        } finally {
+            if (e.getData() instanceof GXPooledBuffer) {
+                ((GXPooledBuffer) e.getData()).release();
+            }
         }
     }
 
     /**
-     * Retrieves or sets the host or server port number.
-     * 
-     * @return Host or server port number.
+     * Give received data to the requests that are waiting for the reply
+     * from the sender.
      * 
-     * @see #open
-     * @see #hostName
-     * @see #protocol
+     * @param buffer
+     *            Buffer where data is received.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     * @param info
+     *            Sender information.
+     * @return Amount of bytes that belong to the replies.
      */
-    public final int getPort() {
-        return port;
+    private int completeRequests(final byte[] buffer, final int index,
+            final int length, final String info) {
+        if (requests.isEmpty()) {
+            return 0;
+        }
+        RequestQueue q = requests.get(getRequestKey(info));
+        if (q == null) {
+            return 0;
+        }
+        int count = q.offer(buffer, index, length, requestCorrelator);
+        if (count != 0 && trace == TraceLevel.VERBOSE) {
+            notifyTrace(new gurux.common.TraceEventArgs(TraceTypes.RECEIVED,
+                    buffer, index, count));
+        }
+        return count;
     }
 
     /**
-     * Retrieves or sets the host or server port number.
+     * Get key of the requests that are sent to the target.
      * 
-     * @param value
-     *            Host or server port number
-     * @see #open
-     * @see #hostName
-     * @see #protocol
+     * @param info
+     *            Target or sender information.
+     * @return Request key.
      */
-    public final void setPort(final int value) {
-        if (port != value) {
-            port = value;
-            notifyPropertyChanged("Port");
+    private String getRequestKey(final String info) {
+        // Client receives replies only from the server.
+        if (!getServer() || info == null) {
+            return "";
         }
+        return info;
     }
 
     /**
+     * Send data and wait reply asynchronously. Future is completed from the
+     * receiving thread when the end of packet is found or wanted amount of
+     * bytes is received. If neither is given, the first received data is the
+     * reply. Several requests can be sent to the same target without waiting
+     * the replies. Replies are given to the requests in the order the
+     * requests were sent, or by the correlation ID if request correlator is
+     * used. Data that does not belong to any reply is delivered to the
+     * listeners.
+     * <p>
+     * Replies are received only when the media is not in synchronous mode.
+     * </p>
      * 
-     * Is server mode used.
-     * 
-     * @see #open
-     * @return Is server mode used.
+     * @param <T>
+     *            Reply type. byte[] or String.
+     * @param data
+     *            Data to send.
+     * @param target
+     *            Receiver in server mode. Ignored in client mode.
+     * @param args
+     *            Receive parameters. Reply is also set to the parameters.
+     * @return Future that is completed with the reply. Future fails with
+     *         TimeoutException if reply is not received during the wait
+     *         time.
+     * @throws IllegalArgumentException
+     *             Request correlator is used and the request does not have
+     *             a correlation ID.
      */
-    public final boolean getServer() {
-        return server;
+    public final <T> CompletableFuture<T> sendAndReceive(final Object data,
+            final String target, final ReceiveParameters<T> args) {
+        IGXRequestCorrelator correlator = requestCorrelator;
+        Object id = null;
+        if (correlator != null) {
+            id = correlator
+                    .getRequestId(GXSynchronousMediaBase.getAsByteArray(data));
+            if (id == null) {
+                // Reply could never be matched to the request.
+                throw new IllegalArgumentException(
+                        "Request does not have a correlation ID.");
+            }
+        }
+        final PendingRequest<T> r = new PendingRequest<T>(data, id, args);
+        final String key;
+        try {
+            if (getServer() && protocol == NetworkType.UDP) {
+                key = getSenderInfo(resolve(target));
+            } else {
+                key = getRequestKey(target);
+            }
+        } catch (Exception e) {
+            r.fail(e);
+            return r.getFuture();
+        }
+        RequestQueue q = requests.get(key);
+        if (q == null) {
+            q = new RequestQueue(this, target);
+            RequestQueue tmp = requests.putIfAbsent(key, q);
+            if (tmp != null) {
+                q = tmp;
+            }
+        }
+        final RequestQueue queue = q;
+        if (args.getWaitTime() >= 0) {
+            r.setTimeout(getTimer().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    queue.remove(r);
+                    r.fail(new TimeoutException());
+                }
+            }, args.getWaitTime(), TimeUnit.MILLISECONDS));
+        }
+        queue.add(r);
+        return r.getFuture();
     }
 
     /**
+     * Fail requests that are waiting for the reply.
      * 
-     * Is server mode used.
-     * 
-     * @param value
-     *            Is server mode used.
-     * @see #open
+     * @param key
+     *            Request key. Null if all requests are failed.
+     * @param ex
+     *            Occurred exception.
      */
-    public final void setServer(final boolean value) {
-        if (server != value) {
-            server = value;
-            notifyPropertyChanged("Server");
+    private void failRequests(final String key, final Exception ex) {
+        for (Map.Entry<String, RequestQueue> it : requests.entrySet()) {
+            if (key == null || key.equals(it.getKey())) {
+                it.getValue().fail(ex);
+                requests.remove(it.getKey(), it.getValue());
+            }
         }
     }
 
     /**
-     * Gets how long (milliseconds) server answer is waited when connection is
-     * made. Operating system time is used if value is zero.
-     * 
-     * @return Wait time in milliseconds.
+     * @return Timer for request timeouts.
      */
-    public final int getConnectionWaitTime() {
-        return connectionWaitTime;
+    private static ScheduledExecutorService getTimer() {
+        return RequestTimer.TIMER;
     }
 
     /**
-     * Sets how long (milliseconds) server answer is waited when connection is
-     * made. Operating system time is used if value is zero.
+     * Copy received data to the event argument. Data is copied to the pooled
+     * buffer if buffer pool is used.
      * 
-     * @param value
+     * @param buffer
+     *            Buffer where data is received.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     * @param info
+     *            Sender information.
+     * @return Receive event argument.
+     */
+    private ReceiveEventArgs createReceiveEventArgs(final byte[] buffer,
+            final int index, final int length, final String info) {
+        if (bufferPool != null) {
+            GXPooledBuffer data = bufferPool.acquire(length);
+            System.arraycopy(buffer, index, data.getArray(), 0, length);
+            if (trace == TraceLevel.VERBOSE) {
+                notifyTrace(new gurux.common.TraceEventArgs(
+                        TraceTypes.RECEIVED, buffer, index, length));
+            }
+            return new ReceiveEventArgs(data, info);
+        }
+        byte[] data = new byte[length];
+        System.arraycopy(buffer, index, data, 0, length);
+        if (trace == TraceLevel.VERBOSE) {
+            notifyTrace(
+                    new gurux.common.TraceEventArgs(TraceTypes.RECEIVED, data));
+        }
+        return new ReceiveEventArgs(data, info);
+    }
+
+    /**
+     * Deliver complete frames to the listeners and save incomplete frame.
+     * 
+     * @param decoder
+     *            Frame decoder.
+     * @param buffer
+     *            Buffer where data is received.
+     * @param length
+     *            Length of received data.
+     * @param info
+     *            Sender information.
+     * @param frames
+     *            Incomplete frame of the connection.
+     * @param connection
+     *            Client connection in TCP/IP server mode. Otherwise null.
+     */
+    private void decodeFrames(final IGXFrameDecoder decoder,
+            final byte[] buffer, final int length, final String info,
+            final FrameBuffer frames, final GXNetConnection connection) {
+        byte[] data;
+        int count;
+        IGXIncrementalFrameDecoder incremental = null;
+        if (decoder instanceof IGXIncrementalFrameDecoder) {
+            incremental = (IGXIncrementalFrameDecoder) decoder;
+        }
+        // Amount of bytes that are already searched from the first frame.
+        int scanned = frames.getScanned();
+        // Frames are decoded straight from the received data if there is no
+        // incomplete frame.
+        if (frames.size() == 0) {
+            data = buffer;
+            count = length;
+        } else {
+            frames.append(buffer, 0, length);
+            data = frames.getData();
+            count = frames.size();
+        }
+        int pos = 0;
+        while (pos != count) {
+            int len;
+            try {
+                if (incremental != null) {
+                    len = incremental.getFrameLength(data, pos, count - pos,
+                            scanned);
+                } else {
+                    len = decoder.getFrameLength(data, pos, count - pos);
+                }
+            } catch (RuntimeException ex) {
+                // Invalid frame. Received data is discarded.
+                frames.clear();
+                notifyError(ex);
+                return;
+            }
+            if (len <= 0 || len > count - pos) {
+                break;
+            }
+            deliver(data, pos, len, info, connection);
+            pos += len;
+            scanned = 0;
+        }
+        if (data == buffer) {
+            if (pos != count) {
+                frames.append(buffer, pos, count - pos);
+            }
+        } else {
+            frames.remove(pos);
+        }
+        frames.setScanned(count - pos);
+        if (frames.size() > maxReceiveBufferSize) {
+            frames.clear();
+            notifyError(new IllegalArgumentException("Frame is too long."));
+        }
+    }
+
+    /**
+     * Notify clients from trace events.
+     * 
+     * @param e
+     *            Trace event argument.
+     */
+    final void notifyTrace(final TraceEventArgs e) {
+        for (IGXMediaListener it : listeners) {
+            it.onTrace(this, e);
+        }
+    }
+
+    @Override
+    public final int getConfigurableSettings() {
+        return configurableSettings;
+    }
+
+    @Override
+    public final void setConfigurableSettings(final int value) {
+        this.configurableSettings = value;
+    }
+
+    @Override
+    public final boolean properties(final javax.swing.JFrame parent) {
+        GXSettings dlg = new GXSettings(parent, true, this, locale);
+        dlg.pack();
+        dlg.setVisible(true);
+        return dlg.isAccepted();
+    }
+
+    /**
+     * Displays the copyright of the control, user license, and version
+     * information, in a dialog box.
+     */
+    public final void aboutBox() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @param target
+     *            IP address of the receiver (optional). Reply data is received
+     *            through OnReceived event. In TCP/IP server mode nothing is
+     *            sent if the client is not connected.
+     */
+    @Override
+    public final void send(final Object data, final String target)
+            throws Exception {
+        byte[] buff = getSendData(data);
+        if (getServer()) {
+            if (getProtocol() == NetworkType.TCP) {
+                GXNetConnection c = connections.get(target);
+                if (c == null) {
+                    // Client has disconnected.
+                    return;
+                }
+                c.send(buff);
+                c.getStatistics().sent(buff.length, 1);
+            } else {
+                sendDatagram(buff, resolve(target));
+            }
+            record(true, target, buff, 0, buff.length);
+        } else {
+            if (getProtocol() == NetworkType.TCP) {
+                ((Socket) socket).getOutputStream().write(buff);
+            } else if (getProtocol() == NetworkType.UDP) {
+                sendDatagram(buff, resolve(getHostName(), getPort()));
+            }
+            record(true, null, buff, 0, buff.length);
+        }
+        statistics.sent(buff.length, 1);
+    }
+
+    /**
+     * Send UDP datagram.
+     * 
+     * @param buff
+     *            Sent data.
+     * @param addr
+     *            Receiver address.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private void sendDatagram(final byte[] buff, final InetSocketAddress addr)
+            throws Exception {
+        if (socket instanceof DatagramReceiver) {
+            ((DatagramReceiver) socket).send(ByteBuffer.wrap(buff), addr);
+        } else {
+            ((DatagramSocket) socket)
+                    .send(new DatagramPacket(buff, buff.length, addr));
+        }
+    }
+
+    /**
+     * Send UDP datagrams in one call. If only one data item is given, it's
+     * sent to all the targets and it's converted to bytes only once.
+     * Otherwise data and targets must have the same length.
+     * 
+     * @param data
+     *            Sent data items.
+     * @param targets
+     *            IP addresses and ports of the receivers. In client mode
+     *            this can be null and data is sent to the server.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    public final void sendBatch(final Object[] data, final String[] targets)
+            throws Exception {
+        if (protocol != NetworkType.UDP) {
+            throw new IllegalArgumentException(
+                    "Batch send can be used only with UDP connection.");
+        }
+        if (targets == null && getServer()) {
+            throw new IllegalArgumentException("Invalid targets.");
+        }
+        int count = data.length;
+        if (targets != null) {
+            count = targets.length;
+            if (data.length != 1 && data.length != count) {
+                throw new IllegalArgumentException(
+                        "Data and targets must have the same length.");
+            }
+        }
+        byte[] buff = null;
+        ByteBuffer bb = null;
+        DatagramPacket p = null;
+        InetSocketAddress addr;
+        for (int pos = 0; pos != count; ++pos) {
+            if (buff == null || data.length != 1) {
+                buff = getSendData(data[pos]);
+                bb = null;
+            }
+            if (targets == null) {
+                addr = resolve(getHostName(), getPort());
+            } else {
+                addr = resolve(targets[pos]);
+            }
+            if (socket instanceof DatagramReceiver) {
+                if (bb == null) {
+                    bb = ByteBuffer.wrap(buff);
+                } else {
+                    bb.rewind();
+                }
+                ((DatagramReceiver) socket).send(bb, addr);
+            } else {
+                if (p == null) {
+                    p = new DatagramPacket(buff, buff.length, addr);
+                } else {
+                    p.setData(buff);
+                    p.setSocketAddress(addr);
+                }
+                ((DatagramSocket) socket).send(p);
+            }
+            statistics.sent(buff.length, 1);
+            record(true, targets == null ? null : targets[pos], buff, 0,
+                    buff.length);
+        }
+    }
+
+    /**
+     * Resolve UDP target address.
+     * 
+     * @param target
+     *            IP address or host name and port number separated with
+     *            colon.
+     * @return Resolved address.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    final InetSocketAddress resolve(final String target) throws IOException {
+        AddressCache<String, InetSocketAddress> cache = resolvedAddresses;
+        InetSocketAddress addr = null;
+        if (cache != null) {
+            addr = cache.get(target);
+        }
+        if (addr == null) {
+            String info;
+            if (target.startsWith("/")) {
+                info = target.substring(1);
+            } else {
+                info = target;
+            }
+            int index = info.lastIndexOf(":");
+            if (index == -1) {
+                throw new RuntimeException("Port is missing.");
+            }
+            addr = new InetSocketAddress(
+                    InetAddress.getByName(info.substring(0, index)),
+                    Integer.parseInt(info.substring(1 + index)));
+            if (cache != null) {
+                cache.put(target, addr);
+            }
+        }
+        return addr;
+    }
+
+    /**
+     * Resolve UDP target address.
+     * 
+     * @param host
+     *            IP address or host name.
+     * @param portNo
+     *            Port number.
+     * @return Resolved address.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private InetSocketAddress resolve(final String host, final int portNo)
+            throws IOException {
+        AddressCache<String, InetSocketAddress> cache = resolvedAddresses;
+        String key = host + ":" + portNo;
+        InetSocketAddress addr = null;
+        if (cache != null) {
+            addr = cache.get(key);
+        }
+        if (addr == null) {
+            addr = new InetSocketAddress(InetAddress.getByName(host), portNo);
+            if (cache != null) {
+                cache.put(key, addr);
+            }
+        }
+        return addr;
+    }
+
+    /**
+     * Get sender information of received UDP datagram.
+     * 
+     * @param address
+     *            Sender address.
+     * @return Host name or IP address and port number separated with colon.
+     */
+    final String getSenderInfo(final InetSocketAddress address) {
+        String host;
+        if (!reverseLookup) {
+            host = address.getAddress().getHostAddress();
+        } else {
+            AddressCache<InetAddress, String> cache = resolvedNames;
+            host = null;
+            if (cache != null) {
+                host = cache.get(address.getAddress());
+            }
+            if (host == null) {
+                host = address.getHostName();
+                if (cache != null) {
+                    cache.put(address.getAddress(), host);
+                }
+            }
+        }
+        return host + ":" + String.valueOf(address.getPort());
+    }
+
+    /**
+     * Create caches for resolved addresses.
+     */
+    private void createAddressCaches() {
+        if (addressCacheSize == 0 || addressCacheTime == 0) {
+            resolvedAddresses = null;
+            resolvedNames = null;
+        } else {
+            resolvedAddresses = new AddressCache<String, InetSocketAddress>(
+                    addressCacheSize, addressCacheTime);
+            resolvedNames = new AddressCache<InetAddress, String>(
+                    addressCacheSize, addressCacheTime);
+        }
+    }
+
+    /**
+     * Send data to the connected TCP/IP client in server mode.
+     * 
+     * @param data
+     *            Data to send.
+     * @param target
+     *            Client connection.
+     * @throws Exception
+     *             Occurred exception.
+     * @see #getConnection(String)
+     */
+    public final void sendTo(final Object data, final GXNetConnection target)
+            throws Exception {
+        if (target == null) {
+            throw new IllegalArgumentException("Invalid target.");
+        }
+        byte[] buff = getSendData(data);
+        target.send(buff);
+        target.getStatistics().sent(buff.length, 1);
+        statistics.sent(buff.length, 1);
+        record(true, target.getInfo(), buff, 0, buff.length);
+    }
+
+    /**
+     * Send same data to all connected TCP/IP clients in server mode.
+     * 
+     * @param data
+     *            Data to send.
+     * @return Failed clients and occurred exceptions. Empty if data was sent
+     *         to all clients.
+     * @throws InterruptedException
+     *             If thread is interrupted while waiting sends to complete.
+     * @see #sendToMany
+     */
+    public final Map<GXNetConnection, Exception> sendToAll(final Object data)
+            throws InterruptedException {
+        return sendToMany(data, connections.values());
+    }
+
+    /**
+     * Send same data to several connected TCP/IP clients in server mode.
+     * Data is converted to bytes only once. Data is queued to clients that
+     * are served by selector event loops or that use queued write. Other
+     * clients are written in parallel by broadcast threads. Failure of one
+     * client does not stop sending to other clients.
+     * 
+     * @param data
+     *            Data to send.
+     * @param targets
+     *            Client connections.
+     * @return Failed clients and occurred exceptions. Empty if data was sent
+     *         to all clients.
+     * @throws InterruptedException
+     *             If thread is interrupted while waiting sends to complete.
+     * @see #setBroadcastThreadCount
+     */
+    public final Map<GXNetConnection, Exception> sendToMany(final Object data,
+            final Collection<? extends GXNetConnection> targets)
+            throws InterruptedException {
+        if (!getServer() || protocol != NetworkType.TCP) {
+            throw new IllegalArgumentException(
+                    "Broadcast can be used only in TCP/IP server mode.");
+        }
+        final byte[] buff = getSendData(data);
+        final Map<GXNetConnection, Exception> failures =
+                new ConcurrentHashMap<GXNetConnection, Exception>();
+        List<GXNetConnection> blocking = new ArrayList<GXNetConnection>();
+        int count = 0;
+        for (GXNetConnection it : targets) {
+            ++count;
+            if (it.isQueued()) {
+                send(buff, it, failures);
+            } else {
+                blocking.add(it);
+            }
+        }
+        if (!blocking.isEmpty()) {
+            // Each thread writes its own share of the clients.
+            int threads = Math.min(broadcastThreadCount, blocking.size());
+            int size = (blocking.size() + threads - 1) / threads;
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+            for (int pos = 0; pos < blocking.size(); pos += size) {
+                final List<GXNetConnection> part = blocking.subList(pos,
+                        Math.min(pos + size, blocking.size()));
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (GXNetConnection it : part) {
+                            send(buff, it, failures);
+                        }
+                        return null;
+                    }
+                });
+            }
+            getWriteExecutor().invokeAll(tasks);
+        }
+        statistics.sent((long) buff.length * (count - failures.size()),
+                count - failures.size());
+        statistics.error(failures.size());
+        return failures;
+    }
+
+    /**
+     * Send data to the client and save the occurred exception.
+     * 
+     * @param buff
+     *            Data to send.
+     * @param target
+     *            Client connection.
+     * @param failures
+     *            Failed clients and occurred exceptions.
+     */
+    private void send(final byte[] buff, final GXNetConnection target,
+            final Map<GXNetConnection, Exception> failures) {
+        try {
+            target.send(buff);
+            target.getStatistics().sent(buff.length, 1);
+            record(true, target.getInfo(), buff, 0, buff.length);
+        } catch (Exception e) {
+            target.getStatistics().error(1);
+            failures.put(target, e);
+        }
+    }
+
+    /**
+     * @return Threads that write broadcast and queued data.
+     */
+    final synchronized ExecutorService getWriteExecutor() {
+        if (writeExecutor == null) {
+            final boolean virtual = engine == NetworkEngine.VIRTUAL_THREAD;
+            writeExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread t = NetThreads.newThread(r, "GXNet writer",
+                            virtual);
+                    if (!virtual) {
+                        t.setDaemon(true);
+                    }
+                    return t;
+                }
+            });
+        }
+        return writeExecutor;
+    }
+
+    /**
+     * Check connection and convert sent data to byte array.
+     * 
+     * @param data
+     *            Data to send.
+     * @return Data as byte array.
+     */
+    private byte[] getSendData(final Object data) {
+        if (socket == null) {
+            throw new RuntimeException("Invalid connection.");
+        }
+        if (trace == TraceLevel.VERBOSE) {
+            notifyTrace(new TraceEventArgs(TraceTypes.SENT, data));
+        }
+        // Reset last position if end of packet is used.
+        synchronized (syncBase.getSync()) {
+            syncBase.resetLastPosition();
+        }
+        byte[] buff = GXSynchronousMediaBase.getAsByteArray(data);
+        if (buff == null) {
+            throw new IllegalArgumentException(
+                    "Data send failed. Invalid data.");
+        }
+        return buff;
+    }
+
+    /**
+     * Notify client from media state change.
+     * 
+     * @param state
+     *            New media state.
+     */
+    void notifyMediaStateChange(final MediaState state) {
+        for (IGXMediaListener it : listeners) {
+            if (trace.ordinal() >= TraceLevel.ERROR.ordinal()) {
+                it.onTrace(this, new TraceEventArgs(TraceTypes.INFO, state));
+            }
+            it.onMediaStateChange(this, new MediaStateEventArgs(state));
+        }
+    }
+
+    /**
+     * Opens the connection. Protocol, Port and HostName must be set, before
+     * calling the Open method.
+     * 
+     * @see #port
+     * @see #hostName
+     * @see #protocol
+     * @see #server
+     * @see #close
+     */
+    @Override
+    public final void open() throws Exception {
+        close();
+        if (syncBaseSize != receiveBufferSize) {
+            syncBase = new GXSynchronousMediaBase(receiveBufferSize);
+            syncBase.setTrace(trace);
+            syncBaseSize = receiveBufferSize;
+        }
+        if (engine == NetworkEngine.VIRTUAL_THREAD
+                && !NetThreads.isVirtualSupported()) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads require Java 21 or later.");
+        }
+        if (managementName != null) {
+            management = GXNetManagement.register(this, managementName);
+        }
+        try {
+            synchronized (syncBase.getSync()) {
+                syncBase.resetLastPosition();
+                if (eopMatcher != null) {
+                    eopMatcher.reset();
+                }
+            }
+            notifyMediaStateChange(MediaState.OPENING);
+            if (this.getServer()) {
+                admission.clear();
+                if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
+                    notifyTrace(new TraceEventArgs(TraceTypes.INFO,
+                            "Server settings: Protocol: "
+                                    + this.getProtocol().toString() + " Port: "
+                                    + String.valueOf(getPort())));
+                }
+                if (getProtocol() == NetworkType.TCP
+                        && engine == NetworkEngine.SELECTOR) {
+                    SelectorServer s =
+                            new SelectorServer(this, selectorCount);
+                    socket = s;
+                    s.open(getPort());
+                } else if (getProtocol() == NetworkType.TCP) {
+                    socket = new ServerSocket(getPort(), acceptBacklog);
+                    listenerThread = new ListenerThread(this, socket);
+                    listenerThread.start();
+                    listenerThread.waitUntilRun();
+                } else if (getProtocol() == NetworkType.UDP
+                        && engine == NetworkEngine.SELECTOR) {
+                    DatagramReceiver r = new DatagramReceiver(this);
+                    socket = r;
+                    r.open(getPort());
+                } else if (getProtocol() == NetworkType.UDP) {
+                    socket = new DatagramSocket(getPort());
+                    receiverThread = new ReceiveThread(this, socket);
+                    receiverThread.start();
+                    receiverThread.waitUntilRun();
+                }
+
+            } else {
+                // Create a stream-based, TCP socket using the InterNetwork
+                // Address Family.
+                if (getProtocol() == NetworkType.TCP) {
+                    // If value is zero OS wait time is used.
+                    if (connectionWaitTime == 0) {
+                        socket = new Socket(getHostName(), getPort());
+                    } else {
+                        socket = new Socket();
+                        ((Socket) socket).connect(
+                                new InetSocketAddress(getHostName(), getPort()),
+                                connectionWaitTime);
+                    }
+                } else if (getProtocol() == NetworkType.UDP
+                        && engine == NetworkEngine.SELECTOR) {
+                    DatagramReceiver r = new DatagramReceiver(this);
+                    socket = r;
+                    r.open(0);
+                } else if (getProtocol() == NetworkType.UDP) {
+                    socket = new DatagramSocket();
+                } else {
+                    throw new IllegalArgumentException("Protocol");
+                }
+                if (trace.ordinal() >= TraceLevel.INFO.ordinal()) {
+                    notifyTrace(new TraceEventArgs(TraceTypes.INFO,
+                            "Client settings: Protocol: "
+                                    + this.getProtocol().toString() + " Host: "
+                                    + getHostName() + " Port: "
+                                    + String.valueOf(getPort())));
+                }
+                if (!(socket instanceof DatagramReceiver)) {
+                    receiverThread = new ReceiveThread(this, socket);
+                    receiverThread.start();
+                    receiverThread.waitUntilRun();
+                }
+            }
+            notifyMediaStateChange(MediaState.OPEN);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public final void close() {
+        synchronized (this) {
+            if (management != null) {
+                management.unregister();
+                management = null;
+            }
+            if (writeExecutor != null) {
+                writeExecutor.shutdown();
+                writeExecutor = null;
+            }
+        }
+        failRequests(null, new IOException("Connection closed."));
+        if (socket != null) {
+            ListenerThread listener = listenerThread;
+            ReceiveThread receiver = receiverThread;
+            if (getServer() && listenerThread != null) {
+                // Close all active sockets.
+                for (GXNetConnection it : connections.values()) {
+                    try {
+                        it.close();
+                    } catch (IOException e) {
+                        // It's OK if this fails.
+                    }
+                }
+                listenerThread.interrupt();
+                listenerThread = null;
+            } else if (receiverThread != null) {
+                try {
+                    receiverThread.interrupt();
+                    if (socket instanceof Socket) {
+                        if (shutdownInput) {
+                            ((Socket) socket).shutdownInput();
+                        }
+                        ((Socket) socket).shutdownOutput();
+                        // Wait until the client has received server's ACK.
+                        receiverThread.join(10000);
+                    }
+                } catch (InterruptedException | IOException e) {
+                }
+                receiverThread = null;
+            }
+            try {
+                notifyMediaStateChange(MediaState.CLOSING);
+            } catch (RuntimeException ex) {
+                notifyError(ex);
+                throw ex;
+            } finally {
+                try {
+                    socket.close();
+                } catch (java.lang.Exception e) {
+                    // Ignore all errors on close.
+                }
+                socket = null;
+                // Socket is released when blocking accept or receive returns.
+                try {
+                    if (listener != null) {
+                        listener.join(10000);
+                    }
+                    if (receiver != null) {
+                        receiver.join(10000);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                notifyMediaStateChange(MediaState.CLOSED);
+                statistics.resetBytes();
+                syncBase.resetReceivedSize();
+            }
+        }
+    }
+
+    @Override
+    public final boolean isOpen() {
+        return socket != null;
+    }
+
+    /**
+     * Check is client connection still alive. Connection is not alive if
+     * the server has closed it.
+     * 
+     * @return True, if connection is open and data is received from it.
+     */
+    final boolean isAlive() {
+        ReceiveThread tmp = receiverThread;
+        return socket != null && (tmp == null || tmp.isAlive());
+    }
+
+    /**
+     * Retrieves the used protocol.
+     * 
+     * @return Protocol in use.
+     */
+    public final NetworkType getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * Sets the used protocol.
+     * 
+     * @param value
+     *            Used protocol.
+     */
+    public final void setProtocol(final NetworkType value) {
+        if (protocol != value) {
+            protocol = value;
+            notifyPropertyChanged("Protocol");
+        }
+    }
+
+    /**
+     * Retrieves the name or IP address of the host.
+     * 
+     * @return The name of the host.
+     * 
+     * @see #open
+     * @see #port
+     * @see #protocol
+     */
+    public final String getHostName() {
+        return hostName;
+    }
+
+    /**
+     * Sets the name or IP address of the host.
+     * 
+     * @param value
+     *            The name of the host.
+     */
+    public final void setHostName(final String value) {
+        if (hostName == null || !hostName.equals(value)) {
+            hostName = value;
+            notifyPropertyChanged("HostName");
+        }
+    }
+
+    /**
+     * Retrieves or sets the host or server port number.
+     * 
+     * @return Host or server port number.
+     * 
+     * @see #open
+     * @see #hostName
+     * @see #protocol
+     */
+    public final int getPort() {
+        return port;
+    }
+
+    /**
+     * Retrieves or sets the host or server port number.
+     * 
+     * @param value
+     *            Host or server port number
+     * @see #open
+     * @see #hostName
+     * @see #protocol
+     */
+    public final void setPort(final int value) {
+        if (port != value) {
+            port = value;
+            notifyPropertyChanged("Port");
+        }
+    }
+
+    /**
+     * 
+     * Is server mode used.
+     * 
+     * @see #open
+     * @return Is server mode used.
+     */
+    public final boolean getServer() {
+        return server;
+    }
+
+    /**
+     * 
+     * Is server mode used.
+     * 
+     * @param value
+     *            Is server mode used.
+     * @see #open
+     */
+    public final void setServer(final boolean value) {
+        if (server != value) {
+            server = value;
+            notifyPropertyChanged("Server");
+        }
+    }
+
+    /**
+     * Gets how long (milliseconds) server answer is waited when connection is
+     * made. Operating system time is used if value is zero.
+     * 
+     * @return Wait time in milliseconds.
+     */
+    public final int getConnectionWaitTime() {
+        return connectionWaitTime;
+    }
+
+    /**
+     * Sets how long (milliseconds) server answer is waited when connection is
+     * made. Operating system time is used if value is zero.
+     * 
+     * @param value
      *            Wait time in milliseconds.
      */
     public final void setConnectionWaitTime(final int value) {
@@ -751,317 +2135,1135 @@ public class GXNet implements IGXMedia2, AutoCloseable {
     }
 
     @Override
-    public final <T> boolean receive(final ReceiveParameters<T> args) {
-        return syncBase.receive(args);
+    public final <T> boolean receive(final ReceiveParameters<T> args) {
+        return syncBase.receive(args);
+    }
+
+    /**
+     * Sent byte count.
+     * 
+     * @see #getBytesReceived
+     * @see #resetByteCounters
+     */
+    @Override
+    public final long getBytesSent() {
+        return statistics.getBytesSent();
+    }
+
+    /**
+     * Received byte count. In server mode this is the sum of all the
+     * clients.
+     * 
+     * @see #getBytesSent
+     * @see #resetByteCounters
+     */
+    @Override
+    public final long getBytesReceived() {
+        return statistics.getBytesReceived();
+    }
+
+    /**
+     * Resets BytesReceived and BytesSent counters.
+     * 
+     * @see #getBytesSent
+     * @see #getBytesReceived
+     */
+    @Override
+    public final void resetByteCounters() {
+        statistics.resetBytes();
+    }
+
+    /**
+     * Get traffic counters of the media. In server mode counters are the
+     * sum of all the clients.
+     * 
+     * @return Traffic counters.
+     * @see GXNetConnection#getStatistics()
+     */
+    public final GXNetStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Retrieves maximum count of connected clients.
+     * 
+     * @return Maximum count of connected clients. Zero if not limited.
+     * @see #setAdmissionMode
+     */
+    public final int getMaxClientCount() {
+        return maxClientCount;
+    }
+
+    /**
+     * Sets maximum count of connected clients in TCP/IP server mode.
+     * 
+     * @param value
+     *            Maximum count of connected clients. Zero if not limited.
+     * @see #setAdmissionMode
+     */
+    public final void setMaxClientCount(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid max client count.");
+        }
+        maxClientCount = value;
+        Object tmp = socket;
+        if (tmp instanceof SelectorServer) {
+            ((SelectorServer) tmp).resumeAccept();
+        }
+    }
+
+    /**
+     * Retrieves maximum count of connected clients from one IP address.
+     * 
+     * @return Maximum count of clients from one IP address. Zero if not
+     *         limited.
+     */
+    public final int getMaxAddressClientCount() {
+        return maxAddressClientCount;
+    }
+
+    /**
+     * Sets maximum count of connected clients from one IP address in TCP/IP
+     * server mode. Clients over the limit are always rejected.
+     * 
+     * @param value
+     *            Maximum count of clients from one IP address. Zero if not
+     *            limited.
+     */
+    public final void setMaxAddressClientCount(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(
+                    "Invalid max address client count.");
+        }
+        maxAddressClientCount = value;
+    }
+
+    /**
+     * Gets what TCP/IP server does when maximum client count is reached.
+     * 
+     * @return Admission mode.
+     * @see #setMaxClientCount
+     */
+    public final AdmissionMode getAdmissionMode() {
+        return admissionMode;
+    }
+
+    /**
+     * Sets what TCP/IP server does when maximum client count is reached.
+     * Rejected clients are closed and listeners are notified with
+     * {@link ConnectionEventArgs#getReason()}. Queued clients are not
+     * accepted until a connected client disconnects.
+     * 
+     * @param value
+     *            Admission mode.
+     */
+    public final void setAdmissionMode(final AdmissionMode value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Invalid admission mode.");
+        }
+        admissionMode = value;
+    }
+
+    /**
+     * Gets maximum amount of clients that are waiting in the accept backlog
+     * of the server socket.
+     * 
+     * @return Accept backlog. Zero if operating system default is used.
+     */
+    public final int getAcceptBacklog() {
+        return acceptBacklog;
+    }
+
+    /**
+     * Sets maximum amount of clients that are waiting in the accept backlog
+     * of the server socket. Operating system might limit the value. Value
+     * is taken into use when the server is opened.
+     * 
+     * @param value
+     *            Accept backlog. Zero if operating system default is used.
+     */
+    public final void setAcceptBacklog(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid accept backlog.");
+        }
+        acceptBacklog = value;
+    }
+
+    /**
+     * Media settings as a XML string.
+     */
+    @Override
+    public final String getSettings() {
+        StringBuilder sb = new StringBuilder();
+        String nl = System.getProperty("line.separator");
+        if (server) {
+            sb.append("<Server>");
+            if (server) {
+                sb.append("1");
+            } else {
+                sb.append("0");
+            }
+            sb.append("</Server>");
+            sb.append(nl);
+        }
+        if (hostName != null && !hostName.isEmpty()) {
+            sb.append("<IP>");
+            sb.append(hostName);
+            sb.append("</IP>");
+            sb.append(nl);
+        }
+        if (port != 0) {
+            sb.append("<Port>");
+            sb.append(String.valueOf(port));
+            sb.append("</Port>");
+            sb.append(nl);
+        }
+        if (protocol != NetworkType.TCP) {
+            sb.append("<Protocol>");
+            sb.append(protocol.ordinal());
+            sb.append("</Protocol>");
+            sb.append(nl);
+        }
+        if (receiveBufferSize != ReceiveThread.RECEIVE_BUFFER_SIZE) {
+            sb.append("<ReceiveBufferSize>");
+            sb.append(String.valueOf(receiveBufferSize));
+            sb.append("</ReceiveBufferSize>");
+            sb.append(nl);
+        }
+        if (adaptiveReceiveBuffer) {
+            sb.append("<AdaptiveReceiveBuffer>1</AdaptiveReceiveBuffer>");
+            sb.append(nl);
+        }
+        if (maxReceiveBufferSize != ReceiveThread.MAX_RECEIVE_BUFFER_SIZE) {
+            sb.append("<MaxReceiveBufferSize>");
+            sb.append(String.valueOf(maxReceiveBufferSize));
+            sb.append("</MaxReceiveBufferSize>");
+            sb.append(nl);
+        }
+        if (!reverseLookup) {
+            sb.append("<ReverseLookup>0</ReverseLookup>");
+            sb.append(nl);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public final void setSettings(final String value) {
+        // Reset to default values.
+        server = false;
+        hostName = "";
+        port = 0;
+        protocol = NetworkType.TCP;
+        receiveBufferSize = ReceiveThread.RECEIVE_BUFFER_SIZE;
+        adaptiveReceiveBuffer = false;
+        maxReceiveBufferSize = ReceiveThread.MAX_RECEIVE_BUFFER_SIZE;
+        reverseLookup = true;
+        if (value != null && !value.isEmpty()) {
+            try {
+                DocumentBuilderFactory factory =
+                        DocumentBuilderFactory.newInstance();
+                DocumentBuilder builder = factory.newDocumentBuilder();
+                StringBuilder sb = new StringBuilder();
+                if (value.startsWith("<?xml version=\"1.0\"?>")) {
+                    sb.append(value);
+                } else {
+                    String nl = System.getProperty("line.separator");
+                    sb.append("<?xml version=\"1.0\"?>\r\n");
+                    sb.append(nl);
+                    sb.append("<Net>");
+                    sb.append(value);
+                    sb.append(nl);
+                    sb.append("</Net>");
+                }
+                InputSource is =
+                        new InputSource(new StringReader(sb.toString()));
+                Document doc = builder.parse(is);
+                doc.getDocumentElement().normalize();
+                NodeList nList = doc.getChildNodes();
+                if (nList.getLength() != 1) {
+                    throw new IllegalArgumentException(
+                            "Invalid XML root node.");
+                }
+                nList = nList.item(0).getChildNodes();
+                for (int pos = 0; pos < nList.getLength(); ++pos) {
+                    Node it = nList.item(pos);
+                    if (it.getNodeType() == Node.ELEMENT_NODE) {
+                        if ("Server".equalsIgnoreCase(it.getNodeName())) {
+                            setServer(true);
+                        } else if ("IP".equalsIgnoreCase(it.getNodeName())) {
+                            setHostName(it.getFirstChild().getNodeValue());
+                        } else if ("Port".equalsIgnoreCase(it.getNodeName())) {
+                            setPort(Integer.parseInt(
+                                    it.getFirstChild().getNodeValue()));
+                        } else if ("Protocol"
+                                .equalsIgnoreCase(it.getNodeName())) {
+                            setProtocol(NetworkType.values()[Integer.parseInt(
+                                    it.getFirstChild().getNodeValue())]);
+                        } else if ("ReceiveBufferSize"
+                                .equalsIgnoreCase(it.getNodeName())) {
+                            setReceiveBufferSize(Integer.parseInt(
+                                    it.getFirstChild().getNodeValue()));
+                        } else if ("AdaptiveReceiveBuffer"
+                                .equalsIgnoreCase(it.getNodeName())) {
+                            setAdaptiveReceiveBuffer("1".equals(
+                                    it.getFirstChild().getNodeValue()));
+                        } else if ("MaxReceiveBufferSize"
+                                .equalsIgnoreCase(it.getNodeName())) {
+                            setMaxReceiveBufferSize(Integer.parseInt(
+                                    it.getFirstChild().getNodeValue()));
+                        } else if ("ReverseLookup"
+                                .equalsIgnoreCase(it.getNodeName())) {
+                            setReverseLookup(!"0".equals(
+                                    it.getFirstChild().getNodeValue()));
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public final void copy(final Object target) {
+        GXNet tmp = (GXNet) target;
+        setPort(tmp.getPort());
+        setHostName(tmp.getHostName());
+        setProtocol(tmp.getProtocol());
+    }
+
+    @Override
+    public final String getName() {
+        String tmp;
+        tmp = getHostName() + " " + getPort();
+        if (getProtocol() == NetworkType.UDP) {
+            tmp += "UDP";
+        } else {
+            tmp += "TCP/IP";
+        }
+        return tmp;
+    }
+
+    @Override
+    public final String getMediaType() {
+        return "Net";
+    }
+
+    @Override
+    public final Object getSynchronous() {
+        synchronized (this) {
+            int[] tmp = new int[] { synchronous };
+            GXSync obj = new GXSync(tmp);
+            synchronous = tmp[0];
+            return obj;
+        }
+    }
+
+    @Override
+    public final boolean getIsSynchronous() {
+        synchronized (this) {
+            return synchronous != 0;
+        }
+    }
+
+    @Override
+    public final void resetSynchronousBuffer() {
+        synchronized (syncBase.getSync()) {
+            syncBase.resetReceivedSize();
+            if (eopMatcher != null) {
+                eopMatcher.reset();
+            }
+        }
+    }
+
+    @Override
+    public final void validate() {
+        if (getPort() == 0) {
+            // Localize strings.
+            ResourceBundle bundle =
+                    ResourceBundle.getBundle("resources", locale);
+            throw new RuntimeException(bundle.getString("InvalidPortName"));
+        }
+        if (getHostName() == null || "".equals(getHostName())) {
+            ResourceBundle bundle =
+                    ResourceBundle.getBundle("resources", locale);
+            throw new RuntimeException(bundle.getString("InvalidHostName"));
+        }
+    }
+
+    @Override
+    public final Object getEop() {
+        return eop;
+    }
+
+    @Override
+    public final void setEop(final Object value) {
+        EopMatcher tmp = EopMatcher.compile(value);
+        synchronized (syncBase.getSync()) {
+            eop = value;
+            eopMatcher = tmp;
+        }
+    }
+
+    @Override
+    public final void addListener(final IGXMediaListener listener) {
+        synchronized (listenerSync) {
+            listeners = add(listeners, listener);
+            if (listener instanceof IGXNetListener) {
+                netListeners = add(netListeners, (IGXNetListener) listener);
+            }
+        }
+    }
+
+    @Override
+    public final void removeListener(final IGXMediaListener listener) {
+        synchronized (listenerSync) {
+            listeners = remove(listeners, listener);
+            if (listener instanceof IGXNetListener) {
+                netListeners = remove(netListeners, listener);
+            }
+        }
     }
 
     /**
-     * Sent byte count.
+     * Returns copy of the listeners where listener is added to the end.
      * 
-     * @see #getBytesReceived
-     * @see #resetByteCounters
+     * @param array
+     *            Current listeners.
+     * @param listener
+     *            Added listener.
+     * @param <T>
+     *            Listener type.
+     * @return New listeners.
      */
+    private static <T> T[] add(final T[] array, final T listener) {
+        T[] tmp = Arrays.copyOf(array, array.length + 1);
+        tmp[array.length] = listener;
+        return tmp;
+    }
+
+    /**
+     * Returns copy of the listeners where first occurrence of the listener
+     * is removed.
+     * 
+     * @param array
+     *            Current listeners.
+     * @param listener
+     *            Removed listener.
+     * @param <T>
+     *            Listener type.
+     * @return New listeners or current listeners if listener is not found.
+     */
+    private static <T> T[] remove(final T[] array, final Object listener) {
+        for (int pos = 0; pos != array.length; ++pos) {
+            if (array[pos].equals(listener)) {
+                T[] tmp = Arrays.copyOf(array, array.length - 1);
+                System.arraycopy(array, pos + 1, tmp, pos,
+                        array.length - pos - 1);
+                return tmp;
+            }
+        }
+        return array;
+    }
+
     @Override
-    public final long getBytesSent() {
-        return bytesSent;
+    public int getReceiveDelay() {
+        return receiveDelay;
+    }
+
+    @Override
+    public void setReceiveDelay(final int value) {
+        receiveDelay = value;
+    }
+
+    @Override
+    public int getAsyncWaitTime() {
+        return asyncWaitTime;
+    }
+
+    @Override
+    public void setAsyncWaitTime(final int value) {
+        asyncWaitTime = value;
+    }
+
+    @Override
+    public Object getAsyncWaitHandle() {
+        return null;
+    }
+
+    /**
+     * @return Used locale.
+     */
+    public Locale getLocale() {
+        return locale;
     }
 
     /**
-     * Received byte count.
      * 
-     * @see #bytesSent
-     * @see #resetByteCounters
+     * @param value
+     *            Used locale.
      */
+    public void setLocale(final Locale value) {
+        locale = value;
+    }
+
     @Override
-    public final long getBytesReceived() {
-        if (receiverThread == null) {
-            return 0;
+    public String toString() {
+        return "GXNet " + getName();
+    }
+
+    /**
+     * 
+     * @return Returns true if socket is shutdown on close.
+     */
+    public boolean isShutdownInput() {
+        return shutdownInput;
+    }
+
+    /**
+     * 
+     * @param value
+     *            Returns true if socket is shutdown on close.
+     */
+    public void setShutdownInput(final boolean value) {
+        shutdownInput = value;
+    }
+
+    /**
+     * Gets how network connections are served.
+     * 
+     * @return Used network engine.
+     */
+    public final NetworkEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Sets how network connections are served. Selector engine is used only
+     * in TCP/IP server mode and virtual threads require Java 21 or later.
+     * Value is taken into use when the connection is opened.
+     * 
+     * @param value
+     *            Used network engine.
+     */
+    public final void setEngine(final NetworkEngine value) {
+        if (engine != value) {
+            engine = value;
+            notifyPropertyChanged("Engine");
+        }
+    }
+
+    /**
+     * Gets name of the management bean.
+     * 
+     * @return Management name. Null if bean is not registered.
+     * @see GXNetMXBean
+     */
+    public final String getManagementName() {
+        return managementName;
+    }
+
+    /**
+     * Sets name of the management bean. When name is set, bean is
+     * registered to the platform MBean server as
+     * {@code gurux.net:type=GXNet,name="value"} when the media is opened and
+     * unregistered when it's closed. Name must be unique in the JVM.
+     * 
+     * @param value
+     *            Management name. Null if bean is not registered.
+     * @see GXNetMXBean
+     */
+    public final void setManagementName(final String value) {
+        managementName = value;
+    }
+
+    /**
+     * Gets amount of selector event loops. Default value is amount of
+     * available processors.
+     * 
+     * @return Amount of selector event loops.
+     * @see #setEngine
+     */
+    public final int getSelectorCount() {
+        return selectorCount;
+    }
+
+    /**
+     * Sets amount of selector event loops.
+     * 
+     * @param value
+     *            Amount of selector event loops.
+     * @see #setEngine
+     */
+    public final void setSelectorCount(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Invalid selector count.");
+        }
+        selectorCount = value;
+    }
+
+    /**
+     * Gets amount of threads that write broadcast data to the clients that
+     * are served by threads. Default value is amount of available
+     * processors.
+     * 
+     * @return Amount of broadcast threads.
+     * @see #sendToMany
+     */
+    public final int getBroadcastThreadCount() {
+        return broadcastThreadCount;
+    }
+
+    /**
+     * Sets amount of threads that write broadcast data to the clients that
+     * are served by threads.
+     * 
+     * @param value
+     *            Amount of broadcast threads.
+     * @see #sendToMany
+     */
+    public final void setBroadcastThreadCount(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid broadcast thread count.");
+        }
+        broadcastThreadCount = value;
+    }
+
+    /**
+     * Gets request correlator that matches replies to the pipelined
+     * requests.
+     * 
+     * @return Request correlator or null, if replies are in the same order
+     *         as requests.
+     * @see #sendAndReceive
+     */
+    public final IGXRequestCorrelator getRequestCorrelator() {
+        return requestCorrelator;
+    }
+
+    /**
+     * Sets request correlator that matches replies to the pipelined
+     * requests. By default replies are matched in the order the requests
+     * were sent.
+     * 
+     * @param value
+     *            Request correlator or null, if replies are in the same order
+     *            as requests.
+     * @see #sendAndReceive
+     */
+    public final void setRequestCorrelator(final IGXRequestCorrelator value) {
+        requestCorrelator = value;
+    }
+
+    /**
+     * Gets maximum amount of requests that are waiting for the reply from
+     * one target.
+     * 
+     * @return Pipeline depth. Zero if not limited.
+     * @see #sendAndReceive
+     */
+    public final int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * Sets maximum amount of requests that are waiting for the reply from
+     * one target. Other requests are sent when replies are received. Value
+     * one sends the next request only after previous reply is received.
+     * 
+     * @param value
+     *            Pipeline depth. Zero if not limited.
+     * @see #sendAndReceive
+     */
+    public final void setPipelineDepth(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid pipeline depth.");
+        }
+        pipelineDepth = value;
+    }
+
+    /**
+     * Gets is data queued and written by writer threads when TCP/IP client
+     * is served by a thread. Data is always queued when client is served by
+     * selector event loops.
+     * 
+     * @return True, if data is queued.
+     * @see GXNetConnection#isWritable()
+     */
+    public final boolean getQueuedWrite() {
+        return queuedWrite;
+    }
+
+    /**
+     * Sets is data queued and written by writer threads when TCP/IP client
+     * is served by a thread. When data is queued, a slow client does not
+     * block the sender. Write errors close the connection. Value is used
+     * for clients that connect after this is set.
+     * <p>
+     * Writes are still blocking, so each client that has queued data holds
+     * a writer thread until its data is written. Writer threads are not
+     * limited. With many slow clients use {@link NetworkEngine#SELECTOR},
+     * or {@link NetworkEngine#VIRTUAL_THREAD} where writer threads are
+     * virtual.
+     * </p>
+     * 
+     * @param value
+     *            True, if data is queued.
+     */
+    public final void setQueuedWrite(final boolean value) {
+        queuedWrite = value;
+    }
+
+    /**
+     * Gets amount of pending bytes when connection becomes unwritable.
+     * 
+     * @return High watermark in bytes.
+     * @see GXNetConnection#isWritable()
+     */
+    public final int getWriteHighWatermark() {
+        return writeHighWatermark;
+    }
+
+    /**
+     * Sets amount of pending bytes when connection becomes unwritable.
+     * 
+     * @param value
+     *            High watermark in bytes.
+     */
+    public final void setWriteHighWatermark(final int value) {
+        if (value < writeLowWatermark) {
+            throw new IllegalArgumentException(
+                    "High watermark is smaller than low watermark.");
+        }
+        writeHighWatermark = value;
+    }
+
+    /**
+     * Gets amount of pending bytes when connection becomes writable again.
+     * 
+     * @return Low watermark in bytes.
+     * @see GXNetConnection#isWritable()
+     */
+    public final int getWriteLowWatermark() {
+        return writeLowWatermark;
+    }
+
+    /**
+     * Sets amount of pending bytes when connection becomes writable again.
+     * 
+     * @param value
+     *            Low watermark in bytes.
+     */
+    public final void setWriteLowWatermark(final int value) {
+        if (value < 0 || value > writeHighWatermark) {
+            throw new IllegalArgumentException("Invalid low watermark.");
+        }
+        writeLowWatermark = value;
+    }
+
+    /**
+     * Gets how data is read from TCP/IP stream when connection is served by
+     * a thread.
+     * 
+     * @return Receive mode.
+     * @see #getReceiveDelay
+     * @see #getCoalesceTime
+     */
+    public final ReceiveMode getReceiveMode() {
+        return receiveMode;
+    }
+
+    /**
+     * Sets how data is read from TCP/IP stream when connection is served by
+     * a thread.
+     * 
+     * @param value
+     *            Receive mode.
+     * @see #setReceiveDelay
+     * @see #setCoalesceTime
+     */
+    public final void setReceiveMode(final ReceiveMode value) {
+        if (receiveMode != value) {
+            receiveMode = value;
+            notifyPropertyChanged("ReceiveMode");
+        }
+    }
+
+    /**
+     * Gets how long (milliseconds) data that arrives after the first read is
+     * coalesced to the same received data in immediate receive mode. Data is
+     * handled immediately if value is zero.
+     * 
+     * @return Coalesce time in milliseconds.
+     * @see #getReceiveMode
+     */
+    public final int getCoalesceTime() {
+        return coalesceTime;
+    }
+
+    /**
+     * Sets how long (milliseconds) data that arrives after the first read is
+     * coalesced to the same received data in immediate receive mode. Data is
+     * handled immediately if value is zero.
+     * 
+     * @param value
+     *            Coalesce time in milliseconds.
+     * @see #setReceiveMode
+     */
+    public final void setCoalesceTime(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid coalesce time.");
+        }
+        coalesceTime = value;
+    }
+
+    /**
+     * Gets size of receive buffer. This is the maximum size of received UDP
+     * datagram and the maximum amount of data that is read from TCP/IP
+     * stream at once. Default value is 1518 bytes.
+     * 
+     * @return Size of receive buffer in bytes.
+     */
+    public final int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * Sets size of receive buffer. This is the maximum size of received UDP
+     * datagram and the maximum amount of data that is read from TCP/IP
+     * stream at once. Value is taken into use when the connection is opened.
+     * 
+     * @param value
+     *            Size of receive buffer in bytes.
+     */
+    public final void setReceiveBufferSize(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Invalid receive buffer size.");
         }
-        return receiverThread.getBytesReceived();
+        if (receiveBufferSize != value) {
+            receiveBufferSize = value;
+            notifyPropertyChanged("ReceiveBufferSize");
+        }
+    }
+
+    /**
+     * Gets is size of TCP/IP receive buffer adapted to received data. When
+     * a read fills the buffer, the buffer grows up to maximum receive buffer
+     * size. When reads use less than half of the buffer, the buffer is
+     * shrunk. When nothing is received in a second, the buffer returns to
+     * receive buffer size. Selector engine uses a shared buffer of each
+     * event loop, so this is used only with thread engines.
+     * 
+     * @return True, if receive buffer is adaptive.
+     * @see #getMaxReceiveBufferSize
+     */
+    public final boolean getAdaptiveReceiveBuffer() {
+        return adaptiveReceiveBuffer;
     }
 
     /**
-     * Resets BytesReceived and BytesSent counters.
+     * Sets is size of TCP/IP receive buffer adapted to received data. UDP
+     * always uses receive buffer size, because a datagram that doesn't fit
+     * to the buffer is truncated.
      * 
-     * @see #bytesSent
-     * @see #getBytesReceived
+     * @param value
+     *            True, if receive buffer is adaptive.
+     * @see #setMaxReceiveBufferSize
      */
-    @Override
-    public final void resetByteCounters() {
-        bytesSent = 0;
-        if (receiverThread != null) {
-            receiverThread.resetBytesReceived();
+    public final void setAdaptiveReceiveBuffer(final boolean value) {
+        if (adaptiveReceiveBuffer != value) {
+            adaptiveReceiveBuffer = value;
+            notifyPropertyChanged("AdaptiveReceiveBuffer");
         }
     }
 
     /**
-     * Retrieves maximum count of connected clients.
+     * Gets maximum size of adaptive receive buffer. Default value is 65536
+     * bytes.
      * 
-     * @return Maximum count of connected clients.
+     * @return Maximum size of adaptive receive buffer in bytes.
+     * @see #getAdaptiveReceiveBuffer
      */
-    public final int getMaxClientCount() {
-        return maxClientCount;
+    public final int getMaxReceiveBufferSize() {
+        return maxReceiveBufferSize;
     }
 
     /**
-     * Sets maximum count of connected clients.
+     * Sets maximum size of adaptive receive buffer.
      * 
      * @param value
-     *            Maximum count of connected clients.
+     *            Maximum size of adaptive receive buffer in bytes.
+     * @see #setAdaptiveReceiveBuffer
      */
-    public final void setMaxClientCount(final int value) {
-        maxClientCount = value;
+    public final void setMaxReceiveBufferSize(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid maximum receive buffer size.");
+        }
+        if (maxReceiveBufferSize != value) {
+            maxReceiveBufferSize = value;
+            notifyPropertyChanged("MaxReceiveBufferSize");
+        }
     }
 
     /**
-     * Media settings as a XML string.
+     * Gets is host name of UDP sender resolved with reverse DNS lookup. If
+     * not, IP address of the sender is used in sender information.
+     * 
+     * @return True, if reverse DNS lookup is used.
      */
-    @Override
-    public final String getSettings() {
-        StringBuilder sb = new StringBuilder();
-        String nl = System.getProperty("line.separator");
-        if (server) {
-            sb.append("<Server>");
-            if (server) {
-                sb.append("1");
-            } else {
-                sb.append("0");
-            }
-            sb.append("</Server>");
-            sb.append(nl);
-        }
-        if (hostName != null && !hostName.isEmpty()) {
-            sb.append("<IP>");
-            sb.append(hostName);
-            sb.append("</IP>");
-            sb.append(nl);
-        }
-        if (port != 0) {
-            sb.append("<Port>");
-            sb.append(String.valueOf(port));
-            sb.append("</Port>");
-            sb.append(nl);
-        }
-        if (protocol != NetworkType.TCP) {
-            sb.append("<Protocol>");
-            sb.append(protocol.ordinal());
-            sb.append("</Protocol>");
-            sb.append(nl);
-        }
-        return sb.toString();
+    public final boolean getReverseLookup() {
+        return reverseLookup;
     }
 
-    @Override
-    public final void setSettings(final String value) {
-        // Reset to default values.
-        server = false;
-        hostName = "";
-        port = 0;
-        protocol = NetworkType.TCP;
-        if (value != null && !value.isEmpty()) {
-            try {
-                DocumentBuilderFactory factory =
-                        DocumentBuilderFactory.newInstance();
-                DocumentBuilder builder = factory.newDocumentBuilder();
-                StringBuilder sb = new StringBuilder();
-                if (value.startsWith("<?xml version=\"1.0\"?>")) {
-                    sb.append(value);
-                } else {
-                    String nl = System.getProperty("line.separator");
-                    sb.append("<?xml version=\"1.0\"?>\r\n");
-                    sb.append(nl);
-                    sb.append("<Net>");
-                    sb.append(value);
-                    sb.append(nl);
-                    sb.append("</Net>");
-                }
-                InputSource is =
-                        new InputSource(new StringReader(sb.toString()));
-                Document doc = builder.parse(is);
-                doc.getDocumentElement().normalize();
-                NodeList nList = doc.getChildNodes();
-                if (nList.getLength() != 1) {
-                    throw new IllegalArgumentException(
-                            "Invalid XML root node.");
-                }
-                nList = nList.item(0).getChildNodes();
-                for (int pos = 0; pos < nList.getLength(); ++pos) {
-                    Node it = nList.item(pos);
-                    if (it.getNodeType() == Node.ELEMENT_NODE) {
-                        if ("Server".equalsIgnoreCase(it.getNodeName())) {
-                            setServer(true);
-                        } else if ("IP".equalsIgnoreCase(it.getNodeName())) {
-                            setHostName(it.getFirstChild().getNodeValue());
-                        } else if ("Port".equalsIgnoreCase(it.getNodeName())) {
-                            setPort(Integer.parseInt(
-                                    it.getFirstChild().getNodeValue()));
-                        } else if ("Protocol"
-                                .equalsIgnoreCase(it.getNodeName())) {
-                            setProtocol(NetworkType.values()[Integer.parseInt(
-                                    it.getFirstChild().getNodeValue())]);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e.getMessage());
-            }
+    /**
+     * Sets is host name of UDP sender resolved with reverse DNS lookup. If
+     * not, IP address of the sender is used in sender information. Reverse
+     * lookup is used by default.
+     * 
+     * @param value
+     *            True, if reverse DNS lookup is used.
+     */
+    public final void setReverseLookup(final boolean value) {
+        if (reverseLookup != value) {
+            reverseLookup = value;
+            notifyPropertyChanged("ReverseLookup");
         }
     }
 
-    @Override
-    public final void copy(final Object target) {
-        GXNet tmp = (GXNet) target;
-        setPort(tmp.getPort());
-        setHostName(tmp.getHostName());
-        setProtocol(tmp.getProtocol());
+    /**
+     * Gets maximum amount of resolved UDP addresses and host names that are
+     * cached.
+     * 
+     * @return Maximum amount of cached addresses.
+     */
+    public final int getAddressCacheSize() {
+        return addressCacheSize;
     }
 
-    @Override
-    public final String getName() {
-        String tmp;
-        tmp = getHostName() + " " + getPort();
-        if (getProtocol() == NetworkType.UDP) {
-            tmp += "UDP";
-        } else {
-            tmp += "TCP/IP";
+    /**
+     * Sets maximum amount of resolved UDP addresses and host names that are
+     * cached. Addresses are not cached if value is zero.
+     * 
+     * @param value
+     *            Maximum amount of cached addresses.
+     */
+    public final void setAddressCacheSize(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid address cache size.");
         }
-        return tmp;
+        addressCacheSize = value;
+        createAddressCaches();
     }
 
-    @Override
-    public final String getMediaType() {
-        return "Net";
-    }
-
-    @Override
-    public final Object getSynchronous() {
-        synchronized (this) {
-            int[] tmp = new int[] { synchronous };
-            GXSync obj = new GXSync(tmp);
-            synchronous = tmp[0];
-            return obj;
-        }
+    /**
+     * Gets how long (milliseconds) resolved UDP addresses and host names are
+     * cached.
+     * 
+     * @return Cache time in milliseconds.
+     */
+    public final int getAddressCacheTime() {
+        return addressCacheTime;
     }
 
-    @Override
-    public final boolean getIsSynchronous() {
-        synchronized (this) {
-            return synchronous != 0;
+    /**
+     * Sets how long (milliseconds) resolved UDP addresses and host names are
+     * cached. Addresses are not cached if value is zero.
+     * 
+     * @param value
+     *            Cache time in milliseconds.
+     */
+    public final void setAddressCacheTime(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid address cache time.");
         }
+        addressCacheTime = value;
+        createAddressCaches();
     }
 
-    @Override
-    public final void resetSynchronousBuffer() {
-        synchronized (syncBase.getSync()) {
-            syncBase.resetReceivedSize();
-        }
+    /**
+     * Gets frame decoder that is used to deliver complete frames from TCP/IP
+     * stream in asynchronous mode.
+     * 
+     * @return Frame decoder or null, if data is delivered as it's read.
+     */
+    public final IGXFrameDecoder getFrameDecoder() {
+        return frameDecoder;
     }
 
-    @Override
-    public final void validate() {
-        if (getPort() == 0) {
-            // Localize strings.
-            ResourceBundle bundle =
-                    ResourceBundle.getBundle("resources", locale);
-            throw new RuntimeException(bundle.getString("InvalidPortName"));
-        }
-        if (getHostName() == null || "".equals(getHostName())) {
-            ResourceBundle bundle =
-                    ResourceBundle.getBundle("resources", locale);
-            throw new RuntimeException(bundle.getString("InvalidHostName"));
-        }
+    /**
+     * Sets frame decoder that is used to deliver complete frames from TCP/IP
+     * stream in asynchronous mode.
+     * <p>
+     * Incomplete frame is kept for each connection until the rest of it is
+     * received and each complete frame is delivered with its own onReceived.
+     * Incomplete frame that grows over maximum receive buffer size is
+     * discarded. UDP datagrams are delivered as they are received.
+     * </p>
+     * 
+     * @param value
+     *            Frame decoder or null, if data is delivered as it's read.
+     * @see GXFixedHeaderDecoder
+     * @see GXLengthPrefixDecoder
+     * @see GXDelimiterDecoder
+     */
+    public final void setFrameDecoder(final IGXFrameDecoder value) {
+        frameDecoder = value;
     }
 
-    @Override
-    public final Object getEop() {
-        return eop;
+    /**
+     * Gets buffer pool that is used for received data in asynchronous mode.
+     * 
+     * @return Buffer pool or null, if pooling is not used.
+     */
+    public final GXBufferPool getBufferPool() {
+        return bufferPool;
     }
 
-    @Override
-    public final void setEop(final Object value) {
-        eop = value;
+    /**
+     * Sets buffer pool that is used for received data in asynchronous mode.
+     * <p>
+     * When buffer pool is used, data of ReceiveEventArgs is GXPooledBuffer
+     * instead of a byte array. Buffer is released after onReceived is
+     * called. Listener must retain the buffer if data is used after that.
+     * </p>
+     * 
+     * @param value
+     *            Buffer pool or null, if pooling is not used.
+     * @see GXPooledBuffer#retain()
+     */
+    public final void setBufferPool(final GXBufferPool value) {
+        bufferPool = value;
     }
 
-    @Override
-    public final void addListener(final IGXMediaListener listener) {
-        synchronized (netListeners) {
-            listeners.add(listener);
-            if (listener instanceof IGXNetListener) {
-                netListeners.add((IGXNetListener) listener);
-            }
+    /**
+     * Gets executor that runs listener callbacks of received data.
+     * 
+     * @return Executor or null, if listeners are called from the receiving
+     *         thread.
+     */
+    public final Executor getDispatcher() {
+        Dispatcher d = dispatcher;
+        if (d == null) {
+            return null;
         }
+        return d.getExecutor();
     }
 
-    @Override
-    public final void removeListener(final IGXMediaListener listener) {
-        synchronized (netListeners) {
-            listeners.remove(listener);
-            if (listener instanceof IGXNetListener) {
-                netListeners.remove((IGXNetListener) listener);
-            }
+    /**
+     * Sets executor that runs listener callbacks of received data in
+     * asynchronous mode.
+     * <p>
+     * Received data and disconnect of a connection are notified one at the
+     * time in the order they are received. Different connections are
+     * notified in parallel. Client has only one connection. UDP datagrams
+     * that are received with selector engine are notified as batches, one
+     * for each sender. Replies of sendAndReceive are completed in the
+     * receiving thread.
+     * </p>
+     * <p>
+     * When dispatch queue of the connection is full, receiving thread waits,
+     * so data is not read faster than listeners can handle it. With
+     * selector engine reading of the connection is paused instead and the
+     * selector thread continues serving the other connections. Frames of
+     * one read are queued even if the queue becomes full. Executor is not
+     * shut down when media is closed.
+     * </p>
+     * 
+     * @param value
+     *            Executor or null, if listeners are called from the
+     *            receiving thread.
+     * @see #setDispatchQueueSize
+     * @see #getDispatchQueueDepth
+     */
+    public final void setDispatcher(final Executor value) {
+        if (value == null) {
+            dispatcher = null;
+        } else {
+            dispatcher = new Dispatcher(this, value);
         }
     }
 
-    @Override
-    public int getReceiveDelay() {
-        return receiveDelay;
-    }
-
-    @Override
-    public void setReceiveDelay(final int value) {
-        receiveDelay = value;
-    }
-
-    @Override
-    public int getAsyncWaitTime() {
-        return asyncWaitTime;
+    /**
+     * Gets maximum amount of queued callbacks for each connection. Default
+     * value is 1024.
+     * 
+     * @return Maximum amount of queued callbacks.
+     */
+    public final int getDispatchQueueSize() {
+        return dispatchQueueSize;
     }
 
-    @Override
-    public void setAsyncWaitTime(final int value) {
-        asyncWaitTime = value;
+    /**
+     * Sets maximum amount of queued callbacks for each connection.
+     * 
+     * @param value
+     *            Maximum amount of queued callbacks.
+     */
+    public final void setDispatchQueueSize(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid dispatch queue size.");
+        }
+        dispatchQueueSize = value;
     }
 
-    @Override
-    public Object getAsyncWaitHandle() {
-        return null;
+    /**
+     * Gets amount of callbacks that are waiting for the dispatcher.
+     * 
+     * @return Amount of queued callbacks.
+     * @see #setDispatcher
+     */
+    public final int getDispatchQueueDepth() {
+        Dispatcher d = dispatcher;
+        if (d == null) {
+            return 0;
+        }
+        return d.getDepth();
     }
 
     /**
-     * @return Used locale.
+     * Gets flight recorder that keeps the latest sent and received data.
+     * 
+     * @return Flight recorder or null, if data is not recorded.
      */
-    public Locale getLocale() {
-        return locale;
+    public final GXFlightRecorder getFlightRecorder() {
+        return flightRecorder;
     }
 
     /**
+     * Sets flight recorder that keeps the latest sent and received data.
+     * <p>
+     * Data is recorded in all trace levels without notifying the
+     * listeners. Content of the recorder is written to its error dump file
+     * when an error occurs.
+     * </p>
      * 
      * @param value
-     *            Used locale.
+     *            Flight recorder or null, if data is not recorded.
      */
-    public void setLocale(final Locale value) {
-        locale = value;
-    }
-
-    @Override
-    public String toString() {
-        return "GXNet " + getName();
+    public final void setFlightRecorder(final GXFlightRecorder value) {
+        flightRecorder = value;
     }
 
     /**
+     * Gets capture that writes sent and received data to a pcapng file.
      * 
-     * @return Returns true if socket is shutdown on close.
+     * @return Capture or null, if data is not captured.
      */
-    public boolean isShutdownInput() {
-        return shutdownInput;
+    public final GXNetCapture getCapture() {
+        return capture;
     }
 
     /**
+     * Sets capture that writes sent and received data to a pcapng file.
+     * Capture is not closed when media is closed.
      * 
      * @param value
-     *            Returns true if socket is shutdown on close.
+     *            Capture or null, if data is not captured.
      */
-    public void setShutdownInput(final boolean value) {
-        shutdownInput = value;
+    public final void setCapture(final GXNetCapture value) {
+        capture = value;
     }
 }
\ No newline at end of file
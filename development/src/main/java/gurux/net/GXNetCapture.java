@@ -0,0 +1,552 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes sent and received data to a pcapng file that can be opened with
+ * Wireshark.
+ * <p>
+ * Data is copied to a bounded queue and written by a background thread, so
+ * capture does not slow down the receiving threads. If the queue is full,
+ * packets are dropped and counted. IP and TCP or UDP headers are generated
+ * from the addresses and ports of the peers. Local address is not known and
+ * it's shown as 0.0.0.0 or ::. TCP sequence numbers are counted for each
+ * peer, so Wireshark can reassemble the stream. The same capture can be
+ * shared between several media.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ * @see GXNet#setCapture(GXNetCapture)
+ */
+public final class GXNetCapture implements AutoCloseable {
+    /**
+     * Default maximum amount of queued packets.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+    /**
+     * Raw IP link type.
+     */
+    private static final int LINKTYPE_RAW = 101;
+    /**
+     * Maximum amount of payload in one generated packet.
+     */
+    private static final int MAX_PAYLOAD = 65000;
+    /**
+     * Maximum amount of peers whose TCP sequence numbers are kept.
+     */
+    private static final int MAX_PEERS = 65536;
+
+    /**
+     * Captured packet.
+     */
+    private static final class Packet {
+        /**
+         * Time in microseconds.
+         */
+        private final long time;
+        /**
+         * Is data sent.
+         */
+        private final boolean sent;
+        /**
+         * Is TCP used.
+         */
+        private final boolean tcp;
+        /**
+         * Peer IP address and port.
+         */
+        private final String peer;
+        /**
+         * Local port.
+         */
+        private final int localPort;
+        /**
+         * Data.
+         */
+        private final byte[] data;
+
+        /**
+         * Constructor.
+         * 
+         * @param sentValue
+         *            Is data sent.
+         * @param tcpValue
+         *            Is TCP used.
+         * @param peerValue
+         *            Peer IP address and port.
+         * @param port
+         *            Local port.
+         * @param value
+         *            Data.
+         */
+        Packet(final boolean sentValue, final boolean tcpValue,
+                final String peerValue, final int port, final byte[] value) {
+            time = System.currentTimeMillis() * 1000;
+            sent = sentValue;
+            tcp = tcpValue;
+            peer = peerValue;
+            localPort = port;
+            data = value;
+        }
+    }
+
+    /**
+     * Packet that stops the writer.
+     */
+    private static final Packet STOP = new Packet(false, false, null, 0,
+            new byte[0]);
+
+    /**
+     * Output stream.
+     */
+    private final OutputStream stream;
+    /**
+     * Queued packets.
+     */
+    private final BlockingQueue<Packet> queue;
+    /**
+     * Writer thread.
+     */
+    private final Thread thread;
+    /**
+     * Amount of written packets.
+     */
+    private final AtomicLong captured = new AtomicLong();
+    /**
+     * Amount of dropped packets.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * Is capture closed.
+     */
+    private volatile boolean closed;
+    /**
+     * Error that stopped the writer. Null if no error has occurred.
+     */
+    private volatile IOException error;
+
+    /**
+     * Resolved peer addresses. Used only by the writer thread.
+     */
+    private final Map<String, InetAddress> addresses =
+            new HashMap<String, InetAddress>();
+    /**
+     * Next TCP sequence numbers of the peers. First item is for sent data
+     * and second for received data. Used only by the writer thread.
+     */
+    private final Map<String, int[]> sequences = new HashMap<String, int[]>();
+    /**
+     * Write buffer. Used only by the writer thread.
+     */
+    private final ByteBuffer block = ByteBuffer.allocate(128 + MAX_PAYLOAD)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Constructor.
+     * 
+     * @param file
+     *            Capture file. Existing file is overwritten.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    public GXNetCapture(final String file) throws IOException {
+        this(new FileOutputStream(file), DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            Output stream. Stream is closed when capture is closed.
+     * @param queueSize
+     *            Maximum amount of queued packets.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    public GXNetCapture(final OutputStream out, final int queueSize)
+            throws IOException {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Invalid queue size.");
+        }
+        stream = new BufferedOutputStream(out, 65536);
+        queue = new ArrayBlockingQueue<Packet>(queueSize);
+        writeHeader();
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "GXNet capture");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return Amount of written packets.
+     */
+    public long getCaptured() {
+        return captured.get();
+    }
+
+    /**
+     * @return Amount of packets that are dropped because the queue was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Queue sent or received data.
+     * 
+     * @param sent
+     *            Is data sent.
+     * @param tcp
+     *            Is TCP used.
+     * @param peer
+     *            Peer IP address or host name and port.
+     * @param localPort
+     *            Local port.
+     * @param data
+     *            Data.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     */
+    void capture(final boolean sent, final boolean tcp, final String peer,
+            final int localPort, final byte[] data, final int index,
+            final int length) {
+        if (closed || error != null) {
+            dropped.incrementAndGet();
+            return;
+        }
+        byte[] tmp = new byte[length];
+        System.arraycopy(data, index, tmp, 0, length);
+        if (!queue.offer(new Packet(sent, tcp, peer, localPort, tmp))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Write section header and interface description blocks.
+     * 
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private void writeHeader() throws IOException {
+        block.clear();
+        // Section header block.
+        block.putInt(0x0A0D0D0A);
+        block.putInt(28);
+        block.putInt(0x1A2B3C4D);
+        block.putShort((short) 1);
+        block.putShort((short) 0);
+        // Section length is not known.
+        block.putLong(-1);
+        block.putInt(28);
+        // Interface description block. Timestamps are in microseconds.
+        block.putInt(1);
+        block.putInt(20);
+        block.putShort((short) LINKTYPE_RAW);
+        block.putShort((short) 0);
+        block.putInt(0);
+        block.putInt(20);
+        stream.write(block.array(), 0, block.position());
+    }
+
+    /**
+     * Write queued packets until capture is closed.
+     */
+    private void write() {
+        try {
+            while (true) {
+                Packet p = queue.poll();
+                if (p == null) {
+                    stream.flush();
+                    p = queue.take();
+                }
+                if (p == STOP) {
+                    break;
+                }
+                write(p);
+            }
+            stream.flush();
+        } catch (IOException e) {
+            error = e;
+            queue.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write packet. Packet is split if data doesn't fit to one IP packet.
+     * 
+     * @param p
+     *            Packet.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private void write(final Packet p) throws IOException {
+        InetAddress remote = resolve(p.peer);
+        int remotePort = 0;
+        int pos = p.peer.lastIndexOf(':');
+        if (pos != -1) {
+            try {
+                remotePort = Integer.parseInt(p.peer.substring(pos + 1));
+            } catch (NumberFormatException e) {
+                // Port is not known.
+            }
+        }
+        InetAddress local;
+        if (remote instanceof Inet4Address) {
+            local = InetAddress.getByAddress(new byte[4]);
+        } else {
+            local = InetAddress.getByAddress(new byte[16]);
+        }
+        int[] seq = null;
+        if (p.tcp) {
+            seq = sequences.get(p.peer);
+            if (seq == null) {
+                if (sequences.size() == MAX_PEERS) {
+                    sequences.clear();
+                }
+                seq = new int[2];
+                sequences.put(p.peer, seq);
+            }
+        }
+        int index = 0;
+        do {
+            int length = Math.min(p.data.length - index, MAX_PAYLOAD);
+            if (p.sent) {
+                writePacket(p, local, p.localPort, remote, remotePort, seq,
+                        index, length);
+            } else {
+                writePacket(p, remote, remotePort, local, p.localPort, seq,
+                        index, length);
+            }
+            index += length;
+        } while (index != p.data.length);
+        captured.incrementAndGet();
+    }
+
+    /**
+     * Resolve peer address.
+     * 
+     * @param peer
+     *            Peer IP address or host name and port.
+     * @return Peer address.
+     */
+    private InetAddress resolve(final String peer) {
+        InetAddress address = addresses.get(peer);
+        if (address == null) {
+            String host = peer;
+            int pos = host.lastIndexOf(':');
+            if (pos != -1) {
+                host = host.substring(0, pos);
+            }
+            // Socket address is given as host name/IP address.
+            pos = host.indexOf('/');
+            if (pos != -1) {
+                host = host.substring(pos + 1);
+            }
+            if (host.startsWith("[") && host.endsWith("]")) {
+                host = host.substring(1, host.length() - 1);
+            }
+            try {
+                address = InetAddress.getByName(host);
+            } catch (IOException e) {
+                address = InetAddress.getLoopbackAddress();
+            }
+            if (addresses.size() == MAX_PEERS) {
+                addresses.clear();
+            }
+            addresses.put(peer, address);
+        }
+        return address;
+    }
+
+    /**
+     * Write enhanced packet block with generated IP and TCP or UDP headers.
+     * 
+     * @param p
+     *            Packet.
+     * @param source
+     *            Source address.
+     * @param sourcePort
+     *            Source port.
+     * @param target
+     *            Target address.
+     * @param targetPort
+     *            Target port.
+     * @param seq
+     *            TCP sequence numbers of the peer. Null for UDP.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private void writePacket(final Packet p, final InetAddress source,
+            final int sourcePort, final InetAddress target,
+            final int targetPort, final int[] seq, final int index,
+            final int length) throws IOException {
+        byte[] src = source.getAddress();
+        byte[] dst = target.getAddress();
+        int transport = p.tcp ? 20 : 8;
+        int ip = src.length == 4 ? 20 : 40;
+        int packet = ip + transport + length;
+        int padded = (packet + 3) & ~3;
+        block.clear();
+        block.putInt(6);
+        block.putInt(32 + padded);
+        block.putInt(0);
+        block.putInt((int) (p.time >>> 32));
+        block.putInt((int) p.time);
+        block.putInt(packet);
+        block.putInt(packet);
+        // Network headers are big endian.
+        block.order(ByteOrder.BIG_ENDIAN);
+        int start = block.position();
+        if (src.length == 4) {
+            block.put((byte) 0x45);
+            block.put((byte) 0);
+            block.putShort((short) packet);
+            block.putInt(0x4000);
+            block.put((byte) 64);
+            block.put((byte) (p.tcp ? 6 : 17));
+            block.putShort((short) 0);
+            block.put(src);
+            block.put(dst);
+            block.putShort(start + 10, checksum(start, 20));
+        } else {
+            block.putInt(0x60000000);
+            block.putShort((short) (transport + length));
+            block.put((byte) (p.tcp ? 6 : 17));
+            block.put((byte) 64);
+            block.put(src);
+            block.put(dst);
+        }
+        block.putShort((short) sourcePort);
+        block.putShort((short) targetPort);
+        if (p.tcp) {
+            int tx = p.sent ? 0 : 1;
+            block.putInt(seq[tx]);
+            block.putInt(seq[1 - tx]);
+            // Header length is 5 words. Flags are PSH and ACK.
+            block.putShort((short) 0x5018);
+            block.putShort((short) 0xFFFF);
+            block.putInt(0);
+            seq[tx] += length;
+        } else {
+            block.putShort((short) (8 + length));
+            block.putShort((short) 0);
+        }
+        block.put(p.data, index, length);
+        while ((block.position() & 3) != 0) {
+            block.put((byte) 0);
+        }
+        block.order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(32 + padded);
+        stream.write(block.array(), 0, block.position());
+    }
+
+    /**
+     * Count IPv4 header checksum.
+     * 
+     * @param start
+     *            Start of the header.
+     * @param length
+     *            Length of the header.
+     * @return Checksum.
+     */
+    private short checksum(final int start, final int length) {
+        int sum = 0;
+        for (int pos = 0; pos != length; pos += 2) {
+            sum += block.getShort(start + pos) & 0xFFFF;
+        }
+        while ((sum >> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >> 16);
+        }
+        return (short) ~sum;
+    }
+
+    /**
+     * Write queued packets and close the file.
+     * 
+     * @throws IOException
+     *             Error that stopped the writer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // Writer has stopped if an error has occurred.
+            while (thread.isAlive()
+                    && !queue.offer(STOP, 100, TimeUnit.MILLISECONDS)) {
+                continue;
+            }
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stream.close();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+
+/**
+ * Connected TCP/IP client in server mode.
+ * <p>
+ * Connection can be used as a target when data is sent to the client. It's
+ * faster than using client address as a string.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ * @see GXNet#sendTo(Object, GXNetConnection)
+ * @see GXNet#getConnection(String)
+ */
+public abstract class GXNetConnection {
+    /**
+     * Server where client is connected.
+     */
+    private final GXNet parentMedia;
+    /**
+     * Client's IP address and port number.
+     */
+    private final SocketAddress remoteAddress;
+    /**
+     * Client's IP address and port number as a string.
+     */
+    private final String info;
+    /**
+     * Amount of bytes that are waiting to be written.
+     */
+    private long pendingBytes;
+    /**
+     * Is amount of pending bytes below high watermark.
+     */
+    private volatile boolean writable = true;
+    /**
+     * Traffic counters of the client.
+     */
+    private final GXNetStatistics statistics = new GXNetStatistics();
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Server where client is connected.
+     * @param address
+     *            Client's IP address and port number.
+     */
+    GXNetConnection(final GXNet parent, final SocketAddress address) {
+        parentMedia = parent;
+        remoteAddress = address;
+        info = String.valueOf(address);
+    }
+
+    /**
+     * Get client's IP address and port number.
+     * 
+     * @return Client's IP address and port number.
+     */
+    public final SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    /**
+     * Get client's IP address and port number as a string. This is the same
+     * value that is used as sender info of the received data.
+     * 
+     * @return Client's IP address and port number.
+     */
+    public final String getInfo() {
+        return info;
+    }
+
+    /**
+     * Get traffic counters of the client. Counters are also added to the
+     * counters of the server.
+     * 
+     * @return Traffic counters.
+     * @see GXNet#getStatistics()
+     */
+    public final GXNetStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Count failed write to the client and to the server.
+     */
+    final void writeFailed() {
+        statistics.error(1);
+        parentMedia.getStatistics().error(1);
+    }
+
+    /**
+     * Get amount of bytes that are queued and waiting to be written.
+     * 
+     * @return Amount of pending bytes.
+     */
+    public final synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Check can more data be sent to the client. Connection becomes
+     * unwritable when amount of pending bytes exceeds high watermark and
+     * writable again when it drops to low watermark. Data is queued also
+     * when connection is unwritable, so sender should wait until connection
+     * becomes writable again.
+     * 
+     * @return True, if amount of pending bytes is below high watermark.
+     * @see GXNet#setWriteHighWatermark(int)
+     * @see GXNet#setWriteLowWatermark(int)
+     */
+    public final boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Update amount of pending bytes and notify listeners if connection
+     * becomes writable or unwritable.
+     * 
+     * @param count
+     *            Amount of queued bytes. Negative when bytes are written.
+     */
+    final void updatePendingBytes(final long count) {
+        if (addPendingBytes(count)) {
+            notifyWritabilityChanged();
+        }
+    }
+
+    /**
+     * Update amount of pending bytes without notifying listeners. This can
+     * be called while holding the lock of the write queue.
+     * 
+     * @param count
+     *            Amount of queued bytes. Negative when bytes are written.
+     * @return True, if connection became writable or unwritable.
+     */
+    final synchronized boolean addPendingBytes(final long count) {
+        pendingBytes += count;
+        if (writable && pendingBytes > parentMedia.getWriteHighWatermark()) {
+            writable = false;
+            return true;
+        }
+        if (!writable
+                && pendingBytes <= parentMedia.getWriteLowWatermark()) {
+            writable = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Notify listeners that connection became writable or unwritable.
+     */
+    final void notifyWritabilityChanged() {
+        parentMedia.notifyWritabilityChanged(new ConnectionEventArgs(this));
+    }
+
+    /**
+     * Stop reading from the connection until reading is resumed. This is
+     * called from the thread that reads the connection when the dispatch
+     * queue of the connection is full.
+     * 
+     * @return True, if reading is paused. False, if connection can't pause
+     *         reading and caller must wait until there is space in the
+     *         queue.
+     */
+    boolean pauseReading() {
+        return false;
+    }
+
+    /**
+     * Continue reading from the connection after it's paused.
+     */
+    void resumeReading() {
+    }
+
+    /**
+     * Write data to the client.
+     * 
+     * @param data
+     *            Data to send.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    abstract void send(byte[] data) throws IOException;
+
+    /**
+     * Check is data queued and written without blocking the sender.
+     * 
+     * @return True, if send does not block.
+     */
+    abstract boolean isQueued();
+
+    /**
+     * Close the connection.
+     * 
+     * @throws IOException
+     *             Occurred exception.
+     */
+    abstract void close() throws IOException;
+
+    @Override
+    public final String toString() {
+        return info;
+    }
+}
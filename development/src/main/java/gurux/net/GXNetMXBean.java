@@ -0,0 +1,159 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Management interface of GXNet. Runtime state and traffic counters of the
+ * media can be followed with JConsole or other JMX client.
+ * 
+ * @author Gurux Ltd.
+ * @see GXNet#setManagementName(String)
+ */
+public interface GXNetMXBean {
+    /**
+     * @return Is media open.
+     */
+    boolean isOpen();
+
+    /**
+     * @return Is media in server mode.
+     */
+    boolean isServer();
+
+    /**
+     * @return Used protocol.
+     */
+    String getProtocol();
+
+    /**
+     * @return Host name in client mode.
+     */
+    String getHostName();
+
+    /**
+     * @return Port number.
+     */
+    int getPort();
+
+    /**
+     * @return How network connections are served.
+     */
+    String getEngine();
+
+    /**
+     * @return Amount of connected TCP/IP clients in server mode.
+     */
+    int getClientCount();
+
+    /**
+     * @return IP addresses and port numbers of the connected TCP/IP clients.
+     */
+    String[] getClients();
+
+    /**
+     * @return Amount of bytes that are queued and waiting to be written to
+     *         the clients.
+     */
+    long getPendingBytes();
+
+    /**
+     * @return Amount of received data callbacks that are waiting for the
+     *         dispatcher.
+     */
+    int getDispatchQueueDepth();
+
+    /**
+     * @return Amount of sent bytes.
+     */
+    long getBytesSent();
+
+    /**
+     * @return Amount of received bytes.
+     */
+    long getBytesReceived();
+
+    /**
+     * @return Amount of sent frames.
+     */
+    long getFramesSent();
+
+    /**
+     * @return Amount of received frames.
+     */
+    long getFramesReceived();
+
+    /**
+     * @return Amount of accepted clients.
+     */
+    long getConnects();
+
+    /**
+     * @return Amount of disconnected clients.
+     */
+    long getDisconnects();
+
+    /**
+     * @return Amount of rejected clients.
+     */
+    long getRejects();
+
+    /**
+     * @return Amount of errors.
+     */
+    long getErrors();
+
+    /**
+     * Reset all traffic counters.
+     */
+    void resetCounters();
+
+    /**
+     * Disconnect TCP/IP client.
+     * 
+     * @param client
+     *            Client's IP address and port number.
+     * @return True, if client was connected.
+     */
+    boolean disconnect(String client);
+
+    /**
+     * Dump content of the flight recorder.
+     * 
+     * @return Recorded data as text or empty string, if flight recorder is
+     *         not used.
+     */
+    String dumpFlightRecorder();
+}
@@ -0,0 +1,246 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Management bean of one GXNet instance. Bean is registered to the platform
+ * MBean server when the media is opened and unregistered when it's closed.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class GXNetManagement implements GXNetMXBean {
+    /**
+     * Domain of the object names.
+     */
+    static final String DOMAIN = "gurux.net";
+    /**
+     * Managed media.
+     */
+    private final GXNet media;
+    /**
+     * Registered object name.
+     */
+    private final ObjectName objectName;
+
+    /**
+     * Constructor.
+     * 
+     * @param target
+     *            Managed media.
+     * @param name
+     *            Object name.
+     */
+    private GXNetManagement(final GXNet target, final ObjectName name) {
+        media = target;
+        objectName = name;
+    }
+
+    /**
+     * Get object name of the media.
+     * 
+     * @param name
+     *            Management name of the media.
+     * @return Object name.
+     * @throws MalformedObjectNameException
+     *             Invalid name.
+     */
+    static ObjectName getObjectName(final String name)
+            throws MalformedObjectNameException {
+        return new ObjectName(
+                DOMAIN + ":type=GXNet,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Register bean of the media to the platform MBean server.
+     * 
+     * @param target
+     *            Managed media.
+     * @param name
+     *            Management name of the media.
+     * @return Registered bean.
+     * @throws JMException
+     *             Name is invalid or it's already registered.
+     */
+    static GXNetManagement register(final GXNet target, final String name)
+            throws JMException {
+        GXNetManagement m = new GXNetManagement(target, getObjectName(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(m,
+                m.objectName);
+        return m;
+    }
+
+    /**
+     * Unregister bean from the platform MBean server.
+     */
+    void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .unregisterMBean(objectName);
+        } catch (JMException e) {
+            // It's OK if bean is already unregistered.
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return media.isOpen();
+    }
+
+    @Override
+    public boolean isServer() {
+        return media.getServer();
+    }
+
+    @Override
+    public String getProtocol() {
+        return String.valueOf(media.getProtocol());
+    }
+
+    @Override
+    public String getHostName() {
+        return media.getHostName();
+    }
+
+    @Override
+    public int getPort() {
+        return media.getPort();
+    }
+
+    @Override
+    public String getEngine() {
+        return String.valueOf(media.getEngine());
+    }
+
+    @Override
+    public int getClientCount() {
+        return media.getConnectionMap().size();
+    }
+
+    @Override
+    public String[] getClients() {
+        return media.getConnectionMap().keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public long getPendingBytes() {
+        long count = 0;
+        for (GXNetConnection it : media.getConnectionMap().values()) {
+            count += it.getPendingBytes();
+        }
+        return count;
+    }
+
+    @Override
+    public int getDispatchQueueDepth() {
+        return media.getDispatchQueueDepth();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return media.getStatistics().getBytesSent();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return media.getStatistics().getBytesReceived();
+    }
+
+    @Override
+    public long getFramesSent() {
+        return media.getStatistics().getFramesSent();
+    }
+
+    @Override
+    public long getFramesReceived() {
+        return media.getStatistics().getFramesReceived();
+    }
+
+    @Override
+    public long getConnects() {
+        return media.getStatistics().getConnects();
+    }
+
+    @Override
+    public long getDisconnects() {
+        return media.getStatistics().getDisconnects();
+    }
+
+    @Override
+    public long getRejects() {
+        return media.getStatistics().getRejects();
+    }
+
+    @Override
+    public long getErrors() {
+        return media.getStatistics().getErrors();
+    }
+
+    @Override
+    public void resetCounters() {
+        media.getStatistics().reset();
+    }
+
+    @Override
+    public boolean disconnect(final String client) {
+        GXNetConnection c = media.getConnection(client);
+        if (c == null) {
+            return false;
+        }
+        try {
+            c.close();
+        } catch (IOException e) {
+            // Receiver notifies listeners when connection is closed.
+        }
+        return true;
+    }
+
+    @Override
+    public String dumpFlightRecorder() {
+        GXFlightRecorder recorder = media.getFlightRecorder();
+        if (recorder == null) {
+            return "";
+        }
+        return recorder.toString();
+    }
+}
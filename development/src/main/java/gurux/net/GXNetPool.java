@@ -0,0 +1,582 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import gurux.net.enums.NetworkType;
+
+/**
+ * Pool of client connections.
+ * <p>
+ * Connections are kept by protocol, host name and port. Connection is
+ * leased with borrow and given back with release, so repeated reads from
+ * the same meter reuse an open connection. Connections that have been idle
+ * longer than the idle time are closed by the eviction timer.
+ * </p>
+ * 
+ * <pre>
+ * GXNet media = pool.borrow(NetworkType.TCP, "localhost", 4059);
+ * try {
+ *     // Read the meter.
+ *     pool.release(media);
+ * } catch (Exception e) {
+ *     pool.invalidate(media);
+ * }
+ * </pre>
+ * <p>
+ * Connections are closed without holding the pool lock, so a slow close
+ * doesn't block other threads that use the pool.
+ * </p>
+ * 
+ * @author Gurux Ltd
+ */
+public class GXNetPool implements AutoCloseable {
+    /**
+     * Default maximum amount of connections.
+     */
+    public static final int DEFAULT_MAX_COUNT = 64;
+
+    /**
+     * Default time (milliseconds) how long connection can be idle.
+     */
+    public static final int DEFAULT_IDLE_TIME = 60000;
+
+    /**
+     * Minimum interval (milliseconds) of the eviction task.
+     */
+    private static final int MIN_EVICTION_INTERVAL = 100;
+
+    /**
+     * Idle connection.
+     */
+    private static final class IdleConnection {
+        /**
+         * Connection.
+         */
+        private final GXNet media;
+        /**
+         * Time when connection was released.
+         */
+        private final long released;
+
+        /**
+         * Constructor.
+         * 
+         * @param value
+         *            Connection.
+         */
+        IdleConnection(final GXNet value) {
+            media = value;
+            released = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Idle connections by key. The last released connection is the first.
+     */
+    private final Map<String, ArrayDeque<IdleConnection>> idle =
+            new HashMap<String, ArrayDeque<IdleConnection>>();
+    /**
+     * Leased connections and their keys.
+     */
+    private final Map<GXNet, String> leased =
+            new IdentityHashMap<GXNet, String>();
+    /**
+     * Amount of connections, including connections that are opening.
+     */
+    private int count;
+    /**
+     * Maximum amount of connections.
+     */
+    private int maxCount = DEFAULT_MAX_COUNT;
+    /**
+     * How long (milliseconds) connection can be idle before it's closed.
+     */
+    private int idleTime = DEFAULT_IDLE_TIME;
+    /**
+     * How long (milliseconds) borrow waits free connection.
+     */
+    private int waitTime;
+    /**
+     * Validator that checks connection before it's leased. Null if only
+     * connection state is checked.
+     */
+    private Predicate<GXNet> validator;
+    /**
+     * Configurer that sets the settings of the new connection before it's
+     * opened. Null if default settings are used.
+     */
+    private Consumer<GXNet> configurer;
+    /**
+     * Eviction timer. Null if pool is closed.
+     */
+    private ScheduledExecutorService timer;
+    /**
+     * Eviction task.
+     */
+    private ScheduledFuture<?> eviction;
+
+    /**
+     * Constructor.
+     */
+    public GXNetPool() {
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(r, "GXNetPool evictor");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduleEviction();
+    }
+
+    /**
+     * Schedule eviction task. Idle connections are checked twice in idle
+     * time.
+     */
+    private void scheduleEviction() {
+        if (eviction != null) {
+            eviction.cancel(false);
+        }
+        int interval = Math.max(MIN_EVICTION_INTERVAL, idleTime / 2);
+        eviction = timer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evict();
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get connection key.
+     * 
+     * @param protocol
+     *            Used protocol.
+     * @param host
+     *            Host name or IP address.
+     * @param port
+     *            Port number.
+     * @return Connection key.
+     */
+    private static String getKey(final NetworkType protocol, final String host,
+            final int port) {
+        return protocol + ":" + host + ":" + port;
+    }
+
+    /**
+     * Lease connection. Idle connection is used if there is one and it's
+     * valid. Otherwise new connection is opened.
+     * 
+     * @param protocol
+     *            Used protocol.
+     * @param host
+     *            Host name or IP address.
+     * @param port
+     *            Port number.
+     * @return Open connection.
+     * @throws Exception
+     *             Occurred exception. If maximum amount of connections is
+     *             reached, IllegalStateException is thrown.
+     */
+    public final GXNet borrow(final NetworkType protocol, final String host,
+            final int port) throws Exception {
+        String key = getKey(protocol, host, port);
+        long end = System.currentTimeMillis() + waitTime;
+        GXNet media;
+        Predicate<GXNet> v = getValidator();
+        List<GXNet> closed = new ArrayList<GXNet>();
+        while (true) {
+            media = takeIdle(key, closed);
+            closeAll(closed);
+            if (media != null) {
+                // Validator is called without holding the pool lock, because
+                // it might communicate with the meter.
+                if (v == null || v.test(media)) {
+                    media.resetSynchronousBuffer();
+                    return media;
+                }
+                invalidate(media);
+                continue;
+            }
+            synchronized (this) {
+                if (idle.containsKey(key)) {
+                    // Connection was released.
+                    continue;
+                }
+                if (count == maxCount) {
+                    // Close idle connection of other meter.
+                    closeOldestIdle(closed);
+                }
+                if (count < maxCount) {
+                    // Reserve a place for the new connection.
+                    ++count;
+                    break;
+                }
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException(
+                            "Maximum amount of connections reached.");
+                }
+                wait(remaining);
+            }
+        }
+        closeAll(closed);
+        media = new GXNet(protocol, host, port);
+        try {
+            Consumer<GXNet> c = getConfigurer();
+            if (c != null) {
+                c.accept(media);
+            }
+            media.open();
+        } catch (Exception e) {
+            synchronized (this) {
+                --count;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            leased.put(media, key);
+        }
+        return media;
+    }
+
+    /**
+     * Close connections. This is called without holding the pool lock.
+     * 
+     * @param connections
+     *            Closed connections. List is cleared.
+     */
+    private static void closeAll(final List<GXNet> connections) {
+        for (GXNet it : connections) {
+            it.close();
+        }
+        connections.clear();
+    }
+
+    /**
+     * Lease idle connection that is alive. Closed connections are removed.
+     * 
+     * @param key
+     *            Connection key.
+     * @param closed
+     *            Connections that are removed and must be closed.
+     * @return Idle connection or null if there is no open idle connection.
+     */
+    private synchronized GXNet takeIdle(final String key,
+            final List<GXNet> closed) {
+        if (timer == null) {
+            throw new IllegalStateException("Pool is closed.");
+        }
+        ArrayDeque<IdleConnection> q = idle.get(key);
+        if (q == null) {
+            return null;
+        }
+        IdleConnection it;
+        while ((it = q.poll()) != null) {
+            if (it.media.isAlive()) {
+                leased.put(it.media, key);
+                break;
+            }
+            closed.add(it.media);
+            --count;
+        }
+        if (q.isEmpty()) {
+            idle.remove(key);
+        }
+        return it == null ? null : it.media;
+    }
+
+    /**
+     * Remove the idle connection that has been idle longest. This is called
+     * while holding the pool lock.
+     * 
+     * @param closed
+     *            Connections that are removed and must be closed.
+     */
+    private void closeOldestIdle(final List<GXNet> closed) {
+        ArrayDeque<IdleConnection> oldest = null;
+        for (ArrayDeque<IdleConnection> it : idle.values()) {
+            if (oldest == null
+                    || it.peekLast().released < oldest.peekLast().released) {
+                oldest = it;
+            }
+        }
+        if (oldest != null) {
+            closed.add(oldest.pollLast().media);
+            --count;
+            if (oldest.isEmpty()) {
+                idle.values().remove(oldest);
+            }
+        }
+    }
+
+    /**
+     * Give leased connection back to the pool. Listeners that are added
+     * after the connection was borrowed must be removed before release.
+     * 
+     * @param media
+     *            Leased connection.
+     */
+    public final void release(final GXNet media) {
+        synchronized (this) {
+            String key = leased.remove(media);
+            if (key == null) {
+                throw new IllegalArgumentException("Unknown connection.");
+            }
+            if (timer != null && media.isAlive()) {
+                ArrayDeque<IdleConnection> q = idle.get(key);
+                if (q == null) {
+                    q = new ArrayDeque<IdleConnection>();
+                    idle.put(key, q);
+                }
+                q.addFirst(new IdleConnection(media));
+                notifyAll();
+                return;
+            }
+            --count;
+            notifyAll();
+        }
+        media.close();
+    }
+
+    /**
+     * Close leased connection and remove it from the pool. This is used
+     * when connection has failed.
+     * 
+     * @param media
+     *            Leased connection.
+     */
+    public final void invalidate(final GXNet media) {
+        synchronized (this) {
+            if (leased.remove(media) == null) {
+                throw new IllegalArgumentException("Unknown connection.");
+            }
+            --count;
+            notifyAll();
+        }
+        media.close();
+    }
+
+    /**
+     * Close connections that have been idle longer than idle time.
+     */
+    final void evict() {
+        List<GXNet> closed = new ArrayList<GXNet>();
+        synchronized (this) {
+            long limit = System.currentTimeMillis() - idleTime;
+            Iterator<ArrayDeque<IdleConnection>> it =
+                    idle.values().iterator();
+            while (it.hasNext()) {
+                ArrayDeque<IdleConnection> q = it.next();
+                // Oldest connections are at the end of the queue.
+                while (!q.isEmpty() && (q.peekLast().released <= limit
+                        || !q.peekLast().media.isAlive())) {
+                    closed.add(q.pollLast().media);
+                    --count;
+                }
+                if (q.isEmpty()) {
+                    it.remove();
+                }
+            }
+            notifyAll();
+        }
+        closeAll(closed);
+    }
+
+    /**
+     * @return Amount of open and leased connections.
+     */
+    public final synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return Amount of idle connections.
+     */
+    public final synchronized int getIdleCount() {
+        int ret = 0;
+        for (ArrayDeque<IdleConnection> it : idle.values()) {
+            ret += it.size();
+        }
+        return ret;
+    }
+
+    /**
+     * @return Maximum amount of connections.
+     */
+    public final synchronized int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @param value
+     *            Maximum amount of connections.
+     */
+    public final synchronized void setMaxCount(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Invalid maximum count.");
+        }
+        maxCount = value;
+    }
+
+    /**
+     * @return How long (milliseconds) connection can be idle before it's
+     *         closed.
+     */
+    public final synchronized int getIdleTime() {
+        return idleTime;
+    }
+
+    /**
+     * Idle connections are checked twice in idle time, so connection is
+     * closed within one and half idle time.
+     * 
+     * @param value
+     *            How long (milliseconds) connection can be idle before it's
+     *            closed.
+     */
+    public final synchronized void setIdleTime(final int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException("Invalid idle time.");
+        }
+        idleTime = value;
+        if (timer != null) {
+            scheduleEviction();
+        }
+    }
+
+    /**
+     * @return How long (milliseconds) borrow waits free connection when
+     *         maximum amount of connections is leased.
+     */
+    public final synchronized int getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * @param value
+     *            How long (milliseconds) borrow waits free connection when
+     *            maximum amount of connections is leased. Zero if borrow
+     *            fails immediately.
+     */
+    public final synchronized void setWaitTime(final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Invalid wait time.");
+        }
+        waitTime = value;
+    }
+
+    /**
+     * @return Validator that checks idle connection before it's leased.
+     */
+    public final synchronized Predicate<GXNet> getValidator() {
+        return validator;
+    }
+
+    /**
+     * Validator can for example read a register from the meter. Connection
+     * is closed if validator returns false. Connection state is always
+     * checked.
+     * 
+     * @param value
+     *            Validator that checks idle connection before it's leased.
+     */
+    public final synchronized void setValidator(
+            final Predicate<GXNet> value) {
+        validator = value;
+    }
+
+    /**
+     * @return Configurer that sets the settings of the new connection.
+     */
+    public final synchronized Consumer<GXNet> getConfigurer() {
+        return configurer;
+    }
+
+    /**
+     * Configurer is called for each new connection before it's opened. It
+     * can for example set the end of packet, frame decoder, engine, trace
+     * level or wait time.
+     * 
+     * @param value
+     *            Configurer that sets the settings of the new connection.
+     */
+    public final synchronized void setConfigurer(
+            final Consumer<GXNet> value) {
+        configurer = value;
+    }
+
+    /**
+     * Close the pool and idle connections. Leased connections are closed
+     * when they are released.
+     */
+    @Override
+    public final void close() {
+        List<GXNet> closed = new ArrayList<GXNet>();
+        synchronized (this) {
+            if (timer == null) {
+                return;
+            }
+            timer.shutdownNow();
+            timer = null;
+            for (ArrayDeque<IdleConnection> q : idle.values()) {
+                for (IdleConnection it : q) {
+                    closed.add(it.media);
+                    --count;
+                }
+            }
+            idle.clear();
+            notifyAll();
+        }
+        closeAll(closed);
+    }
+}
@@ -0,0 +1,251 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Traffic counters of the media or one connected TCP/IP client.
+ * <p>
+ * Counters can be updated from several threads without locking, so they can
+ * be kept on also in production. Values are sums of the counters and they
+ * are not an atomic snapshot while traffic is running.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ * @see GXNet#getStatistics()
+ * @see GXNetConnection#getStatistics()
+ */
+public final class GXNetStatistics {
+    /**
+     * Amount of sent bytes.
+     */
+    private final LongAdder bytesSent = new LongAdder();
+    /**
+     * Amount of received bytes.
+     */
+    private final LongAdder bytesReceived = new LongAdder();
+    /**
+     * Amount of sent frames.
+     */
+    private final LongAdder framesSent = new LongAdder();
+    /**
+     * Amount of received frames.
+     */
+    private final LongAdder framesReceived = new LongAdder();
+    /**
+     * Amount of accepted clients.
+     */
+    private final LongAdder connects = new LongAdder();
+    /**
+     * Amount of disconnected clients.
+     */
+    private final LongAdder disconnects = new LongAdder();
+    /**
+     * Amount of rejected clients.
+     */
+    private final LongAdder rejects = new LongAdder();
+    /**
+     * Amount of errors.
+     */
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Constructor.
+     */
+    GXNetStatistics() {
+    }
+
+    /**
+     * Get amount of sent bytes.
+     * 
+     * @return Amount of sent bytes.
+     */
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    /**
+     * Get amount of received bytes.
+     * 
+     * @return Amount of received bytes.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * Get amount of sent frames. Each sent data item is one frame.
+     * 
+     * @return Amount of sent frames.
+     */
+    public long getFramesSent() {
+        return framesSent.sum();
+    }
+
+    /**
+     * Get amount of received frames. Frame is the data that is given to the
+     * listeners or to the waiting request in one call. When frame decoder is
+     * used, it's the decoded frame.
+     * 
+     * @return Amount of received frames.
+     */
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    /**
+     * Get amount of accepted clients in TCP/IP server mode.
+     * 
+     * @return Amount of accepted clients.
+     */
+    public long getConnects() {
+        return connects.sum();
+    }
+
+    /**
+     * Get amount of disconnected clients in TCP/IP server mode.
+     * 
+     * @return Amount of disconnected clients.
+     */
+    public long getDisconnects() {
+        return disconnects.sum();
+    }
+
+    /**
+     * Get amount of clients that are rejected by the server or by the
+     * listeners in TCP/IP server mode.
+     * 
+     * @return Amount of rejected clients.
+     */
+    public long getRejects() {
+        return rejects.sum();
+    }
+
+    /**
+     * Get amount of errors. Connection counts only failed writes to the
+     * client. Media counts also other errors.
+     * 
+     * @return Amount of errors.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Count sent frames.
+     * 
+     * @param bytes
+     *            Amount of sent bytes.
+     * @param frames
+     *            Amount of sent frames.
+     */
+    void sent(final long bytes, final long frames) {
+        bytesSent.add(bytes);
+        framesSent.add(frames);
+    }
+
+    /**
+     * Count received bytes.
+     * 
+     * @param bytes
+     *            Amount of received bytes.
+     */
+    void received(final long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    /**
+     * Count received frame.
+     */
+    void frameReceived() {
+        framesReceived.increment();
+    }
+
+    /**
+     * Count accepted client.
+     */
+    void connected() {
+        connects.increment();
+    }
+
+    /**
+     * Count disconnected client.
+     */
+    void disconnected() {
+        disconnects.increment();
+    }
+
+    /**
+     * Count rejected client.
+     */
+    void rejected() {
+        rejects.increment();
+    }
+
+    /**
+     * Count errors.
+     * 
+     * @param count
+     *            Amount of errors.
+     */
+    void error(final long count) {
+        errors.add(count);
+    }
+
+    /**
+     * Reset byte counters.
+     */
+    void resetBytes() {
+        bytesSent.reset();
+        bytesReceived.reset();
+    }
+
+    /**
+     * Reset all counters. Updates that happen at the same time are either
+     * counted or reset.
+     */
+    public void reset() {
+        bytesSent.reset();
+        bytesReceived.reset();
+        framesSent.reset();
+        framesReceived.reset();
+        connects.reset();
+        disconnects.reset();
+        rejects.reset();
+        errors.reset();
+    }
+}
@@ -0,0 +1,160 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference counted buffer from the buffer pool.
+ * <p>
+ * Received data is borrowed to the listener for the duration of
+ * onReceived. If data is used after that, listener must call
+ * {@link #retain()} and {@link #release()} when data is not needed anymore.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ * @see GXBufferPool
+ */
+public final class GXPooledBuffer {
+    /**
+     * Pool where buffer is returned. Null if buffer is not pooled.
+     */
+    private final GXBufferPool pool;
+    /**
+     * Data.
+     */
+    private final byte[] array;
+    /**
+     * Length of the data.
+     */
+    private int length;
+    /**
+     * Reference count.
+     */
+    private final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * Constructor.
+     * 
+     * @param owner
+     *            Pool where buffer is returned.
+     * @param capacity
+     *            Buffer capacity.
+     */
+    GXPooledBuffer(final GXBufferPool owner, final int capacity) {
+        pool = owner;
+        array = new byte[capacity];
+    }
+
+    /**
+     * Initialize buffer when it's taken from the pool.
+     * 
+     * @param value
+     *            Length of the data.
+     */
+    void acquired(final int value) {
+        length = value;
+        references.set(1);
+    }
+
+    /**
+     * Get backing array of the buffer. Data is from index zero to
+     * {@link #getLength()}. Array is valid only until the buffer is released.
+     * 
+     * @return Backing array.
+     */
+    public byte[] getArray() {
+        return array;
+    }
+
+    /**
+     * @return Length of the data.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return Reference count. Zero if buffer is released.
+     */
+    public int getReferenceCount() {
+        return references.get();
+    }
+
+    /**
+     * Copy data to a new byte array.
+     * 
+     * @return Data as a byte array.
+     */
+    public byte[] toArray() {
+        byte[] data = new byte[length];
+        System.arraycopy(array, 0, data, 0, length);
+        return data;
+    }
+
+    /**
+     * Increase reference count. Buffer is not returned to the pool until
+     * it's released.
+     * 
+     * @return This buffer.
+     */
+    public GXPooledBuffer retain() {
+        int value;
+        do {
+            value = references.get();
+            if (value < 1) {
+                throw new IllegalStateException("Buffer is released.");
+            }
+        } while (!references.compareAndSet(value, value + 1));
+        return this;
+    }
+
+    /**
+     * Decrease reference count. Buffer is returned to the pool when reference
+     * count is zero.
+     */
+    public void release() {
+        int value = references.decrementAndGet();
+        if (value == 0) {
+            if (pool != null) {
+                pool.recycle(this);
+            }
+        } else if (value < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Buffer is released.");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Frame decoder that can continue searching the frame from where the
+ * previous search ended.
+ * <p>
+ * Decoders that search the end of the frame, like delimiter decoder, should
+ * implement this interface. Otherwise the incomplete frame is searched from
+ * the beginning every time new data is received.
+ * </p>
+ * 
+ * @author Gurux Ltd
+ * @see GXNet#setFrameDecoder(IGXFrameDecoder)
+ */
+public interface IGXIncrementalFrameDecoder extends IGXFrameDecoder {
+    /**
+     * Get length of the first complete frame.
+     * 
+     * @param data
+     *            Received data.
+     * @param index
+     *            Start index of the frame.
+     * @param count
+     *            Amount of received bytes from the start index.
+     * @param scanned
+     *            Amount of bytes from the start index that were searched
+     *            when the frame was not complete. Zero if frame is searched
+     *            first time.
+     * @return Length of the frame or zero if frame is not complete.
+     */
+    int getFrameLength(byte[] data, int index, int count, int scanned);
+}
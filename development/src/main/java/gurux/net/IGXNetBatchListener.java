@@ -0,0 +1,61 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+package gurux.net;
+
+import java.util.List;
+
+import gurux.common.ReceiveEventArgs;
+
+/**
+ * Listener that receives UDP datagrams as batches. Used when UDP connection
+ * is served with {@link gurux.net.enums.NetworkEngine#SELECTOR}. Datagrams
+ * are delivered one by one with onReceived to listeners that do not
+ * implement this interface.
+ * 
+ * @author Gurux Ltd
+ */
+public interface IGXNetBatchListener {
+    /**
+     * Called when datagrams are received. Datagrams are in the order they
+     * were received. When dispatcher is used, each batch contains datagrams
+     * of one sender. The list is valid only during the call.
+     * 
+     * @param sender
+     *            The source of the event.
+     * @param e
+     *            Received datagrams.
+     */
+    void onReceivedBatch(Object sender, List<ReceiveEventArgs> e);
+}
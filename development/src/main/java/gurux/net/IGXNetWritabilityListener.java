@@ -0,0 +1,56 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+package gurux.net;
+
+/**
+ * Listener that is notified when connected client becomes writable or
+ * unwritable. Application can use this to stop sending to a slow client
+ * until its pending data is written.
+ * 
+ * @author Gurux Ltd
+ * @see GXNetConnection#isWritable()
+ */
+public interface IGXNetWritabilityListener {
+    /**
+     * Called when amount of pending bytes of the connection exceeds high
+     * watermark or drops to low watermark.
+     * 
+     * @param sender
+     *            The source of the event.
+     * @param e
+     *            Event arguments.
+     */
+    void onWritabilityChanged(Object sender, ConnectionEventArgs e);
+}
@@ -0,0 +1,76 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Request correlator matches received replies to the pipelined requests.
+ * <p>
+ * When correlator is not used, replies are matched to the requests in the
+ * order the requests were sent. Correlator is needed when device answers
+ * with an invoke ID and the replies can come in different order. Replies
+ * must be complete frames, so with TCP/IP frame decoder should be also
+ * used.
+ * </p>
+ * 
+ * @author Gurux Ltd
+ * @see GXNet#setRequestCorrelator(IGXRequestCorrelator)
+ * @see GXNet#setFrameDecoder(IGXFrameDecoder)
+ */
+public interface IGXRequestCorrelator {
+    /**
+     * Get correlation ID of the sent request.
+     * 
+     * @param data
+     *            Sent data.
+     * @return Correlation ID or null, if request does not have it. Requests
+     *         without correlation ID are rejected.
+     */
+    Object getRequestId(byte[] data);
+
+    /**
+     * Get correlation ID of the received reply.
+     * 
+     * @param data
+     *            Received data.
+     * @param index
+     *            Start index of the reply.
+     * @param count
+     *            Length of the reply.
+     * @return Correlation ID or null, if reply does not have it. Reply
+     *         without ID is delivered to the listeners.
+     */
+    Object getReplyId(byte[] data, int index, int count);
+}
@@ -39,6 +39,9 @@ import java.net.ServerSocket;
 import java.net.Socket;
 
 import gurux.common.AutoResetEvent;
+import gurux.net.enums.AdmissionMode;
+import gurux.net.enums.ConnectionRejectReason;
+import gurux.net.enums.NetworkEngine;
 
 /**
  * Receive thread listens socket and sends received data to the listeners.
@@ -46,12 +49,16 @@ import gurux.common.AutoResetEvent;
  * @author Gurux Ltd.
  *
  */
-class ListenerThread extends Thread {
+class ListenerThread implements Runnable {
 
     /**
      * Is thread started.
      */
     private AutoResetEvent started = new AutoResetEvent(false);
+    /**
+     * Thread where server socket is listened.
+     */
+    private final Thread thread;
     /**
      * Server socket.
      */
@@ -70,9 +77,38 @@ class ListenerThread extends Thread {
      *            Socket to listen.
      */
     ListenerThread(final GXNet parent, final java.io.Closeable socket) {
-        super("GXNet " + socket.toString());
         parentMedia = parent;
         serverSocket = (ServerSocket) socket;
+        thread = NetThreads.newThread(this, "GXNet " + socket.toString(),
+                parent.getEngine() == NetworkEngine.VIRTUAL_THREAD);
+    }
+
+    /**
+     * Start the thread.
+     */
+    public final void start() {
+        thread.start();
+    }
+
+    /**
+     * Interrupt the thread.
+     */
+    public final void interrupt() {
+        thread.interrupt();
+    }
+
+    /**
+     * Wait until the thread dies.
+     * 
+     * @param millis
+     *            Wait time in milliseconds.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    public final void join(final long millis) throws InterruptedException {
+        if (thread != Thread.currentThread()) {
+            thread.join(millis);
+        }
     }
 
     /**
@@ -93,32 +129,43 @@ class ListenerThread extends Thread {
         // Notify caller that thread is started.
         started.set();
         Socket socket;
+        ConnectionRejectReason reason;
         while (!Thread.currentThread().isInterrupted()) {
             try {
+                if (parentMedia.getAdmissionMode() == AdmissionMode.QUEUE) {
+                    // Clients wait in the accept backlog until a client
+                    // disconnects.
+                    parentMedia.getAdmission().waitUntilFree();
+                }
                 socket = null;
                 socket = serverSocket.accept();
-                synchronized (parentMedia.getTcpIpClients()) {
-                    parentMedia.getTcpIpClients().add(socket);
+                reason = parentMedia.admit(socket.getInetAddress());
+                if (reason != ConnectionRejectReason.NONE) {
+                    String info =
+                            String.valueOf(socket.getRemoteSocketAddress());
+                    // Reset the connection so that the socket is released
+                    // immediately.
+                    socket.setSoLinger(true, 0);
+                    socket.close();
+                    parentMedia.notifyClientRejected(info, reason);
+                    continue;
                 }
-                ConnectionEventArgs c = new ConnectionEventArgs(
-                        String.valueOf(socket.getRemoteSocketAddress()));
+                SocketConnection connection = new SocketConnection(parentMedia,
+                        socket, parentMedia.getQueuedWrite());
+                parentMedia.addConnection(connection);
+                ConnectionEventArgs c = new ConnectionEventArgs(connection);
                 parentMedia.notifyClientConnected(c);
                 if (!c.getAccept()) {
-                    synchronized (parentMedia.getTcpIpClients()) {
-                        parentMedia.getTcpIpClients().remove(socket);
-                    }
+                    parentMedia.removeConnection(connection);
                     socket.sendUrgentData(0);
                     socket.shutdownInput();
                     socket.close();
                 } else {
                     // Check that media is not attached.
-                    boolean exist;
-                    synchronized (parentMedia.getTcpIpClients()) {
-                        exist = parentMedia.getTcpIpClients().contains(socket);
-                    }
-                    if (exist) {
+                    if (parentMedia.getConnection(
+                            connection.getInfo()) == connection) {
                         ReceiveThread receiver = new ReceiveThread(parentMedia,
-                                (java.io.Closeable) socket);
+                                (java.io.Closeable) socket, connection);
                         receiver.start();
                     }
                 }
@@ -129,6 +176,8 @@ class ListenerThread extends Thread {
                             .notifyError(new RuntimeException(ex.getMessage()));
                 }
                 continue;
+            } catch (InterruptedException ex) {
+                break;
             }
         }
     }
@@ -0,0 +1,228 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+import gurux.common.ReceiveParameters;
+
+/**
+ * Request that is waiting for the reply.
+ * 
+ * @param <T>
+ *            Reply type.
+ * @author Gurux Ltd.
+ *
+ */
+final class PendingRequest<T> {
+    /**
+     * Sent data.
+     */
+    private final Object data;
+    /**
+     * Correlation ID. Null if replies are in the same order as requests.
+     */
+    private final Object id;
+    /**
+     * Receive parameters.
+     */
+    private final ReceiveParameters<T> args;
+    /**
+     * Future that is completed when reply is received.
+     */
+    private final CompletableFuture<T> future = new CompletableFuture<T>();
+    /**
+     * Received data.
+     */
+    private final FrameBuffer reply = new FrameBuffer();
+    /**
+     * Compiled end of packet. Null if end of packet is not used.
+     */
+    private final EopMatcher matcher;
+    /**
+     * Timeout task. Null if reply is waited forever.
+     */
+    private ScheduledFuture<?> timeout;
+
+    /**
+     * Constructor.
+     * 
+     * @param value
+     *            Sent data.
+     * @param correlationId
+     *            Correlation ID. Null if replies are in the same order as
+     *            requests.
+     * @param parameters
+     *            Receive parameters.
+     */
+    PendingRequest(final Object value, final Object correlationId,
+            final ReceiveParameters<T> parameters) {
+        if (parameters.getReplyType() != byte[].class
+                && parameters.getReplyType() != String.class) {
+            throw new IllegalArgumentException("Invalid reply type.");
+        }
+        data = value;
+        id = correlationId;
+        args = parameters;
+        matcher = EopMatcher.compile(parameters.getEop());
+    }
+
+    /**
+     * @return Sent data.
+     */
+    Object getData() {
+        return data;
+    }
+
+    /**
+     * @return Correlation ID.
+     */
+    Object getId() {
+        return id;
+    }
+
+    /**
+     * @return Future that is completed when reply is received.
+     */
+    CompletableFuture<T> getFuture() {
+        return future;
+    }
+
+    /**
+     * @param value
+     *            Timeout task.
+     */
+    void setTimeout(final ScheduledFuture<?> value) {
+        timeout = value;
+    }
+
+    /**
+     * Check is reply received or request failed.
+     * 
+     * @return True, if request is completed.
+     */
+    boolean isDone() {
+        return future.isDone();
+    }
+
+    /**
+     * Add received data to the reply. Request is completed when the end of
+     * packet is found or wanted amount of bytes is received. If neither is
+     * given, the first received data is the reply.
+     * 
+     * @param buffer
+     *            Received data.
+     * @param index
+     *            Start index.
+     * @param length
+     *            Amount of bytes.
+     * @return Amount of bytes that belong to this reply.
+     */
+    int offer(final byte[] buffer, final int index, final int length) {
+        int count = args.getCount();
+        int end = -1;
+        if (matcher != null) {
+            if (count > 0) {
+                // End of packet is accepted only after count bytes. Data is
+                // searched byte by byte so that match state stays valid.
+                for (int pos = index; pos != index + length; ++pos) {
+                    if (matcher.find(buffer, pos, 1) != -1
+                            && reply.size() + pos + 1 - index >= count) {
+                        end = pos + 1;
+                        break;
+                    }
+                }
+            } else {
+                end = matcher.find(buffer, index, length);
+            }
+        } else if (count > 0) {
+            if (reply.size() + length >= count) {
+                end = index + count - reply.size();
+            }
+        } else {
+            end = index + length;
+        }
+        if (end == -1) {
+            reply.append(buffer, index, length);
+            return length;
+        }
+        reply.append(buffer, index, end - index);
+        complete();
+        return end - index;
+    }
+
+    /**
+     * Complete the request with the received data.
+     */
+    @SuppressWarnings("unchecked")
+    private void complete() {
+        byte[] tmp = new byte[reply.size()];
+        if (tmp.length != 0) {
+            System.arraycopy(reply.getData(), 0, tmp, 0, tmp.length);
+        }
+        reply.clear();
+        T value;
+        if (args.getReplyType() == String.class) {
+            value = (T) new String(tmp);
+        } else {
+            value = (T) tmp;
+        }
+        args.setReply(value);
+        cancelTimeout();
+        future.complete(value);
+    }
+
+    /**
+     * Complete the request with an exception.
+     * 
+     * @param ex
+     *            Occurred exception.
+     */
+    void fail(final Throwable ex) {
+        cancelTimeout();
+        future.completeExceptionally(ex);
+    }
+
+    /**
+     * Cancel timeout task.
+     */
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+}
@@ -35,20 +35,17 @@
 package gurux.net;
 
 import java.io.Closeable;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.lang.reflect.Array;
+import java.io.InputStream;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 
 import gurux.common.AutoResetEvent;
-import gurux.common.GXSynchronousMediaBase;
-import gurux.common.ReceiveEventArgs;
-import gurux.common.TraceEventArgs;
-import gurux.common.enums.TraceLevel;
-import gurux.common.enums.TraceTypes;
+import gurux.net.enums.NetworkEngine;
+import gurux.net.enums.ReceiveMode;
 
 /**
  * Receive thread listens socket and sends received data to the listeners.
@@ -56,12 +53,16 @@ import gurux.common.enums.TraceTypes;
  * @author Gurux Ltd.
  *
  */
-class ReceiveThread extends Thread {
+class ReceiveThread implements Runnable {
 
     /**
      * Is thread started.
      */
     private AutoResetEvent started = new AutoResetEvent(false);
+    /**
+     * Thread where socket is listened.
+     */
+    private final Thread thread;
     /**
      * Socket.
      */
@@ -70,22 +71,41 @@ class ReceiveThread extends Thread {
      * Parent component where notifies are send.
      */
     private GXNet parentMedia;
+    /**
+     * Input stream of TCP/IP socket.
+     */
+    private InputStream input;
     /**
      * Buffer where received data is saved.
      */
     private byte[] buffer = null;
 
     /**
-     * Amount of received bytes.
+     * Incomplete frame of TCP/IP stream.
+     */
+    private final FrameBuffer frames = new FrameBuffer();
+
+    /**
+     * Adapts buffer size to received data. Null if buffer size is fixed.
+     */
+    private AdaptiveBuffer adaptiveBuffer;
+
+    /**
+     * Client connection in TCP/IP server mode. Otherwise null.
      */
-    private long bytesReceived = 0;
+    private final GXNetConnection connection;
 
-    byte[] receiveBuffer = new byte[1518];
     /**
-     * Size of receive buffer. Ethernet maximum frame size is 1518 bytes.
+     * Default size of receive buffer. Ethernet maximum frame size is 1518
+     * bytes.
      */
     public static final int RECEIVE_BUFFER_SIZE = 1518;
 
+    /**
+     * Default maximum size of adaptive receive buffer.
+     */
+    public static final int MAX_RECEIVE_BUFFER_SIZE = 65536;
+
     /**
      * Constructor.
      * 
@@ -95,26 +115,67 @@ class ReceiveThread extends Thread {
      *            Socket to listen.
      */
     ReceiveThread(final GXNet parent, final Closeable s) {
-        super("GXNet " + s.toString());
+        this(parent, s, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Parent media.
+     * @param s
+     *            Socket to listen.
+     * @param c
+     *            Client connection in TCP/IP server mode.
+     */
+    ReceiveThread(final GXNet parent, final Closeable s,
+            final GXNetConnection c) {
         parentMedia = parent;
+        connection = c;
         socket = s;
-        buffer = new byte[RECEIVE_BUFFER_SIZE];
+        buffer = new byte[parent.getReceiveBufferSize()];
+        // UDP datagram must fit to the buffer.
+        if (parent.getAdaptiveReceiveBuffer() && s instanceof Socket) {
+            adaptiveBuffer = new AdaptiveBuffer(buffer.length,
+                    parent.getMaxReceiveBufferSize());
+        }
+        thread = NetThreads.newThread(this, "GXNet " + s.toString(),
+                parent.getEngine() == NetworkEngine.VIRTUAL_THREAD);
     }
 
     /**
-     * Get amount of received bytes.
-     * 
-     * @return Amount of received bytes.
+     * Start the thread.
+     */
+    public final void start() {
+        thread.start();
+    }
+
+    /**
+     * Interrupt the thread.
      */
-    public final long getBytesReceived() {
-        return bytesReceived;
+    public final void interrupt() {
+        thread.interrupt();
     }
 
     /**
-     * Reset amount of received bytes.
+     * @return True, if the thread is running.
      */
-    public final void resetBytesReceived() {
-        bytesReceived = 0;
+    public final boolean isAlive() {
+        return thread.isAlive();
+    }
+
+    /**
+     * Wait until the thread dies.
+     * 
+     * @param millis
+     *            Wait time in milliseconds.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    public final void join(final long millis) throws InterruptedException {
+        if (thread != Thread.currentThread()) {
+            thread.join(millis);
+        }
     }
 
     /**
@@ -135,55 +196,46 @@ class ReceiveThread extends Thread {
      *            Sender information.
      */
     private void handleReceivedData(final int length, final String info) {
-        if (length == 0) {
-            return;
+        FrameBuffer tmp = null;
+        if (socket instanceof Socket) {
+            tmp = frames;
         }
-        Object eop = parentMedia.getEop();
-        bytesReceived += length;
-        int totalCount = 0;
-        if (parentMedia.getIsSynchronous()) {
-            TraceEventArgs arg = null;
-            synchronized (parentMedia.getSyncBase().getSync()) {
-                parentMedia.getSyncBase().appendData(buffer, 0, length);
-                // Search end of packet if it is given.
-                if (eop != null) {
-                    if (eop instanceof Array) {
-                        for (Object it : (Object[]) eop) {
-                            totalCount = GXSynchronousMediaBase.indexOf(buffer,
-                                    GXSynchronousMediaBase.getAsByteArray(it),
-                                    0, length);
-                            if (totalCount != -1) {
-                                break;
-                            }
-                        }
-                    } else {
-                        totalCount = GXSynchronousMediaBase.indexOf(buffer,
-                                GXSynchronousMediaBase.getAsByteArray(eop), 0,
-                                length);
-                    }
-                }
-                if (totalCount != -1) {
-                    if (parentMedia.getTrace() == TraceLevel.VERBOSE) {
-                        arg = new gurux.common.TraceEventArgs(
-                                TraceTypes.RECEIVED, buffer, 0, totalCount + 1);
-                    }
-                    parentMedia.getSyncBase().setReceived();
-                }
-            }
-            if (arg != null) {
-                parentMedia.notifyTrace(arg);
-            }
-        } else {
-            parentMedia.getSyncBase().resetReceivedSize();
-            byte[] data = new byte[length];
-            System.arraycopy(buffer, 0, data, 0, length);
-            if (parentMedia.getTrace() == TraceLevel.VERBOSE) {
-                parentMedia.notifyTrace(new gurux.common.TraceEventArgs(
-                        TraceTypes.RECEIVED, data));
+        parentMedia.handleReceivedData(buffer, length, info, tmp, connection);
+        if (adaptiveBuffer != null) {
+            buffer = adaptiveBuffer.next(buffer, length);
+        }
+    }
+
+    /**
+     * Wait data to the beginning of the buffer. If adaptive buffer has grown
+     * and nothing is received during the idle time, buffer returns to its
+     * initial size so idle connection doesn't keep a large buffer.
+     * 
+     * @param s
+     *            socket to read.
+     * @param length
+     *            Maximum amount of bytes to read.
+     * @return Amount of read bytes or -1 if connection is closed.
+     * @throws IOException
+     *             occurred exception.
+     */
+    private int read(final Socket s, final int length) throws IOException {
+        if (adaptiveBuffer == null || !adaptiveBuffer.isGrown(buffer)) {
+            return input.read(buffer, 0, length);
+        }
+        int timeout = s.getSoTimeout();
+        s.setSoTimeout(AdaptiveBuffer.IDLE_TIME);
+        try {
+            return input.read(buffer, 0, length);
+        } catch (SocketTimeoutException e) {
+            // Connection is idle.
+            buffer = adaptiveBuffer.reset();
+        } finally {
+            if (!s.isClosed()) {
+                s.setSoTimeout(timeout);
             }
-            ReceiveEventArgs e = new ReceiveEventArgs(data, info);
-            parentMedia.notifyReceived(e);
         }
+        return input.read(buffer, 0, Math.min(length, buffer.length));
     }
 
     /**
@@ -191,33 +243,94 @@ class ReceiveThread extends Thread {
      * 
      * @param s
      *            socket to read.
+     * @param info
+     *            Sender information.
+     * @return False, if connection is closed.
      * @throws IOException
      *             occurred exception.
      * @throws InterruptedException
      */
-    private boolean handleTCP(final Socket s)
+    private boolean handleTCP(final Socket s, final String info)
             throws IOException, InterruptedException {
-        DataInputStream in = new DataInputStream(s.getInputStream());
-        int count = in.read(buffer, 0, 1);
+        if (input == null) {
+            input = s.getInputStream();
+        }
+        if (parentMedia.getReceiveMode() == ReceiveMode.IMMEDIATE) {
+            return readImmediate(s, info);
+        }
+        int count = read(s, 1);
         if (count == -1) {
-            in.close();
+            input.close();
             return false;
         }
         Thread.sleep(parentMedia.getReceiveDelay());
-        while (in.available() != 0) {
-            int cnt = in.available();
+        while (input.available() != 0) {
+            int cnt = input.available();
             if (count + cnt > buffer.length) {
                 cnt = buffer.length - count;
             }
-            count += in.read(buffer, count, cnt);
+            count += input.read(buffer, count, cnt);
             // If buffer is full.
             if (count == buffer.length) {
-                handleReceivedData(count,
-                        s.getRemoteSocketAddress().toString());
+                handleReceivedData(count, info);
                 count = 0;
             }
         }
-        handleReceivedData(count, s.getRemoteSocketAddress().toString());
+        handleReceivedData(count, info);
+        return true;
+    }
+
+    /**
+     * Read available data from TCP/IP stream with one blocking read and
+     * handle it immediately. If coalesce time is set, data that arrives
+     * within the coalesce time is handled with the first read.
+     * 
+     * @param s
+     *            socket to read.
+     * @param info
+     *            Sender information.
+     * @return False, if connection is closed.
+     * @throws IOException
+     *             occurred exception.
+     */
+    private boolean readImmediate(final Socket s, final String info)
+            throws IOException {
+        int count = read(s, buffer.length);
+        if (count == -1) {
+            input.close();
+            return false;
+        }
+        int coalesceTime = parentMedia.getCoalesceTime();
+        if (coalesceTime > 0 && count != buffer.length) {
+            long end = System.nanoTime() + coalesceTime * 1000000L;
+            int timeout = s.getSoTimeout();
+            try {
+                while (count != buffer.length) {
+                    int remaining =
+                            (int) ((end - System.nanoTime()) / 1000000L);
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    s.setSoTimeout(remaining);
+                    int cnt;
+                    try {
+                        cnt = input.read(buffer, count, buffer.length - count);
+                    } catch (SocketTimeoutException e) {
+                        break;
+                    }
+                    if (cnt == -1) {
+                        handleReceivedData(count, info);
+                        return false;
+                    }
+                    count += cnt;
+                }
+            } finally {
+                if (!s.isClosed()) {
+                    s.setSoTimeout(timeout);
+                }
+            }
+        }
+        handleReceivedData(count, info);
         return true;
     }
 
@@ -233,24 +346,16 @@ class ReceiveThread extends Thread {
         if (socket instanceof Socket) {
             Socket s = (Socket) socket;
             String info = String.valueOf(s.getRemoteSocketAddress());
+            boolean closed = false;
             while (!Thread.currentThread().isInterrupted()) {
                 try {
-                    if (!handleTCP(s)) {
+                    if (!handleTCP(s, info)) {
+                        closed = true;
                         break;
                     }
                 } catch (java.net.SocketException e) {
                     if (parentMedia.getServer()) {
-                        // Client has close the connection.
-                        synchronized (parentMedia.getTcpIpClients()) {
-                            parentMedia.getTcpIpClients().remove(s);
-                        }
-                        parentMedia.notifyClientDisconnected(
-                                new ConnectionEventArgs(info));
-                        try {
-                            s.close();
-                        } catch (IOException e1) {
-                            // It's OK if this fails.
-                        }
+                        closed = true;
                     } else {
                         // If client.
                         if (!Thread.currentThread().isInterrupted()) {
@@ -265,11 +370,30 @@ class ReceiveThread extends Thread {
                         parentMedia.notifyError(
                                 new RuntimeException(e.getMessage()));
                     }
+                    // Client connection is removed and closed also when
+                    // reading fails.
+                    closed = parentMedia.getServer();
                     break;
                 } catch (InterruptedException e) {
                     break;
                 }
             }
+            if (closed && parentMedia.getServer()) {
+                // Client has close the connection.
+                GXNetConnection c = parentMedia.getConnection(info);
+                ConnectionEventArgs e;
+                if (c != null && parentMedia.removeConnection(c)) {
+                    e = new ConnectionEventArgs(c);
+                } else {
+                    e = new ConnectionEventArgs(info);
+                }
+                parentMedia.notifyClientDisconnected(e);
+                try {
+                    s.close();
+                } catch (IOException e1) {
+                    // It's OK if this fails.
+                }
+            }
         } else {
             // If UDP
             DatagramPacket receivePacket =
@@ -280,8 +404,7 @@ class ReceiveThread extends Thread {
                     InetSocketAddress socketAddress =
                             (InetSocketAddress) receivePacket
                                     .getSocketAddress();
-                    String address = socketAddress.getHostName() + ":"
-                            + String.valueOf(socketAddress.getPort());
+                    String address = parentMedia.getSenderInfo(socketAddress);
                     handleReceivedData(receivePacket.getLength(), address);
                 } catch (java.net.SocketException e) {
                     break;
@@ -0,0 +1,278 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+
+/**
+ * Pipelined requests of one target.
+ * <p>
+ * Requests are sent in the same order they are waiting for the reply. Only
+ * one thread sends at the time and the queue lock is not held while
+ * sending, so receiving and timeouts are not blocked by a slow send.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class RequestQueue {
+    /**
+     * Media that sends the requests.
+     */
+    private final GXNet parentMedia;
+    /**
+     * Receiver of the requests.
+     */
+    private final String target;
+    /**
+     * Sent requests that are waiting for the reply.
+     */
+    private final Queue<PendingRequest<?>> pending =
+            new ArrayDeque<PendingRequest<?>>();
+    /**
+     * Requests that are waiting to be sent, because pipeline is full.
+     */
+    private final Queue<PendingRequest<?>> waiting =
+            new ArrayDeque<PendingRequest<?>>();
+    /**
+     * Requests that are moved to the pipeline and must be sent.
+     */
+    private final Queue<PendingRequest<?>> outbox =
+            new ArrayDeque<PendingRequest<?>>();
+    /**
+     * Is a thread sending the requests of the outbox.
+     */
+    private boolean sending;
+    /**
+     * Exception that failed the requests. Null if queue is in use.
+     */
+    private Exception failure;
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Media that sends the requests.
+     * @param receiver
+     *            Receiver of the requests.
+     */
+    RequestQueue(final GXNet parent, final String receiver) {
+        parentMedia = parent;
+        target = receiver;
+    }
+
+    /**
+     * Send the request or queue it if pipeline is full.
+     * 
+     * @param r
+     *            Request.
+     */
+    void add(final PendingRequest<?> r) {
+        Exception ex;
+        synchronized (this) {
+            ex = failure;
+            if (ex == null) {
+                waiting.add(r);
+                sendWaiting();
+            }
+        }
+        if (ex != null) {
+            // Queue was removed when the request was added to it.
+            r.fail(ex);
+            return;
+        }
+        flush();
+    }
+
+    /**
+     * Remove request after it's timed out.
+     * 
+     * @param r
+     *            Request.
+     */
+    void remove(final PendingRequest<?> r) {
+        synchronized (this) {
+            if (!pending.remove(r)) {
+                waiting.remove(r);
+            }
+            outbox.remove(r);
+            sendWaiting();
+        }
+        flush();
+    }
+
+    /**
+     * Give received data to the requests.
+     * 
+     * @param buffer
+     *            Received data.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     * @param correlator
+     *            Request correlator. Null if replies are in the same order
+     *            as requests.
+     * @return Amount of bytes that belong to the replies.
+     */
+    int offer(final byte[] buffer, final int index, final int length,
+            final IGXRequestCorrelator correlator) {
+        int count = take(buffer, index, length, correlator);
+        if (count != 0) {
+            flush();
+        }
+        return count;
+    }
+
+    /**
+     * Give received data to the requests while holding the queue lock.
+     * 
+     * @param buffer
+     *            Received data.
+     * @param index
+     *            Start index of the data.
+     * @param length
+     *            Length of the data.
+     * @param correlator
+     *            Request correlator. Null if replies are in the same order
+     *            as requests.
+     * @return Amount of bytes that belong to the replies.
+     */
+    private synchronized int take(final byte[] buffer, final int index,
+            final int length, final IGXRequestCorrelator correlator) {
+        int count = 0;
+        if (correlator == null) {
+            PendingRequest<?> r;
+            while (count != length && (r = pending.peek()) != null) {
+                count += r.offer(buffer, index + count, length - count);
+                if (r.isDone()) {
+                    pending.poll();
+                }
+            }
+        } else {
+            Object id = correlator.getReplyId(buffer, index, length);
+            if (id != null) {
+                Iterator<PendingRequest<?>> it = pending.iterator();
+                while (it.hasNext()) {
+                    PendingRequest<?> r = it.next();
+                    if (id.equals(r.getId())) {
+                        count = r.offer(buffer, index, length);
+                        if (r.isDone()) {
+                            it.remove();
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        if (count != 0) {
+            sendWaiting();
+        }
+        return count;
+    }
+
+    /**
+     * Fail all requests.
+     * 
+     * @param ex
+     *            Occurred exception.
+     */
+    synchronized void fail(final Exception ex) {
+        failure = ex;
+        outbox.clear();
+        PendingRequest<?> r;
+        while ((r = pending.poll()) != null) {
+            r.fail(ex);
+        }
+        while ((r = waiting.poll()) != null) {
+            r.fail(ex);
+        }
+    }
+
+    /**
+     * Move waiting requests to the pipeline while there is room in it. This
+     * is called while holding the queue lock.
+     */
+    private void sendWaiting() {
+        int depth = parentMedia.getPipelineDepth();
+        PendingRequest<?> r;
+        while ((depth == 0 || pending.size() < depth)
+                && (r = waiting.poll()) != null) {
+            if (r.isDone()) {
+                continue;
+            }
+            pending.add(r);
+            outbox.add(r);
+        }
+    }
+
+    /**
+     * Send the requests of the outbox without holding the queue lock. If
+     * another thread is already sending, it sends the new requests too.
+     */
+    private void flush() {
+        synchronized (this) {
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+        while (true) {
+            PendingRequest<?> r;
+            synchronized (this) {
+                r = outbox.poll();
+                if (r == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            if (r.isDone()) {
+                continue;
+            }
+            try {
+                parentMedia.send(r.getData(), target);
+            } catch (Exception e) {
+                synchronized (this) {
+                    pending.remove(r);
+                    sendWaiting();
+                }
+                r.fail(e);
+            }
+        }
+    }
+}
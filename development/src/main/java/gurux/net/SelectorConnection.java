@@ -0,0 +1,268 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * TCP/IP client connection that is served by a selector event loop.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class SelectorConnection extends GXNetConnection {
+    /**
+     * Server that serves this connection.
+     */
+    private final SelectorServer server;
+    /**
+     * Client channel.
+     */
+    private final SocketChannel channel;
+    /**
+     * Event loop that serves this connection.
+     */
+    private volatile SelectorLoop loop;
+    /**
+     * Selection key. Null until connection is registered to the event loop.
+     */
+    private volatile SelectionKey key;
+    /**
+     * Incomplete frame.
+     */
+    private final FrameBuffer frames = new FrameBuffer();
+    /**
+     * Data that is waiting to be written.
+     */
+    private final Queue<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+    /**
+     * Is reading paused. This is used only from the event loop.
+     */
+    private boolean readPaused;
+
+    /**
+     * Constructor.
+     * 
+     * @param owner
+     *            Server that serves this connection.
+     * @param ch
+     *            Client channel.
+     */
+    SelectorConnection(final SelectorServer owner, final SocketChannel ch) {
+        super(owner.getParentMedia(), ch.socket().getRemoteSocketAddress());
+        server = owner;
+        channel = ch;
+    }
+
+    /**
+     * @return Client channel.
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return Incomplete frame.
+     */
+    FrameBuffer getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return Event loop that serves this connection.
+     */
+    SelectorLoop getLoop() {
+        return loop;
+    }
+
+    /**
+     * @param value
+     *            Event loop that serves this connection.
+     */
+    void setLoop(final SelectorLoop value) {
+        loop = value;
+    }
+
+    /**
+     * @return Selection key.
+     */
+    SelectionKey getKey() {
+        return key;
+    }
+
+    /**
+     * @param value
+     *            Selection key.
+     */
+    void setKey(final SelectionKey value) {
+        key = value;
+    }
+
+    /**
+     * Write data to the client. Data that can't be written immediately is
+     * queued and written when the channel becomes writable.
+     * 
+     * @param value
+     *            Data to send.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    @Override
+    void send(final byte[] value) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(value);
+        boolean changed;
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                channel.write(data);
+                if (!data.hasRemaining()) {
+                    return;
+                }
+            }
+            // Bytes are counted before data is queued so the event loop
+            // can't remove them before they are added.
+            changed = addPendingBytes(data.remaining());
+            pending.add(data);
+            if (pending.size() == 1 && loop != null) {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        updateInterestOps();
+                    }
+                });
+            }
+        }
+        // Listeners are notified outside of the lock.
+        if (changed) {
+            notifyWritabilityChanged();
+        }
+    }
+
+    /**
+     * Check is there data waiting to be written.
+     * 
+     * @return True, if data is waiting to be written.
+     */
+    boolean hasPending() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    /**
+     * Update selected events of the connection. This is called from the
+     * event loop.
+     */
+    private void updateInterestOps() {
+        SelectionKey k = key;
+        if (k != null && k.isValid()) {
+            int ops = 0;
+            if (!readPaused) {
+                ops = SelectionKey.OP_READ;
+            }
+            if (hasPending()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            k.interestOps(ops);
+        }
+    }
+
+    /**
+     * Stop selecting read events so the event loop continues serving the
+     * other connections.
+     */
+    @Override
+    boolean pauseReading() {
+        readPaused = true;
+        updateInterestOps();
+        return true;
+    }
+
+    @Override
+    void resumeReading() {
+        SelectorLoop tmp = loop;
+        if (tmp != null) {
+            tmp.execute(new Runnable() {
+                @Override
+                public void run() {
+                    readPaused = false;
+                    updateInterestOps();
+                }
+            });
+        }
+    }
+
+    @Override
+    boolean isQueued() {
+        return true;
+    }
+
+    @Override
+    void close() throws IOException {
+        server.disconnect(this);
+    }
+
+    /**
+     * Write queued data. This is called from the event loop when the channel
+     * is writable.
+     * 
+     * @throws IOException
+     *             Occurred exception.
+     */
+    void flush() throws IOException {
+        int count = 0;
+        try {
+            synchronized (pending) {
+                ByteBuffer data;
+                while ((data = pending.peek()) != null) {
+                    count += channel.write(data);
+                    if (data.hasRemaining()) {
+                        return;
+                    }
+                    pending.poll();
+                }
+                updateInterestOps();
+            }
+        } finally {
+            // Listeners are notified outside of the lock.
+            updatePendingBytes(-count);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import gurux.common.AutoResetEvent;
+
+/**
+ * Selector event loop that serves accept, read and write events of the
+ * connections that are registered to it.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class SelectorLoop extends Thread {
+    /**
+     * Is thread started.
+     */
+    private AutoResetEvent started = new AutoResetEvent(false);
+    /**
+     * Server that owns this event loop.
+     */
+    private final SelectorServer server;
+    /**
+     * Used selector.
+     */
+    private final Selector selector;
+    /**
+     * Tasks that are executed in the event loop.
+     */
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    /**
+     * Read buffer. Received data is handled before next read so all the
+     * connections of the event loop can share the same buffer.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor.
+     * 
+     * @param owner
+     *            Server that owns this event loop.
+     * @param name
+     *            Thread name.
+     * @param bufferSize
+     *            Size of read buffer.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    SelectorLoop(final SelectorServer owner, final String name,
+            final int bufferSize) throws IOException {
+        super(name);
+        server = owner;
+        buffer = ByteBuffer.allocate(bufferSize);
+        selector = Selector.open();
+    }
+
+    /**
+     * @return Used selector.
+     */
+    Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Wait until thread is started.
+     * 
+     * @return true, if thread started.
+     */
+    public boolean waitUntilRun() {
+        return started.waitOne();
+    }
+
+    /**
+     * Execute task in the event loop.
+     * 
+     * @param task
+     *            Executed task.
+     */
+    void execute(final Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Execute task in the event loop and wait until it's executed.
+     * 
+     * @param task
+     *            Executed task.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    void invokeAndWait(final Runnable task) throws IOException {
+        if (Thread.currentThread() == this) {
+            task.run();
+            return;
+        }
+        FutureTask<Void> f = new FutureTask<Void>(task, null);
+        execute(f);
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Register connection to the event loop.
+     * 
+     * @param connection
+     *            Registered connection.
+     */
+    void register(final SelectorConnection connection) {
+        connection.setLoop(this);
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                // Connection might be attached or closed before it's
+                // registered.
+                if (server.isConnected(connection)) {
+                    // Data sent before the connection was registered is
+                    // written when the channel becomes writable.
+                    int ops = SelectionKey.OP_READ;
+                    if (connection.hasPending()) {
+                        ops |= SelectionKey.OP_WRITE;
+                    }
+                    try {
+                        connection.setKey(connection.getChannel().register(
+                                selector, ops, connection));
+                    } catch (IOException e) {
+                        server.disconnect(connection);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Remove connection from the event loop.
+     * 
+     * @param connection
+     *            Removed connection.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    void unregister(final SelectorConnection connection) throws IOException {
+        if (Thread.currentThread() == this) {
+            // Selected keys are iterated. Cancelled key is removed on next
+            // selection of the event loop.
+            SelectionKey key = connection.getKey();
+            if (key != null) {
+                key.cancel();
+                connection.setKey(null);
+            }
+            return;
+        }
+        invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                SelectionKey key = connection.getKey();
+                if (key != null) {
+                    key.cancel();
+                    try {
+                        // Cancelled key is removed on next selection.
+                        selector.selectNow();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e.getMessage());
+                    }
+                    connection.setKey(null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Read data from the connection.
+     * 
+     * @param connection
+     *            Connection to read.
+     */
+    private void read(final SelectorConnection connection) {
+        int count;
+        buffer.clear();
+        try {
+            count = connection.getChannel().read(buffer);
+        } catch (IOException e) {
+            count = -1;
+        }
+        if (count == -1) {
+            server.disconnect(connection);
+        } else if (count != 0) {
+            server.handleReceivedData(buffer.array(), count, connection);
+        }
+    }
+
+    /**
+     * Handle selected key.
+     * 
+     * @param key
+     *            Selected key.
+     */
+    private void handle(final SelectionKey key) {
+        if (key.isAcceptable()) {
+            server.accept();
+        } else {
+            SelectorConnection connection =
+                    (SelectorConnection) key.attachment();
+            if (key.isReadable()) {
+                read(connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                try {
+                    connection.flush();
+                } catch (IOException e) {
+                    connection.writeFailed();
+                    server.disconnect(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serve the events of the registered connections.
+     */
+    @Override
+    public void run() {
+        // Notify caller that thread is started.
+        started.set();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException ex) {
+                        server.notifyError(ex);
+                    }
+                }
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (key.isValid()) {
+                        try {
+                            handle(key);
+                        } catch (RuntimeException ex) {
+                            // Listener failure must not stop the event loop.
+                            server.notifyError(ex);
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            if (!Thread.currentThread().isInterrupted()) {
+                server.notifyError(new RuntimeException(ex.getMessage()));
+            }
+        } catch (ClosedSelectorException ex) {
+            // Event loop is closed.
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // It's OK if this fails.
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import gurux.net.enums.AdmissionMode;
+import gurux.net.enums.ConnectionRejectReason;
+
+/**
+ * TCP/IP server that serves the connected clients with a small fixed set of
+ * selector event loops instead of a thread per connection.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class SelectorServer implements Closeable {
+    /**
+     * Parent component where notifies are send.
+     */
+    private final GXNet parentMedia;
+    /**
+     * Server channel.
+     */
+    private ServerSocketChannel serverChannel;
+    /**
+     * Selection key of the server channel.
+     */
+    private SelectionKey acceptKey;
+    /**
+     * Is accepting paused because maximum client count is reached.
+     */
+    private final AtomicBoolean paused = new AtomicBoolean();
+    /**
+     * Event loops.
+     */
+    private final SelectorLoop[] loops;
+    /**
+     * Index of the event loop where next accepted connection is registered.
+     */
+    private int next;
+    /**
+     * Connected clients by client address.
+     */
+    private final Map<String, GXNetConnection> connections;
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Parent media.
+     * @param loopCount
+     *            Amount of event loops.
+     */
+    SelectorServer(final GXNet parent, final int loopCount) {
+        if (loopCount < 1) {
+            throw new IllegalArgumentException("Invalid selector count.");
+        }
+        parentMedia = parent;
+        connections = parent.getConnectionMap();
+        loops = new SelectorLoop[loopCount];
+    }
+
+    /**
+     * Start listening the port.
+     * 
+     * @param port
+     *            Server port.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    void open(final int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port),
+                parentMedia.getAcceptBacklog());
+        serverChannel.configureBlocking(false);
+        // Read buffer is shared by all the connections of the event loop,
+        // so maximum size is used with adaptive receive buffer.
+        int bufferSize = parentMedia.getReceiveBufferSize();
+        if (parentMedia.getAdaptiveReceiveBuffer()) {
+            bufferSize = Math.max(bufferSize,
+                    parentMedia.getMaxReceiveBufferSize());
+        }
+        for (int pos = 0; pos != loops.length; ++pos) {
+            loops[pos] = new SelectorLoop(this,
+                    "GXNet selector " + port + " #" + pos, bufferSize);
+            loops[pos].start();
+            loops[pos].waitUntilRun();
+        }
+        // The first event loop accepts new connections.
+        final SelectorLoop acceptor = loops[0];
+        acceptor.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    acceptKey = serverChannel.register(
+                            acceptor.getSelector(), SelectionKey.OP_ACCEPT);
+                } catch (IOException e) {
+                    throw new RuntimeException(e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * @return Parent media.
+     */
+    GXNet getParentMedia() {
+        return parentMedia;
+    }
+
+    /**
+     * Accept pending connections. This is called from the first event loop.
+     */
+    void accept() {
+        SocketChannel ch;
+        ConnectionRejectReason reason;
+        while (true) {
+            if (parentMedia.getAdmissionMode() == AdmissionMode.QUEUE
+                    && parentMedia.getAdmission().isFull()) {
+                pauseAccept();
+                break;
+            }
+            try {
+                ch = serverChannel.accept();
+                if (ch == null) {
+                    break;
+                }
+                ch.configureBlocking(false);
+            } catch (IOException ex) {
+                notifyError(new RuntimeException(ex.getMessage()));
+                break;
+            }
+            reason = parentMedia.admit(ch.socket().getInetAddress());
+            if (reason != ConnectionRejectReason.NONE) {
+                reject(ch, reason);
+                continue;
+            }
+            SelectorConnection connection = new SelectorConnection(this, ch);
+            parentMedia.addConnection(connection);
+            ConnectionEventArgs c = new ConnectionEventArgs(connection);
+            parentMedia.notifyClientConnected(c);
+            if (!c.getAccept()) {
+                parentMedia.removeConnection(connection);
+                try {
+                    ch.close();
+                } catch (IOException e) {
+                    // It's OK if this fails.
+                }
+            } else if (isConnected(connection)) {
+                // Check that connection is not attached.
+                loops[next].register(connection);
+                next = (next + 1) % loops.length;
+            }
+        }
+    }
+
+    /**
+     * Close client that is over the limits and notify listeners.
+     * 
+     * @param ch
+     *            Client channel.
+     * @param reason
+     *            Reject reason.
+     */
+    private void reject(final SocketChannel ch,
+            final ConnectionRejectReason reason) {
+        String info = String.valueOf(ch.socket().getRemoteSocketAddress());
+        try {
+            // Reset the connection so that the socket is released
+            // immediately.
+            ch.setOption(StandardSocketOptions.SO_LINGER, 0);
+            ch.close();
+        } catch (IOException e) {
+            // It's OK if this fails.
+        }
+        parentMedia.notifyClientRejected(info, reason);
+    }
+
+    /**
+     * Stop accepting new clients. Clients wait in the accept backlog until
+     * accepting is resumed.
+     */
+    private void pauseAccept() {
+        paused.set(true);
+        acceptKey.interestOps(0);
+        // Client might have disconnected before accept was paused.
+        if (!parentMedia.getAdmission().isFull()) {
+            resumeAccept();
+        }
+    }
+
+    /**
+     * Resume accepting new clients if accepting is paused.
+     */
+    void resumeAccept() {
+        if (paused.compareAndSet(true, false)) {
+            loops[0].execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (acceptKey.isValid()) {
+                        acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Check is connection still served by this server.
+     * 
+     * @param connection
+     *            Connection to check.
+     * @return True, if connection is served.
+     */
+    boolean isConnected(final GXNetConnection connection) {
+        return connections.get(connection.getInfo()) == connection;
+    }
+
+    /**
+     * Close connection after the client has closed it or it has failed.
+     * 
+     * @param connection
+     *            Closed connection.
+     */
+    void disconnect(final SelectorConnection connection) {
+        SelectionKey key = connection.getKey();
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            connection.getChannel().close();
+        } catch (IOException e) {
+            // It's OK if this fails.
+        }
+        if (parentMedia.removeConnection(connection)) {
+            parentMedia.notifyClientDisconnected(
+                    new ConnectionEventArgs(connection));
+        }
+    }
+
+    /**
+     * Handle received data.
+     * 
+     * @param buffer
+     *            Received data.
+     * @param length
+     *            Length of received data.
+     * @param connection
+     *            Connection where data is received.
+     */
+    void handleReceivedData(final byte[] buffer, final int length,
+            final SelectorConnection connection) {
+        parentMedia.handleReceivedData(buffer, length, connection.getInfo(),
+                connection.getFrames(), connection);
+    }
+
+    /**
+     * Notify listeners from error occurred.
+     * 
+     * @param ex
+     *            Occurred error.
+     */
+    void notifyError(final RuntimeException ex) {
+        try {
+            parentMedia.notifyError(ex);
+        } catch (RuntimeException e) {
+            // Listener failure must not stop the event loop.
+        }
+    }
+
+    /**
+     * Remove client connection from the event loops. After this the
+     * connection is not served by the server. Connection is set to blocking
+     * mode before given task is run. If this is called from the event loop,
+     * channel is released when the event loop selects next time and the
+     * task is run after that.
+     * 
+     * @param connection
+     *            Client connection.
+     * @param task
+     *            Task that is run when connection is in blocking mode.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    void detach(final SelectorConnection connection, final Runnable task)
+            throws IOException {
+        parentMedia.removeConnection(connection);
+        SelectorLoop loop = connection.getLoop();
+        if (loop != null) {
+            loop.unregister(connection);
+        }
+        if (loop != null && loop == Thread.currentThread()) {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        connection.getChannel().configureBlocking(true);
+                    } catch (IOException e) {
+                        try {
+                            connection.getChannel().close();
+                        } catch (IOException ex) {
+                            // It's OK if this fails.
+                        }
+                        throw new RuntimeException(e.getMessage());
+                    }
+                    task.run();
+                }
+            });
+        } else {
+            connection.getChannel().configureBlocking(true);
+            task.run();
+        }
+    }
+
+    /**
+     * Close server and all client connections.
+     */
+    @Override
+    public void close() throws IOException {
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        for (SelectorLoop it : loops) {
+            if (it != null) {
+                it.interrupt();
+                it.getSelector().wakeup();
+            }
+        }
+        for (SelectorLoop it : loops) {
+            if (it != null && it != Thread.currentThread()) {
+                try {
+                    it.join(10000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        for (GXNetConnection it : connections.values()) {
+            if (it instanceof SelectorConnection) {
+                disconnect((SelectorConnection) it);
+            }
+        }
+    }
+}
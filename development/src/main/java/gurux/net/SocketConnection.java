@@ -0,0 +1,211 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TCP/IP client connection that is served by its own thread.
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class SocketConnection extends GXNetConnection {
+    /**
+     * Server where client is connected.
+     */
+    private final GXNet parentMedia;
+    /**
+     * Client socket.
+     */
+    private final Socket socket;
+    /**
+     * Serializes writes to the socket. Lock is used instead of monitor so
+     * virtual threads are not pinned while write is blocking.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /**
+     * Data that is waiting to be written. Null if data is written by the
+     * sender.
+     */
+    private final Queue<byte[]> pending;
+    /**
+     * Is writer task running.
+     */
+    private boolean writing;
+
+    /**
+     * Constructor.
+     * 
+     * @param parent
+     *            Server where client is connected.
+     * @param s
+     *            Client socket.
+     * @param queued
+     *            Is data queued and written by the writer thread.
+     */
+    SocketConnection(final GXNet parent, final Socket s,
+            final boolean queued) {
+        super(parent, s.getRemoteSocketAddress());
+        parentMedia = parent;
+        socket = s;
+        if (queued) {
+            pending = new ArrayDeque<byte[]>();
+        } else {
+            pending = null;
+        }
+    }
+
+    /**
+     * @return Client socket.
+     */
+    Socket getSocket() {
+        return socket;
+    }
+
+    @Override
+    void send(final byte[] data) throws IOException {
+        if (pending == null) {
+            write(data);
+            return;
+        }
+        boolean start;
+        // Bytes are counted before data is queued so writer can't remove
+        // them before they are added.
+        updatePendingBytes(data.length);
+        synchronized (pending) {
+            pending.add(data);
+            start = !writing;
+            writing = true;
+        }
+        if (start) {
+            try {
+                parentMedia.getWriteExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Server is closed.
+                dropPending();
+                throw new IOException("Connection is closed.");
+            }
+        }
+    }
+
+    /**
+     * Write data to the socket.
+     * 
+     * @param data
+     *            Data to write.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private void write(final byte[] data) throws IOException {
+        writeLock.lock();
+        try {
+            socket.getOutputStream().write(data);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Remove all queued data and release the pending bytes that it was
+     * holding.
+     */
+    private void dropPending() {
+        long count = 0;
+        synchronized (pending) {
+            for (byte[] it : pending) {
+                count += it.length;
+            }
+            pending.clear();
+            writing = false;
+        }
+        if (count != 0) {
+            updatePendingBytes(-count);
+        }
+    }
+
+    /**
+     * Write queued data. Only one writer task is running at the time, so
+     * data is written in the order it was sent.
+     */
+    private void flush() {
+        byte[] data;
+        while (true) {
+            synchronized (pending) {
+                data = pending.poll();
+                if (data == null) {
+                    writing = false;
+                    return;
+                }
+            }
+            try {
+                write(data);
+            } catch (IOException e) {
+                writeFailed();
+                dropPending();
+                try {
+                    // Receiver thread notifies that client is disconnected.
+                    socket.close();
+                } catch (IOException e1) {
+                    // It's OK if this fails.
+                }
+                return;
+            } finally {
+                updatePendingBytes(-data.length);
+            }
+        }
+    }
+
+    @Override
+    boolean isQueued() {
+        return pending != null;
+    }
+
+    @Override
+    void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,60 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.enums;
+
+/**
+ * Determines how network connections are served.
+ */
+public enum NetworkEngine {
+    /**
+     * Each connection is served by its own thread. This is the default.
+     */
+    THREAD,
+
+    /**
+     * In TCP/IP server mode connections are served by a small fixed set of
+     * selector event loops. With UDP all pending datagrams are read when
+     * the selector wakes up and they are delivered as a batch. TCP/IP client
+     * uses a thread.
+     */
+    SELECTOR,
+
+    /**
+     * Each connection is served by its own virtual thread. Requires Java 21
+     * or later.
+     */
+    VIRTUAL_THREAD;
+}
@@ -0,0 +1,84 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+/**
+ * Creates the threads that serve network connections.
+ * <p>
+ * This implementation is used with Java 21 and later where virtual threads
+ * are available.
+ * </p>
+ * 
+ * @author Gurux Ltd.
+ *
+ */
+final class NetThreads {
+
+    /**
+     * Constructor.
+     */
+    private NetThreads() {
+
+    }
+
+    /**
+     * Check are virtual threads supported.
+     * 
+     * @return True, if virtual threads are supported.
+     */
+    static boolean isVirtualSupported() {
+        return true;
+    }
+
+    /**
+     * Create a new unstarted thread.
+     * 
+     * @param target
+     *            Executed task.
+     * @param name
+     *            Thread name.
+     * @param virtual
+     *            Is virtual thread created.
+     * @return Created thread.
+     */
+    static Thread newThread(final Runnable target, final String name,
+            final boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(name).unstarted(target);
+        }
+        return new Thread(target, name);
+    }
+}
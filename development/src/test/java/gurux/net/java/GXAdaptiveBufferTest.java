@@ -0,0 +1,127 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+import gurux.net.GXNet;
+import gurux.net.enums.NetworkType;
+import gurux.net.enums.ReceiveMode;
+
+/**
+ * Unit test for adaptive receive buffer.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXAdaptiveBufferTest implements IGXMediaListener {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1011;
+
+    /**
+     * Receive buffer size.
+     */
+    private static final int BUFFER_SIZE = 1024;
+
+    /**
+     * Wait time in milliseconds.
+     */
+    private static final int WAIT_TIME = 5000;
+
+    /**
+     * Sizes of the received data.
+     */
+    private final BlockingQueue<Integer> sizes =
+            new LinkedBlockingQueue<Integer>();
+
+    /**
+     * Wait until given amount of bytes is received.
+     *
+     * @param count
+     *            Amount of bytes.
+     * @return Size of the largest read.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private int receive(final int count) throws InterruptedException {
+        int total = 0;
+        int max = 0;
+        while (total != count) {
+            Integer size = sizes.poll(WAIT_TIME, TimeUnit.MILLISECONDS);
+            assertTrue(size != null);
+            total += size;
+            max = Math.max(max, size);
+        }
+        return max;
+    }
+
+    /**
+     * Buffer grows during a large transfer and returns to its initial size
+     * when connection is idle.
+     *
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void growAndShrinkTest() throws Exception {
+        byte[] data = new byte[256 * 1024];
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT)) {
+            server.setReceiveMode(ReceiveMode.IMMEDIATE);
+            server.setReceiveBufferSize(BUFFER_SIZE);
+            server.setAdaptiveReceiveBuffer(true);
+            server.addListener(this);
+            server.open();
+            try (Socket client = new Socket("localhost", TCP_IP_PORT)) {
+                OutputStream out = client.getOutputStream();
+                out.write(data);
+                out.flush();
+                assertTrue(receive(data.length) > BUFFER_SIZE);
+                // Connection is idle longer than the idle time.
+                Thread.sleep(2000);
+                out.write(data, 0, 8 * BUFFER_SIZE);
+                out.flush();
+                // First read after idle uses the initial buffer size.
+                Integer first = sizes.poll(WAIT_TIME, TimeUnit.MILLISECONDS);
+                assertTrue(first != null && first <= BUFFER_SIZE);
+                receive(8 * BUFFER_SIZE - first);
+            }
+        }
+    }
+
+    @Override
+    public final void onError(final Object sender, final Exception ex) {
+    }
+
+    @Override
+    public final void onReceived(final Object sender,
+            final ReceiveEventArgs e) {
+        sizes.add(((byte[]) e.getData()).length);
+    }
+
+    @Override
+    public final void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public final void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public final void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
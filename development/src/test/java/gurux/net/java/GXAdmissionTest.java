@@ -0,0 +1,234 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+import gurux.net.ConnectionEventArgs;
+import gurux.net.GXNet;
+import gurux.net.IGXNetListener;
+import gurux.net.enums.AdmissionMode;
+import gurux.net.enums.ConnectionRejectReason;
+import gurux.net.enums.NetworkEngine;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Unit test for TCP/IP server admission control.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXAdmissionTest implements IGXMediaListener, IGXNetListener {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1006;
+
+    /**
+     * Reject reasons of the rejected clients.
+     */
+    private final List<ConnectionRejectReason> rejected =
+            Collections.synchronizedList(
+                    new ArrayList<ConnectionRejectReason>());
+
+    /**
+     * Wait until server has expected amount of clients.
+     * 
+     * @param server
+     *            Server.
+     * @param count
+     *            Expected client count.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private static void waitClients(final GXNet server, final int count)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (server.getConnections().size() != count
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, server.getConnections().size());
+    }
+
+    /**
+     * Wait until expected amount of clients is rejected.
+     * 
+     * @param count
+     *            Expected amount of rejected clients.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private void waitRejected(final int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (rejected.size() != count
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, rejected.size());
+    }
+
+    /**
+     * Clients over maximum client count are rejected.
+     * 
+     * @param engine
+     *            Used network engine.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private void maxClientCount(final NetworkEngine engine)
+            throws Exception {
+        rejected.clear();
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT)) {
+            server.setEngine(engine);
+            server.setMaxClientCount(2);
+            server.addListener(this);
+            server.open();
+            Socket c1 = new Socket("localhost", TCP_IP_PORT);
+            Socket c2 = new Socket("localhost", TCP_IP_PORT);
+            waitClients(server, 2);
+            Socket c3 = new Socket("localhost", TCP_IP_PORT);
+            waitRejected(1);
+            assertEquals(ConnectionRejectReason.MAX_CLIENT_COUNT,
+                    rejected.get(0));
+            c3.close();
+            c1.close();
+            waitClients(server, 1);
+            c1 = new Socket("localhost", TCP_IP_PORT);
+            waitClients(server, 2);
+            assertEquals(1, rejected.size());
+            c1.close();
+            c2.close();
+        }
+    }
+
+    /**
+     * Clients over maximum client count are rejected.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void maxClientCountTest() throws Exception {
+        maxClientCount(NetworkEngine.THREAD);
+        maxClientCount(NetworkEngine.SELECTOR);
+    }
+
+    /**
+     * Clients over maximum client count of the IP address are rejected.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void maxAddressClientCountTest() throws Exception {
+        rejected.clear();
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT)) {
+            server.setMaxAddressClientCount(1);
+            server.addListener(this);
+            server.open();
+            Socket c1 = new Socket("localhost", TCP_IP_PORT);
+            Socket c2 = new Socket("localhost", TCP_IP_PORT);
+            waitRejected(1);
+            assertEquals(ConnectionRejectReason.MAX_ADDRESS_CLIENT_COUNT,
+                    rejected.get(0));
+            waitClients(server, 1);
+            c1.close();
+            c2.close();
+        }
+    }
+
+    /**
+     * Clients over maximum client count wait until a client disconnects.
+     * 
+     * @param engine
+     *            Used network engine.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private void queue(final NetworkEngine engine) throws Exception {
+        rejected.clear();
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT)) {
+            server.setEngine(engine);
+            server.setMaxClientCount(1);
+            server.setAdmissionMode(AdmissionMode.QUEUE);
+            server.setAcceptBacklog(10);
+            server.addListener(this);
+            server.open();
+            Socket c1 = new Socket("localhost", TCP_IP_PORT);
+            waitClients(server, 1);
+            Socket c2 = new Socket("localhost", TCP_IP_PORT);
+            Thread.sleep(100);
+            assertEquals(1, server.getConnections().size());
+            c1.close();
+            long end = System.currentTimeMillis() + 5000;
+            while (server.getConnection(
+                    c2.getLocalSocketAddress().toString()) == null
+                    && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            assertTrue(server.getConnections().iterator().next().getInfo()
+                    .endsWith(":" + c2.getLocalPort()));
+            assertEquals(0, rejected.size());
+            c2.close();
+        }
+    }
+
+    /**
+     * Clients over maximum client count wait until a client disconnects.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void queueTest() throws Exception {
+        queue(NetworkEngine.THREAD);
+        queue(NetworkEngine.SELECTOR);
+    }
+
+    @Override
+    public void onClientConnected(final Object sender,
+            final ConnectionEventArgs e) {
+        if (!e.getAccept()) {
+            rejected.add(e.getReason());
+        }
+    }
+
+    @Override
+    public void onClientDisconnected(final Object sender,
+            final ConnectionEventArgs e) {
+    }
+
+    @Override
+    public void onError(final Object sender, final Exception ex) {
+    }
+
+    @Override
+    public void onReceived(final Object sender, final ReceiveEventArgs e) {
+    }
+
+    @Override
+    public void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
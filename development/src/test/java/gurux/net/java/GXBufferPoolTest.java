@@ -0,0 +1,65 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import gurux.net.GXBufferPool;
+import gurux.net.GXPooledBuffer;
+
+/**
+ * Unit test for buffer pool.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXBufferPoolTest {
+    /**
+     * Released buffer is returned to the pool and reused.
+     */
+    @Test
+    public final void reuseTest() {
+        GXBufferPool pool = new GXBufferPool(100, 10);
+        GXPooledBuffer buff = pool.acquire(10);
+        assertEquals(1, buff.getReferenceCount());
+        assertEquals(10, buff.getLength());
+        buff.release();
+        assertEquals(1, pool.getAvailable());
+        assertTrue(buff == pool.acquire(20));
+        assertEquals(0, pool.getAvailable());
+    }
+
+    /**
+     * Retained buffer is not returned to the pool before it's released.
+     */
+    @Test
+    public final void retainTest() {
+        GXBufferPool pool = new GXBufferPool(100, 10);
+        GXPooledBuffer buff = pool.acquire(10);
+        buff.retain();
+        buff.release();
+        assertEquals(0, pool.getAvailable());
+        buff.release();
+        assertEquals(1, pool.getAvailable());
+        try {
+            buff.release();
+            fail("Released buffer was released again.");
+        } catch (IllegalStateException e) {
+            assertEquals(0, buff.getReferenceCount());
+        }
+    }
+
+    /**
+     * Buffer that is bigger than pooled buffers is not returned to the pool.
+     */
+    @Test
+    public final void bigBufferTest() {
+        GXBufferPool pool = new GXBufferPool(100, 10);
+        GXPooledBuffer buff = pool.acquire(200);
+        assertEquals(200, buff.getArray().length);
+        buff.release();
+        assertEquals(0, pool.getAvailable());
+    }
+}
@@ -0,0 +1,354 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+import gurux.net.ConnectionEventArgs;
+import gurux.net.GXLengthPrefixDecoder;
+import gurux.net.GXNet;
+import gurux.net.IGXNetListener;
+import gurux.net.enums.NetworkEngine;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Unit test for dispatching listener callbacks with an executor.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXDispatcherTest implements IGXMediaListener, IGXNetListener {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1007;
+
+    /**
+     * Disconnect event in the received events.
+     */
+    private static final int DISCONNECTED = -1;
+
+    /**
+     * Received frame numbers by sender.
+     */
+    private final Map<String, List<Integer>> received =
+            new ConcurrentHashMap<String, List<Integer>>();
+
+    /**
+     * Amount of running callbacks.
+     */
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Maximum amount of callbacks that have run at the same time.
+     */
+    private final AtomicInteger maxActive = new AtomicInteger();
+
+    /**
+     * Callbacks wait until latch is released. Null if callbacks don't
+     * wait.
+     */
+    private volatile CountDownLatch gate;
+
+    /**
+     * Sender whose callbacks wait for the gate. The first sender is gated.
+     */
+    private final AtomicReference<String> gated =
+            new AtomicReference<String>();
+
+    /**
+     * How long callback sleeps in milliseconds.
+     */
+    private volatile int delay;
+
+    /**
+     * Send numbered frames.
+     * 
+     * @param socket
+     *            Client socket.
+     * @param count
+     *            Amount of frames.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private static void send(final Socket socket, final int count)
+            throws Exception {
+        byte[] data = new byte[2 * count];
+        for (int pos = 0; pos != count; ++pos) {
+            data[2 * pos] = 1;
+            data[2 * pos + 1] = (byte) pos;
+        }
+        OutputStream os = socket.getOutputStream();
+        os.write(data);
+        os.flush();
+    }
+
+    /**
+     * Get received events of the sender.
+     * 
+     * @param info
+     *            Sender information.
+     * @return Received events.
+     */
+    private List<Integer> getReceived(final String info) {
+        List<Integer> list = received.get(info);
+        if (list == null) {
+            list = new ArrayList<Integer>();
+            List<Integer> tmp = received.putIfAbsent(info, list);
+            if (tmp != null) {
+                list = tmp;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Wait until expected amount of events is received from every sender.
+     * 
+     * @param senders
+     *            Amount of senders.
+     * @param count
+     *            Expected amount of events from each sender.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private void waitReceived(final int senders, final int count)
+            throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < end) {
+            int ready = 0;
+            for (List<Integer> it : received.values()) {
+                synchronized (it) {
+                    if (it.size() == count) {
+                        ++ready;
+                    }
+                }
+            }
+            if (ready == senders) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        assertEquals(senders, received.size());
+        for (List<Integer> it : received.values()) {
+            synchronized (it) {
+                assertEquals(count, it.size());
+            }
+        }
+    }
+
+    /**
+     * Callbacks of each connection are run in order and different
+     * connections are run in parallel.
+     * 
+     * @param engine
+     *            Used network engine.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private void order(final NetworkEngine engine) throws Exception {
+        received.clear();
+        maxActive.set(0);
+        delay = 2;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT)) {
+            server.setEngine(engine);
+            server.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            server.setDispatcher(executor);
+            server.addListener(this);
+            server.open();
+            Socket c1 = new Socket("localhost", TCP_IP_PORT);
+            Socket c2 = new Socket("localhost", TCP_IP_PORT);
+            send(c1, 50);
+            send(c2, 50);
+            c1.close();
+            c2.close();
+            waitReceived(2, 51);
+            for (List<Integer> it : received.values()) {
+                for (int pos = 0; pos != 50; ++pos) {
+                    assertEquals(pos, it.get(pos).intValue());
+                }
+                assertEquals(DISCONNECTED, it.get(50).intValue());
+            }
+            assertTrue(maxActive.get() > 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Callbacks of each connection are run in order.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void orderTest() throws Exception {
+        order(NetworkEngine.THREAD);
+        order(NetworkEngine.SELECTOR);
+    }
+
+    /**
+     * Receiver waits when queue of the connection is full.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void queueSizeTest() throws Exception {
+        received.clear();
+        delay = 0;
+        gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT)) {
+            server.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            server.setDispatcher(executor);
+            server.setDispatchQueueSize(4);
+            server.addListener(this);
+            server.open();
+            Socket c = new Socket("localhost", TCP_IP_PORT);
+            send(c, 10);
+            long end = System.currentTimeMillis() + 5000;
+            while (server.getDispatchQueueDepth() != 4
+                    && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            // First callback is running and the rest wait for space.
+            Thread.sleep(100);
+            assertEquals(4, server.getDispatchQueueDepth());
+            gate.countDown();
+            waitReceived(1, 10);
+            assertEquals(0, server.getDispatchQueueDepth());
+            c.close();
+        } finally {
+            gate = null;
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Selector thread serves other connections while reading of the
+     * connection whose queue is full is paused.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void pauseReadingTest() throws Exception {
+        received.clear();
+        gated.set(null);
+        delay = 0;
+        gate = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT)) {
+            server.setEngine(NetworkEngine.SELECTOR);
+            server.setSelectorCount(1);
+            server.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            server.setDispatcher(executor);
+            server.setDispatchQueueSize(4);
+            server.addListener(this);
+            server.open();
+            Socket c1 = new Socket("localhost", TCP_IP_PORT);
+            send(c1, 10);
+            long end = System.currentTimeMillis() + 5000;
+            while (server.getDispatchQueueDepth() < 4
+                    && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            send(c1, 10);
+            Socket c2 = new Socket("localhost", TCP_IP_PORT);
+            send(c2, 10);
+            // First connection waits and the second is served.
+            waitReceived(1, 10);
+            gate.countDown();
+            send(c2, 10);
+            waitReceived(2, 20);
+            c1.close();
+            c2.close();
+        } finally {
+            gate = null;
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public final void onError(final Object sender, final Exception ex) {
+        System.out.println(ex.getMessage());
+    }
+
+    @Override
+    public final void onReceived(final Object sender,
+            final ReceiveEventArgs e) {
+        int count = active.incrementAndGet();
+        while (true) {
+            int max = maxActive.get();
+            if (count <= max || maxActive.compareAndSet(max, count)) {
+                break;
+            }
+        }
+        try {
+            CountDownLatch tmp = gate;
+            if (tmp != null && (gated.compareAndSet(null, e.getSenderInfo())
+                    || e.getSenderInfo().equals(gated.get()))) {
+                tmp.await();
+            }
+            if (delay != 0) {
+                Thread.sleep(delay);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] data = (byte[]) e.getData();
+        List<Integer> list = getReceived(e.getSenderInfo());
+        synchronized (list) {
+            list.add((int) data[1]);
+        }
+        active.decrementAndGet();
+    }
+
+    @Override
+    public final void onClientConnected(final Object sender,
+            final ConnectionEventArgs e) {
+    }
+
+    @Override
+    public final void onClientDisconnected(final Object sender,
+            final ConnectionEventArgs e) {
+        List<Integer> list = getReceived(e.getInfo());
+        synchronized (list) {
+            list.add(DISCONNECTED);
+        }
+    }
+
+    @Override
+    public final void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public final void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public final void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
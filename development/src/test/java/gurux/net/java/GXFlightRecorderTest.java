@@ -0,0 +1,115 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import gurux.net.GXFlightRecorder;
+import gurux.net.GXNet;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Unit test for flight recorder.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXFlightRecorderTest {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1008;
+
+    /**
+     * Wait until recorder has expected amount of records.
+     * 
+     * @param recorder
+     *            Flight recorder.
+     * @param count
+     *            Expected amount of records.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private static void waitCount(final GXFlightRecorder recorder,
+            final int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (recorder.getCount() != count
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, recorder.getCount());
+    }
+
+    /**
+     * Sent and received data is recorded.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void recordTest() throws Exception {
+        GXFlightRecorder serverRecorder = new GXFlightRecorder(4096);
+        GXFlightRecorder clientRecorder = new GXFlightRecorder(4096);
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNet client =
+                        new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT)) {
+            server.setFlightRecorder(serverRecorder);
+            client.setFlightRecorder(clientRecorder);
+            server.open();
+            client.open();
+            client.send("Hello", null);
+            waitCount(serverRecorder, 1);
+            assertEquals(1, clientRecorder.getCount());
+            String dump = serverRecorder.toString();
+            assertTrue(dump.contains(" RX "));
+            assertTrue(dump.trim().endsWith("48 65 6C 6C 6F"));
+            dump = clientRecorder.toString();
+            assertTrue(dump.contains(" TX "));
+            assertTrue(dump.trim().endsWith("48 65 6C 6C 6F"));
+            ByteArrayOutputStream bs = new ByteArrayOutputStream();
+            clientRecorder.save(bs);
+            ByteBuffer bb = ByteBuffer.wrap(bs.toByteArray());
+            assertEquals(GXFlightRecorder.MAGIC, bb.getInt());
+            // Header is 18 bytes and client records no peer.
+            assertEquals(18 + 5, bb.getInt());
+            assertEquals(4 + 18 + 5, bb.capacity());
+            clientRecorder.clear();
+            assertEquals(0, clientRecorder.getCount());
+            assertEquals("", clientRecorder.toString());
+        }
+    }
+
+    /**
+     * Oldest records are overwritten when the recorder is full.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void overwriteTest() throws Exception {
+        GXFlightRecorder recorder = new GXFlightRecorder(300);
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNet client =
+                        new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT)) {
+            client.setFlightRecorder(recorder);
+            server.open();
+            client.open();
+            for (int pos = 0; pos != 100; ++pos) {
+                client.send(new byte[] { (byte) pos, 1, 2, 3 }, null);
+            }
+            // Header is 18 bytes and client records no peer.
+            assertEquals(300 / 22, recorder.getCount());
+            String[] lines = recorder.toString().split(System.lineSeparator());
+            assertEquals(300 / 22, lines.length);
+            assertTrue(lines[lines.length - 1].endsWith("63 01 02 03"));
+            // Data that does not fit is truncated.
+            client.send(new byte[1000], null);
+            assertEquals(1, recorder.getCount());
+            assertTrue(recorder.toString().trim().endsWith("(1000 bytes)"));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+import gurux.net.GXDelimiterDecoder;
+import gurux.net.GXFixedHeaderDecoder;
+import gurux.net.GXLengthPrefixDecoder;
+import gurux.net.GXNet;
+import gurux.net.enums.NetworkEngine;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Unit test for frame decoders.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXFrameDecoderTest implements IGXMediaListener {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1003;
+
+    /**
+     * Wait time in milliseconds.
+     */
+    private static final int WAIT_TIME = 5000;
+
+    /**
+     * Received frames.
+     */
+    private final BlockingQueue<byte[]> frames =
+            new LinkedBlockingQueue<byte[]>();
+
+    /**
+     * Length prefix test.
+     */
+    @Test
+    public final void lengthPrefixTest() {
+        GXLengthPrefixDecoder d = new GXLengthPrefixDecoder(2);
+        byte[] data = new byte[] { 9, 0, 2, 1, 2, 0, 1 };
+        assertEquals(0, d.getFrameLength(data, 1, 3));
+        assertEquals(4, d.getFrameLength(data, 1, 4));
+        assertEquals(0, d.getFrameLength(data, 5, 2));
+    }
+
+    /**
+     * Fixed header test with DLMS WRAPPER frame.
+     */
+    @Test
+    public final void fixedHeaderTest() {
+        GXFixedHeaderDecoder d = new GXFixedHeaderDecoder(8, 6, 2);
+        byte[] data = new byte[] { 0, 1, 0, 1, 0, 1, 0, 3, 1, 2, 3 };
+        assertEquals(0, d.getFrameLength(data, 0, 10));
+        assertEquals(11, d.getFrameLength(data, 0, 11));
+    }
+
+    /**
+     * Delimiter test with several delimiters.
+     */
+    @Test
+    public final void delimiterTest() {
+        GXDelimiterDecoder d =
+                new GXDelimiterDecoder(new Object[] { "\r\n", (byte) 0x7E });
+        byte[] data = "AB\r\nC~".getBytes();
+        assertEquals(4, d.getFrameLength(data, 0, data.length));
+        assertEquals(2, d.getFrameLength(data, 4, 2));
+        assertEquals(0, d.getFrameLength(data, 0, 3));
+        // Delimiter that started in the searched bytes is found.
+        assertEquals(4, d.getFrameLength(data, 0, 4, 3));
+        // Searched bytes are not searched again.
+        assertEquals(0, d.getFrameLength("~AB".getBytes(), 0, 3, 3));
+    }
+
+    /**
+     * Frames are delivered complete when they are split or combined in TCP/IP
+     * stream.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpFramesTest() throws Exception {
+        test(NetworkEngine.THREAD);
+        test(NetworkEngine.SELECTOR);
+    }
+
+    /**
+     * Delimiter is found when it's split between TCP/IP packets.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpDelimiterTest() throws Exception {
+        for (NetworkEngine engine : new NetworkEngine[] { NetworkEngine.THREAD,
+                NetworkEngine.SELECTOR }) {
+            frames.clear();
+            try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                    GXNet client = new GXNet(NetworkType.TCP, "localhost",
+                            TCP_IP_PORT)) {
+                server.setEngine(engine);
+                server.setFrameDecoder(new GXDelimiterDecoder("\r\n"));
+                server.addListener(this);
+                server.open();
+                client.open();
+                client.send("ABC\r", null);
+                Thread.sleep(100);
+                client.send("\nD\r\n", null);
+                assertArrayEquals("ABC\r\n".getBytes(),
+                        frames.poll(WAIT_TIME, TimeUnit.MILLISECONDS));
+                assertArrayEquals("D\r\n".getBytes(),
+                        frames.poll(WAIT_TIME, TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+    /**
+     * Send frames to the server.
+     * 
+     * @param engine
+     *            Network engine of the server.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private void test(final NetworkEngine engine) throws Exception {
+        frames.clear();
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNet client =
+                        new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT)) {
+            server.setEngine(engine);
+            server.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            server.addListener(this);
+            server.open();
+            client.open();
+            // Two frames and the beginning of the third frame.
+            client.send(new byte[] { 1, 1, 2, 2, 2, 3, 3 }, null);
+            assertArrayEquals(new byte[] { 1, 1 },
+                    frames.poll(WAIT_TIME, TimeUnit.MILLISECONDS));
+            assertArrayEquals(new byte[] { 2, 2, 2 },
+                    frames.poll(WAIT_TIME, TimeUnit.MILLISECONDS));
+            client.send(new byte[] { 3, 3 }, null);
+            assertArrayEquals(new byte[] { 3, 3, 3, 3 },
+                    frames.poll(WAIT_TIME, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Override
+    public final void onError(final Object sender, final Exception ex) {
+        throw new RuntimeException(ex.getMessage());
+    }
+
+    @Override
+    public final void onReceived(final Object sender,
+            final ReceiveEventArgs e) {
+        frames.add((byte[]) e.getData());
+    }
+
+    @Override
+    public final void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public final void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public final void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
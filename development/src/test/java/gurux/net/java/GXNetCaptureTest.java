@@ -0,0 +1,126 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import gurux.net.GXNet;
+import gurux.net.GXNetCapture;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Unit test for pcapng capture.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXNetCaptureTest {
+    /**
+     * Used port.
+     */
+    private static final int PORT = 1009;
+
+    /**
+     * Wait until capture has written expected amount of packets.
+     * 
+     * @param capture
+     *            Capture.
+     * @param count
+     *            Expected amount of packets.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private static void waitCaptured(final GXNetCapture capture,
+            final int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (capture.getCaptured() != count
+                && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, capture.getCaptured());
+    }
+
+    /**
+     * Check captured packet.
+     * 
+     * @param protocol
+     *            Used protocol.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private static void capture(final NetworkType protocol)
+            throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GXNetCapture capture = new GXNetCapture(out, 100);
+        try (GXNet server = new GXNet(protocol, PORT);
+                GXNet client = new GXNet(protocol, "127.0.0.1", PORT)) {
+            server.setCapture(capture);
+            server.open();
+            client.open();
+            client.send("Hello", null);
+            waitCaptured(capture, 1);
+        }
+        capture.close();
+        assertEquals(0, capture.getDropped());
+        ByteBuffer bb = ByteBuffer.wrap(out.toByteArray())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        // Section header block.
+        assertEquals(0x0A0D0D0A, bb.getInt(0));
+        assertEquals(0x1A2B3C4D, bb.getInt(8));
+        // Interface description block with raw IP link type.
+        assertEquals(1, bb.getInt(28));
+        assertEquals(101, bb.getShort(36));
+        // Enhanced packet block.
+        int pos = 48;
+        assertEquals(6, bb.getInt(pos));
+        int length = bb.getInt(pos + 20);
+        int transport = protocol == NetworkType.TCP ? 20 : 8;
+        assertEquals(20 + transport + 5, length);
+        assertEquals(bb.capacity() - pos, bb.getInt(pos + 4));
+        bb.order(ByteOrder.BIG_ENDIAN);
+        int ip = pos + 28;
+        assertEquals(0x45, bb.get(ip));
+        assertEquals(protocol == NetworkType.TCP ? 6 : 17, bb.get(ip + 9));
+        // Sender is the client and target is the server.
+        assertArrayEquals(new byte[] { 127, 0, 0, 1 },
+                Arrays.copyOfRange(bb.array(), ip + 12, ip + 16));
+        assertEquals(PORT, bb.getShort(ip + 22));
+        // IP header checksum.
+        int sum = 0;
+        for (int i = 0; i != 20; i += 2) {
+            sum += bb.getShort(ip + i) & 0xFFFF;
+        }
+        sum = (sum & 0xFFFF) + (sum >> 16);
+        assertEquals(0xFFFF, sum);
+        assertArrayEquals("Hello".getBytes(), Arrays.copyOfRange(bb.array(),
+                ip + 20 + transport, ip + 20 + transport + 5));
+    }
+
+    /**
+     * TCP/IP data is captured.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpCaptureTest() throws Exception {
+        capture(NetworkType.TCP);
+    }
+
+    /**
+     * UDP data is captured.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void udpCaptureTest() throws Exception {
+        capture(NetworkType.UDP);
+    }
+}
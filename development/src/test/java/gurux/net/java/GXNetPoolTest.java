@@ -0,0 +1,125 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import gurux.net.GXNet;
+import gurux.net.GXNetPool;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Unit test for client connection pool.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXNetPoolTest {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1005;
+
+    /**
+     * Released connection is reused.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void reuseTest() throws Exception {
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNetPool pool = new GXNetPool()) {
+            server.open();
+            GXNet media =
+                    pool.borrow(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            pool.release(media);
+            assertEquals(1, pool.getIdleCount());
+            assertSame(media,
+                    pool.borrow(NetworkType.TCP, "localhost", TCP_IP_PORT));
+            assertEquals(0, pool.getIdleCount());
+            pool.invalidate(media);
+            assertEquals(0, pool.getCount());
+        }
+    }
+
+    /**
+     * Connection is not leased if validator fails and amount of connections
+     * is limited.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void maxCountTest() throws Exception {
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNetPool pool = new GXNetPool()) {
+            server.open();
+            pool.setMaxCount(1);
+            GXNet media =
+                    pool.borrow(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            try {
+                pool.borrow(NetworkType.TCP, "localhost", TCP_IP_PORT);
+                fail("Maximum count exceeded.");
+            } catch (IllegalStateException e) {
+                // Expected.
+            }
+            pool.release(media);
+            pool.setValidator(m -> false);
+            GXNet tmp = pool.borrow(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            assertNotSame(media, tmp);
+            assertEquals(1, pool.getCount());
+            pool.release(tmp);
+        }
+    }
+
+    /**
+     * Configurer sets the settings of the new connection before it's opened.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void configurerTest() throws Exception {
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNetPool pool = new GXNetPool()) {
+            server.open();
+            pool.setConfigurer(m -> {
+                assertFalse(m.isOpen());
+                m.setEop((byte) 0x7E);
+            });
+            GXNet media =
+                    pool.borrow(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            assertEquals((byte) 0x7E, media.getEop());
+            pool.release(media);
+        }
+    }
+
+    /**
+     * Idle connection is closed.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void evictionTest() throws Exception {
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNetPool pool = new GXNetPool()) {
+            server.open();
+            pool.setIdleTime(100);
+            GXNet media =
+                    pool.borrow(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            pool.release(media);
+            long start = System.currentTimeMillis();
+            while (pool.getCount() != 0
+                    && System.currentTimeMillis() - start < 5000) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, pool.getCount());
+        }
+    }
+}
@@ -1,6 +1,23 @@
 package gurux.net.java;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.Test;
 
@@ -12,8 +29,14 @@ import gurux.common.ReceiveParameters;
 import gurux.common.TraceEventArgs;
 import gurux.net.ConnectionEventArgs;
 import gurux.net.GXNet;
+import gurux.net.GXNetConnection;
+import gurux.net.GXNetStatistics;
+import gurux.net.IGXNetBatchListener;
+import gurux.net.IGXNetWritabilityListener;
 import gurux.net.IGXNetListener;
+import gurux.net.enums.NetworkEngine;
 import gurux.net.enums.NetworkType;
+import gurux.net.enums.ReceiveMode;
 
 /**
  * Unit test for serial port media.
@@ -21,7 +44,8 @@ import gurux.net.enums.NetworkType;
 /**
  * @author Gurux Ltd
  */
-public class GXNetTest implements IGXMediaListener, IGXNetListener {
+public class GXNetTest implements IGXMediaListener, IGXNetListener,
+        IGXNetBatchListener, IGXNetWritabilityListener {
     /**
      * Used TCP/IP port.
      * 
@@ -37,6 +61,26 @@ public class GXNetTest implements IGXMediaListener, IGXNetListener {
      */
     private static final int WAIT_TIME = 50000;
 
+    /**
+     * Amount of writability changes.
+     */
+    private final AtomicInteger writabilityChanges = new AtomicInteger();
+
+    /**
+     * Data that server sends when client connects. Null if nothing is sent.
+     */
+    private byte[] greeting;
+
+    /**
+     * Is connection attached when server receives data.
+     */
+    private volatile boolean attach;
+
+    /**
+     * Attached connection.
+     */
+    private volatile GXNet attached;
+
     /**
      * TCP/IP test.
      * 
@@ -50,6 +94,352 @@ public class GXNetTest implements IGXMediaListener, IGXNetListener {
         test(server, client);
     }
 
+    /**
+     * TCP/IP test when server uses selector event loops.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpSelectorTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        server.setEngine(NetworkEngine.SELECTOR);
+        server.setSelectorCount(2);
+        GXNet client = new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+        test(server, client);
+    }
+
+    /**
+     * TCP/IP test when data is read in immediate receive mode.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpImmediateTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        server.setReceiveMode(ReceiveMode.IMMEDIATE);
+        GXNet client = new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+        client.setReceiveMode(ReceiveMode.IMMEDIATE);
+        client.setCoalesceTime(10);
+        test(server, client);
+    }
+
+    /**
+     * Broadcast test when clients are served by threads and selector.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpBroadcastTest() throws Exception {
+        for (NetworkEngine engine : new NetworkEngine[] { NetworkEngine.THREAD,
+                NetworkEngine.SELECTOR }) {
+            GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+            server.setEngine(engine);
+            server.setBroadcastThreadCount(2);
+            GXNet client1 =
+                    new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            GXNet client2 =
+                    new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            server.addListener(this);
+            server.open();
+            client1.open();
+            client2.open();
+            long start = System.currentTimeMillis();
+            while (server.getConnections().size() != 2
+                    && System.currentTimeMillis() - start < WAIT_TIME) {
+                Thread.sleep(10);
+            }
+            synchronized (client1.getSynchronous()) {
+                synchronized (client2.getSynchronous()) {
+                    assertTrue(server.sendToAll("Hello").isEmpty());
+                    for (GXNet it : new GXNet[] { client1, client2 }) {
+                        ReceiveParameters<String> p =
+                                new ReceiveParameters<String>(String.class);
+                        p.setWaitTime(WAIT_TIME);
+                        p.setCount(5);
+                        assertTrue(it.receive(p));
+                        assertEquals("Hello", p.getReply());
+                    }
+                }
+            }
+            assertEquals(10, server.getBytesSent());
+            client1.close();
+            client2.close();
+            server.close();
+        }
+    }
+
+    /**
+     * Traffic counters are counted per client and for the server.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpStatisticsTest() throws Exception {
+        for (NetworkEngine engine : new NetworkEngine[] { NetworkEngine.THREAD,
+                NetworkEngine.SELECTOR }) {
+            GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+            server.setEngine(engine);
+            GXNet client1 =
+                    new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            GXNet client2 =
+                    new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+            server.addListener(this);
+            server.open();
+            client1.open();
+            client2.open();
+            for (GXNet it : new GXNet[] { client1, client2 }) {
+                synchronized (it.getSynchronous()) {
+                    it.send("Hello", null);
+                    ReceiveParameters<String> p =
+                            new ReceiveParameters<String>(String.class);
+                    p.setWaitTime(WAIT_TIME);
+                    p.setCount(5);
+                    assertTrue(it.receive(p));
+                }
+            }
+            GXNetStatistics s = server.getStatistics();
+            assertEquals(10, s.getBytesReceived());
+            assertEquals(10, s.getBytesSent());
+            assertEquals(s.getFramesReceived(), s.getFramesSent());
+            assertEquals(2, s.getConnects());
+            for (GXNetConnection it : server.getConnections()) {
+                assertEquals(5, it.getStatistics().getBytesReceived());
+                assertEquals(5, it.getStatistics().getBytesSent());
+            }
+            client1.close();
+            client2.close();
+            long start = System.currentTimeMillis();
+            while (s.getDisconnects() != 2
+                    && System.currentTimeMillis() - start < WAIT_TIME) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, s.getDisconnects());
+            assertEquals(0, s.getErrors());
+            // Nothing is sent or counted for a client that has disconnected.
+            server.send("Hello", "127.0.0.1:1");
+            assertEquals(10, s.getBytesSent());
+            server.close();
+        }
+    }
+
+    /**
+     * Server state is available from the management bean.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpManagementTest() throws Exception {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name =
+                new ObjectName("gurux.net:type=GXNet,name=\"Test\"");
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        server.setManagementName("Test");
+        GXNet client = new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+        server.open();
+        client.open();
+        long start = System.currentTimeMillis();
+        while (server.getConnections().isEmpty()
+                && System.currentTimeMillis() - start < WAIT_TIME) {
+            Thread.sleep(10);
+        }
+        assertEquals(true, mbs.getAttribute(name, "Open"));
+        assertEquals(1, mbs.getAttribute(name, "ClientCount"));
+        String info = server.getConnections().iterator().next().getInfo();
+        assertEquals(true, mbs.invoke(name, "disconnect",
+                new Object[] { info },
+                new String[] { String.class.getName() }));
+        start = System.currentTimeMillis();
+        while (!server.getConnections().isEmpty()
+                && System.currentTimeMillis() - start < WAIT_TIME) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, mbs.getAttribute(name, "ClientCount"));
+        client.close();
+        server.close();
+        assertFalse(mbs.isRegistered(name));
+    }
+
+    /**
+     * TCP/IP test where data is queued and connection becomes unwritable
+     * when it exceeds high watermark.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpQueuedWriteTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        server.setQueuedWrite(true);
+        server.setWriteLowWatermark(0);
+        server.setWriteHighWatermark(4);
+        GXNet client = new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+        server.addListener(this);
+        server.open();
+        client.open();
+        long start = System.currentTimeMillis();
+        while (server.getConnections().isEmpty()
+                && System.currentTimeMillis() - start < WAIT_TIME) {
+            Thread.sleep(10);
+        }
+        GXNetConnection c = server.getConnections().iterator().next();
+        synchronized (client.getSynchronous()) {
+            server.sendTo("Hello", c);
+            ReceiveParameters<String> p =
+                    new ReceiveParameters<String>(String.class);
+            p.setWaitTime(WAIT_TIME);
+            p.setCount(5);
+            assertTrue(client.receive(p));
+            assertEquals("Hello", p.getReply());
+        }
+        start = System.currentTimeMillis();
+        while (writabilityChanges.get() != 2
+                && System.currentTimeMillis() - start < WAIT_TIME) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, writabilityChanges.get());
+        assertTrue(c.isWritable());
+        assertEquals(0, c.getPendingBytes());
+        client.close();
+        server.close();
+    }
+
+    /**
+     * Selector test where data that is sent before the connection is
+     * registered to the event loop can't be written at once.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpSelectorGreetingTest() throws Exception {
+        greeting = new byte[8 * 1024 * 1024];
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        server.setEngine(NetworkEngine.SELECTOR);
+        server.addListener(this);
+        server.open();
+        Socket client = new Socket("localhost", TCP_IP_PORT);
+        try {
+            client.setSoTimeout(5000);
+            InputStream in = client.getInputStream();
+            byte[] buff = new byte[65536];
+            int total = 0;
+            int count;
+            while (total != greeting.length
+                    && (count = in.read(buff)) != -1) {
+                total += count;
+            }
+            assertEquals(greeting.length, total);
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    /**
+     * Read echo of the sent byte.
+     * 
+     * @param client
+     *            Client socket.
+     * @param value
+     *            Sent byte.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private static void echo(final Socket client, final int value)
+            throws Exception {
+        client.getOutputStream().write(value);
+        client.getOutputStream().flush();
+        assertEquals(value, client.getInputStream().read());
+    }
+
+    /**
+     * Connection is attached from the listener that is run by the selector
+     * thread and the selector thread continues serving other connections.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpSelectorAttachTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        server.setEngine(NetworkEngine.SELECTOR);
+        server.setSelectorCount(1);
+        server.addListener(this);
+        server.open();
+        attach = true;
+        Socket c1 = new Socket("localhost", TCP_IP_PORT);
+        Socket c2 = new Socket("localhost", TCP_IP_PORT);
+        try {
+            c1.setSoTimeout(5000);
+            c2.setSoTimeout(5000);
+            c1.getOutputStream().write('A');
+            c1.getOutputStream().flush();
+            long end = System.currentTimeMillis() + 5000;
+            while (attached == null && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            attach = false;
+            // Attached connection echoes the data.
+            echo(c1, 'B');
+            echo(c2, 'C');
+            assertEquals(1, server.getConnections().size());
+        } finally {
+            attach = false;
+            if (attached != null) {
+                attached.close();
+                attached = null;
+            }
+            c1.close();
+            c2.close();
+            server.close();
+        }
+    }
+
+    /**
+     * Asynchronous request test where replies are split or combined by
+     * TCP/IP stream.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpSendAndReceiveTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        GXNet client = new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+        server.addListener(this);
+        server.open();
+        client.open();
+        List<CompletableFuture<String>> replies =
+                new ArrayList<CompletableFuture<String>>();
+        for (String it : new String[] { "A;", "BB;", "CCC;" }) {
+            ReceiveParameters<String> p =
+                    new ReceiveParameters<String>(String.class);
+            p.setWaitTime(WAIT_TIME);
+            p.setEop(";");
+            replies.add(client.sendAndReceive(it, null, p));
+        }
+        assertEquals("A;", replies.get(0).get());
+        assertEquals("BB;", replies.get(1).get());
+        assertEquals("CCC;", replies.get(2).get());
+        ReceiveParameters<byte[]> p =
+                new ReceiveParameters<byte[]>(byte[].class);
+        p.setWaitTime(100);
+        p.setCount(100);
+        try {
+            client.sendAndReceive("Hello", null, p).get();
+            fail("Timeout expected.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        client.close();
+        server.close();
+    }
+
     /**
      * UDP test.
      * 
@@ -63,6 +453,116 @@ public class GXNetTest implements IGXMediaListener, IGXNetListener {
         test(server, client);
     }
 
+    /**
+     * UDP test when server reads datagrams as batches.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void udpSelectorTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.UDP, UDP_PORT);
+        server.setEngine(NetworkEngine.SELECTOR);
+        GXNet client = new GXNet(NetworkType.UDP, "localhost", UDP_PORT);
+        test(server, client);
+        server.open();
+        client.open();
+        synchronized (client.getSynchronous()) {
+            client.sendBatch(new Object[] { "Hello ", "World!" }, null);
+            ReceiveParameters<String> p =
+                    new ReceiveParameters<String>(String.class);
+            p.setWaitTime(WAIT_TIME);
+            p.setCount(12);
+            client.receive(p);
+            assertEquals("Hello World!", p.getReply());
+        }
+        client.close();
+        server.close();
+    }
+
+    /**
+     * UDP test where sender host name is not resolved.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void udpNoReverseLookupTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.UDP, UDP_PORT);
+        GXNet client = new GXNet(NetworkType.UDP, "127.0.0.1", UDP_PORT);
+        server.setSettings(
+                server.getSettings() + "<ReverseLookup>0</ReverseLookup>");
+        assertFalse(server.getReverseLookup());
+        test(server, client);
+    }
+
+    /**
+     * UDP test with datagram that is bigger than Ethernet frame.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void udpLargeDatagramTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.UDP, UDP_PORT);
+        GXNet client = new GXNet(NetworkType.UDP, "localhost", UDP_PORT);
+        server.setReceiveBufferSize(8192);
+        client.setSettings(client.getSettings()
+                + "<ReceiveBufferSize>8192</ReceiveBufferSize>");
+        assertEquals(8192, client.getReceiveBufferSize());
+        server.addListener(this);
+        client.addListener(this);
+        server.open();
+        client.open();
+        synchronized (client.getSynchronous()) {
+            byte[] expected = new byte[4000];
+            for (int pos = 0; pos != expected.length; ++pos) {
+                expected[pos] = (byte) pos;
+            }
+            client.send(expected, null);
+            ReceiveParameters<byte[]> p =
+                    new ReceiveParameters<byte[]>(byte[].class);
+            p.setWaitTime(WAIT_TIME);
+            p.setCount(expected.length);
+            client.receive(p);
+            assertArrayEquals(expected, p.getReply());
+        }
+        client.close();
+        server.close();
+    }
+
+    /**
+     * TCP/IP test where end of packet is split to two reads.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void tcpIpEopTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        GXNet client = new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+        client.setEop(new Object[] { "\r\n", ";" });
+        server.addListener(this);
+        client.addListener(this);
+        server.open();
+        client.open();
+        synchronized (client.getSynchronous()) {
+            client.send("Hello\r", null);
+            Thread.sleep(100);
+            client.send("\n", null);
+            ReceiveParameters<String> p =
+                    new ReceiveParameters<String>(String.class);
+            p.setWaitTime(WAIT_TIME);
+            p.setEop("\r\n");
+            long start = System.currentTimeMillis();
+            assertTrue(client.receive(p));
+            assertTrue(System.currentTimeMillis() - start < WAIT_TIME);
+            assertEquals("Hello\r\n", p.getReply());
+        }
+        client.close();
+        server.close();
+    }
+
     /**
      * Executed tests.
      * 
@@ -95,8 +595,13 @@ public class GXNetTest implements IGXMediaListener, IGXNetListener {
     @Override
     public final void onClientConnected(final Object sender,
             final ConnectionEventArgs e) {
-        // TODO Auto-generated method stub
-
+        if (greeting != null) {
+            try {
+                ((GXNet) sender).sendTo(greeting, e.getConnection());
+            } catch (Exception ex) {
+                throw new RuntimeException(ex.getMessage());
+            }
+        }
     }
 
     @Override
@@ -117,6 +622,12 @@ public class GXNetTest implements IGXMediaListener, IGXNetListener {
     @Override
     public final void onReceived(final Object sender,
             final ReceiveEventArgs e) {
+        if (attach && attached == null) {
+            GXNet net = ((GXNet) sender).attach(e.getSenderInfo());
+            net.addListener(this);
+            attached = net;
+            return;
+        }
         try {
             ((GXNet) sender).send(e.getData(), e.getSenderInfo());
         } catch (Exception ex) {
@@ -124,6 +635,31 @@ public class GXNetTest implements IGXMediaListener, IGXNetListener {
         }
     }
 
+    /**
+     * Echo received datagrams.
+     */
+    @Override
+    public final void onReceivedBatch(final Object sender,
+            final List<ReceiveEventArgs> e) {
+        Object[] data = new Object[e.size()];
+        String[] targets = new String[e.size()];
+        for (int pos = 0; pos != data.length; ++pos) {
+            data[pos] = e.get(pos).getData();
+            targets[pos] = e.get(pos).getSenderInfo();
+        }
+        try {
+            ((GXNet) sender).sendBatch(data, targets);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public final void onWritabilityChanged(final Object sender,
+            final ConnectionEventArgs e) {
+        writabilityChanges.incrementAndGet();
+    }
+
     @Override
     public final void onMediaStateChange(final Object sender,
             final MediaStateEventArgs e) {
@@ -143,6 +679,82 @@ public class GXNetTest implements IGXMediaListener, IGXNetListener {
         // TODO Auto-generated method stub
     }
 
+    /**
+     * Listener that counts property changes and replaces itself with the
+     * next listener on the first change.
+     */
+    private static final class PropertyCounter implements IGXMediaListener {
+        /**
+         * Amount of property changes.
+         */
+        private int count;
+        /**
+         * Listener that replaces this listener.
+         */
+        private final IGXMediaListener next;
+
+        /**
+         * Constructor.
+         * 
+         * @param value
+         *            Listener that replaces this listener. Null if not
+         *            replaced.
+         */
+        PropertyCounter(final IGXMediaListener value) {
+            next = value;
+        }
+
+        @Override
+        public void onPropertyChanged(final Object sender,
+                final PropertyChangedEventArgs e) {
+            ++count;
+            if (next != null) {
+                ((GXNet) sender).removeListener(this);
+                ((GXNet) sender).addListener(next);
+            }
+        }
+
+        @Override
+        public void onError(final Object sender, final Exception ex) {
+        }
+
+        @Override
+        public void onReceived(final Object sender,
+                final ReceiveEventArgs e) {
+        }
+
+        @Override
+        public void onMediaStateChange(final Object sender,
+                final MediaStateEventArgs e) {
+        }
+
+        @Override
+        public void onTrace(final Object sender, final TraceEventArgs e) {
+        }
+    }
+
+    /**
+     * Listeners can be changed while an event is dispatched. Changes are
+     * seen from the next event.
+     */
+    @Test
+    public final void listenerChangeTest() {
+        try (GXNet media = new GXNet(NetworkType.TCP, "localhost", 1)) {
+            PropertyCounter second = new PropertyCounter(null);
+            PropertyCounter first = new PropertyCounter(second);
+            media.addListener(first);
+            media.setPort(2);
+            assertEquals(1, first.count);
+            assertEquals(0, second.count);
+            media.setPort(3);
+            assertEquals(1, first.count);
+            assertEquals(1, second.count);
+            media.removeListener(second);
+            media.setPort(4);
+            assertEquals(1, second.count);
+        }
+    }
+
     /**
      * Settings test.
      * 
@@ -0,0 +1,241 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.ReceiveParameters;
+import gurux.common.TraceEventArgs;
+import gurux.net.GXFieldCorrelator;
+import gurux.net.GXLengthPrefixDecoder;
+import gurux.net.GXNet;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Unit test for pipelined requests.
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXPipelineTest implements IGXMediaListener {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1004;
+
+    /**
+     * Wait time in milliseconds.
+     */
+    private static final int WAIT_TIME = 5000;
+
+    /**
+     * Amount of requests that server collects before it replies in reverse
+     * order. Zero if server replies immediately. If negative, requests are
+     * held until the test replies.
+     */
+    private int collect;
+
+    /**
+     * Requests that server holds until the test replies.
+     */
+    private final BlockingQueue<ReceiveEventArgs> held =
+            new LinkedBlockingQueue<ReceiveEventArgs>();
+
+    /**
+     * Requests that server has collected.
+     */
+    private final List<byte[]> requests = new ArrayList<byte[]>();
+
+    /**
+     * Field correlator test.
+     */
+    @Test
+    public final void fieldCorrelatorTest() {
+        GXFieldCorrelator c = new GXFieldCorrelator(0, 2, 2, 0x3FF);
+        assertEquals(0x102L, c.getRequestId(new byte[] { 1, 2, 3 }));
+        assertEquals(0x304L,
+                c.getReplyId(new byte[] { 9, 9, 9, 0x7, 4, 9 }, 1, 5));
+        assertNull(c.getReplyId(new byte[] { 9, 9, 9, 3 }, 1, 3));
+    }
+
+    /**
+     * Server replies in reverse order and replies are matched with invoke
+     * ID.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void correlatorTest() throws Exception {
+        collect = 3;
+        List<CompletableFuture<byte[]>> replies = test(0, true);
+        for (int pos = 0; pos != replies.size(); ++pos) {
+            assertArrayEquals(new byte[] { 2, (byte) pos, 0 },
+                    replies.get(pos).get(WAIT_TIME, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Request without correlation ID is rejected, because its reply could
+     * never be matched.
+     */
+    @Test
+    public final void missingIdTest() {
+        try (GXNet client =
+                new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT)) {
+            client.setRequestCorrelator(new GXFieldCorrelator(1, 1, 1));
+            client.sendAndReceive(new byte[] { 2 }, null,
+                    new ReceiveParameters<byte[]>(byte[].class));
+            fail("Request without correlation ID accepted.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Only one request is waiting for the reply at the time. Server holds
+     * each request, so the next request must not reach it before the reply
+     * is sent.
+     * 
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void pipelineDepthTest() throws Exception {
+        collect = -1;
+        held.clear();
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNet client =
+                        new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT)) {
+            server.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            server.addListener(this);
+            client.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            client.setPipelineDepth(1);
+            server.open();
+            client.open();
+            List<CompletableFuture<byte[]>> replies =
+                    new ArrayList<CompletableFuture<byte[]>>();
+            for (int pos = 0; pos != 3; ++pos) {
+                ReceiveParameters<byte[]> p =
+                        new ReceiveParameters<byte[]>(byte[].class);
+                p.setWaitTime(WAIT_TIME);
+                replies.add(client.sendAndReceive(
+                        new byte[] { 2, (byte) pos, 0 }, null, p));
+            }
+            for (int pos = 0; pos != replies.size(); ++pos) {
+                ReceiveEventArgs e =
+                        held.poll(WAIT_TIME, TimeUnit.MILLISECONDS);
+                assertNotNull(e);
+                assertArrayEquals(new byte[] { 2, (byte) pos, 0 },
+                        (byte[]) e.getData());
+                // Next request is not sent before the reply is received.
+                Thread.sleep(200);
+                assertTrue(held.isEmpty());
+                assertFalse(replies.get(pos).isDone());
+                server.send(e.getData(), e.getSenderInfo());
+                assertArrayEquals(new byte[] { 2, (byte) pos, 0 },
+                        replies.get(pos).get(WAIT_TIME, TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+    /**
+     * Send three pipelined requests to the server.
+     * 
+     * @param depth
+     *            Pipeline depth.
+     * @param correlate
+     *            Are replies matched with invoke ID.
+     * @return Replies.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private List<CompletableFuture<byte[]>> test(final int depth,
+            final boolean correlate) throws Exception {
+        requests.clear();
+        List<CompletableFuture<byte[]>> replies =
+                new ArrayList<CompletableFuture<byte[]>>();
+        try (GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+                GXNet client =
+                        new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT)) {
+            server.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            server.addListener(this);
+            client.setFrameDecoder(new GXLengthPrefixDecoder(1));
+            client.setPipelineDepth(depth);
+            if (correlate) {
+                client.setRequestCorrelator(new GXFieldCorrelator(1, 1, 1));
+            }
+            server.open();
+            client.open();
+            for (int pos = 0; pos != 3; ++pos) {
+                ReceiveParameters<byte[]> p =
+                        new ReceiveParameters<byte[]>(byte[].class);
+                p.setWaitTime(WAIT_TIME);
+                replies.add(client.sendAndReceive(
+                        new byte[] { 2, (byte) pos, 0 }, null, p));
+            }
+            CompletableFuture
+                    .allOf(replies.toArray(new CompletableFuture<?>[0]))
+                    .get(WAIT_TIME, TimeUnit.MILLISECONDS);
+        }
+        return replies;
+    }
+
+    @Override
+    public final void onError(final Object sender, final Exception ex) {
+        throw new RuntimeException(ex.getMessage());
+    }
+
+    @Override
+    public final void onReceived(final Object sender,
+            final ReceiveEventArgs e) {
+        try {
+            GXNet server = (GXNet) sender;
+            if (collect < 0) {
+                held.add(e);
+            } else if (collect == 0) {
+                server.send(e.getData(), e.getSenderInfo());
+            } else {
+                requests.add((byte[]) e.getData());
+                if (requests.size() == collect) {
+                    for (int pos = requests.size() - 1; pos != -1; --pos) {
+                        server.send(requests.get(pos), e.getSenderInfo());
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public final void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public final void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public final void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
@@ -0,0 +1,109 @@
+package gurux.net.java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+import gurux.net.GXNet;
+import gurux.net.enums.NetworkEngine;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Integration test for virtual thread engine.
+ * <p>
+ * This test is run against the packaged multi-release JAR when component is
+ * built with Java 21 or later.
+ * </p>
+ */
+/**
+ * @author Gurux Ltd
+ */
+public class GXVirtualThreadIT implements IGXMediaListener {
+    /**
+     * Used TCP/IP port.
+     */
+    private static final int TCP_IP_PORT = 1010;
+
+    /**
+     * Signaled when server receives data.
+     */
+    private final CountDownLatch received = new CountDownLatch(1);
+
+    /**
+     * Thread that received the data.
+     */
+    private volatile Thread receiver;
+
+    /**
+     * Check is given thread virtual.
+     *
+     * @param thread
+     *            Thread.
+     * @return True, if thread is virtual.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private static boolean isVirtual(final Thread thread) throws Exception {
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    /**
+     * Server serves clients with virtual threads.
+     *
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Test
+    public final void virtualThreadTest() throws Exception {
+        GXNet server = new GXNet(NetworkType.TCP, TCP_IP_PORT);
+        server.setEngine(NetworkEngine.VIRTUAL_THREAD);
+        server.addListener(this);
+        GXNet client = new GXNet(NetworkType.TCP, "localhost", TCP_IP_PORT);
+        try {
+            server.open();
+            client.open();
+            client.send("Hello", null);
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertNotNull(receiver);
+            assertTrue(isVirtual(receiver));
+            assertEquals(NetworkEngine.VIRTUAL_THREAD, server.getEngine());
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Override
+    public void onError(final Object sender, final Exception ex) {
+    }
+
+    @Override
+    public void onReceived(final Object sender, final ReceiveEventArgs e) {
+        receiver = Thread.currentThread();
+        received.countDown();
+    }
+
+    @Override
+    public void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
@@ -0,0 +1,170 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+
+/**
+ * Cost of handling received data without the socket. Received data is
+ * copied to a new array or to a pooled buffer. Run with {@code -prof gc} to
+ * see allocation per received packet.
+ * <p>
+ * Benchmark is in the same package as the media, because received data is
+ * handled by package private methods.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ReceiveBenchmark implements IGXMediaListener {
+    /**
+     * Is received data delivered in pooled buffers.
+     */
+    @Param({ "false", "true" })
+    private boolean pooled;
+
+    /**
+     * Size of received data.
+     */
+    @Param({ "16", "256", "1024" })
+    private int payloadSize;
+
+    /**
+     * Is received data decoded to frames.
+     */
+    @Param({ "false", "true" })
+    private boolean decoded;
+
+    /**
+     * Media where data is received.
+     */
+    private GXNet media;
+
+    /**
+     * Received data.
+     */
+    private byte[] buffer;
+
+    /**
+     * Incomplete frame.
+     */
+    private final FrameBuffer frames = new FrameBuffer();
+
+    /**
+     * Amount of bytes listener has seen.
+     */
+    private long received;
+
+    /**
+     * Create media.
+     */
+    @Setup
+    public void setup() {
+        media = new GXNet();
+        if (pooled) {
+            media.setBufferPool(new GXBufferPool(payloadSize, 16));
+        }
+        buffer = new byte[payloadSize];
+        if (decoded) {
+            // Two bytes length and the data.
+            buffer[0] = (byte) ((payloadSize - 2) >> 8);
+            buffer[1] = (byte) (payloadSize - 2);
+            media.setFrameDecoder(new GXLengthPrefixDecoder(2));
+        }
+        media.addListener(this);
+    }
+
+    /**
+     * Handle received packet.
+     * 
+     * @return Amount of handled bytes.
+     */
+    @Benchmark
+    public long handleReceivedData() {
+        media.handleReceivedData(buffer, buffer.length, "127.0.0.1:4059",
+                frames, null);
+        return received;
+    }
+
+    @Override
+    public void onReceived(final Object sender, final ReceiveEventArgs e) {
+        Object data = e.getData();
+        if (data instanceof GXPooledBuffer) {
+            received += ((GXPooledBuffer) data).getLength();
+        } else {
+            received += ((byte[]) data).length;
+        }
+    }
+
+    @Override
+    public void onError(final Object sender, final Exception ex) {
+    }
+
+    @Override
+    public void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
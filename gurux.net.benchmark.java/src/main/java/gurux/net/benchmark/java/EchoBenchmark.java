@@ -0,0 +1,227 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.benchmark.java;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gurux.common.ReceiveParameters;
+import gurux.net.GXNet;
+import gurux.net.enums.NetworkEngine;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Loopback echo throughput and round-trip latency.
+ * <p>
+ * Each benchmark thread has its own client, so amount of clients is set with
+ * JMH thread count, e.g. {@code -t 16}.
+ * </p>
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EchoBenchmark {
+    /**
+     * Used port.
+     */
+    private static final int PORT = 40591;
+
+    /**
+     * How long reply is waited.
+     */
+    private static final int WAIT_TIME = 5000;
+
+    /**
+     * Echo server.
+     */
+    @State(Scope.Benchmark)
+    public static class Server {
+        /**
+         * Used protocol.
+         */
+        @Param({ "TCP", "UDP" })
+        private NetworkType protocol;
+
+        /**
+         * How connections are served.
+         */
+        @Param({ "THREAD", "SELECTOR" })
+        private NetworkEngine engine;
+
+        /**
+         * Size of sent data.
+         */
+        @Param({ "16", "256", "4096" })
+        private int payloadSize;
+
+        /**
+         * Server media.
+         */
+        private GXNet media;
+
+        /**
+         * Open the server.
+         * 
+         * @throws Exception
+         *             Occurred exception.
+         */
+        @Setup(Level.Trial)
+        public void open() throws Exception {
+            media = new GXNet(protocol, PORT);
+            media.setEngine(engine);
+            // Datagram must fit to the receive buffer.
+            media.setReceiveBufferSize(
+                    Math.max(media.getReceiveBufferSize(), payloadSize));
+            media.addListener(new EchoListener());
+            media.open();
+        }
+
+        /**
+         * Close the server.
+         */
+        @TearDown(Level.Trial)
+        public void close() {
+            media.close();
+        }
+    }
+
+    /**
+     * Client of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        /**
+         * Client media.
+         */
+        private GXNet media;
+
+        /**
+         * Sent data.
+         */
+        private byte[] payload;
+
+        /**
+         * Connect to the server.
+         * 
+         * @param server
+         *            Echo server.
+         * @throws Exception
+         *             Occurred exception.
+         */
+        @Setup(Level.Trial)
+        public void open(final Server server) throws Exception {
+            payload = new byte[server.payloadSize];
+            for (int pos = 0; pos != payload.length; ++pos) {
+                payload[pos] = (byte) pos;
+            }
+            media = new GXNet(server.protocol, "localhost", PORT);
+            media.setReceiveBufferSize(
+                    Math.max(media.getReceiveBufferSize(), payload.length));
+            media.open();
+        }
+
+        /**
+         * Close the client.
+         */
+        @TearDown(Level.Trial)
+        public void close() {
+            media.close();
+        }
+
+        /**
+         * @return Receive parameters of the reply.
+         */
+        private ReceiveParameters<byte[]> createArgs() {
+            ReceiveParameters<byte[]> p =
+                    new ReceiveParameters<byte[]>(byte[].class);
+            p.setCount(payload.length);
+            p.setWaitTime(WAIT_TIME);
+            return p;
+        }
+    }
+
+    /**
+     * Send data and wait the reply with synchronous receive.
+     * 
+     * @param client
+     *            Client.
+     * @return Reply.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Benchmark
+    public byte[] syncRoundTrip(final Client client) throws Exception {
+        ReceiveParameters<byte[]> p = client.createArgs();
+        synchronized (client.media.getSynchronous()) {
+            client.media.send(client.payload, null);
+            if (!client.media.receive(p)) {
+                throw new IllegalStateException("Reply not received.");
+            }
+        }
+        return p.getReply();
+    }
+
+    /**
+     * Send data and wait the reply with asynchronous request.
+     * 
+     * @param client
+     *            Client.
+     * @return Reply.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    @Benchmark
+    public byte[] asyncRoundTrip(final Client client) throws Exception {
+        return client.media
+                .sendAndReceive(client.payload, null, client.createArgs())
+                .get();
+    }
+}
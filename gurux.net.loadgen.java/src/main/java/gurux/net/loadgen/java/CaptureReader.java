@@ -0,0 +1,396 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import gurux.net.GXFlightRecorder;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Reads the data that peers have sent to the server from pcap, pcapng or
+ * saved flight recorder file.
+ * <p>
+ * Only packets of the used protocol whose target port is the port of the
+ * recorded server are read. IP fragments and TCP retransmissions are not
+ * handled.
+ * </p>
+ */
+final class CaptureReader {
+    /**
+     * Block type of pcapng section header.
+     */
+    private static final int SECTION_HEADER = 0x0A0D0D0A;
+    /**
+     * Block type of pcapng interface description.
+     */
+    private static final int INTERFACE_DESCRIPTION = 1;
+    /**
+     * Block type of pcapng enhanced packet.
+     */
+    private static final int ENHANCED_PACKET = 6;
+    /**
+     * Magic of pcap file with microsecond timestamps.
+     */
+    private static final int PCAP_MICROSECONDS = 0xA1B2C3D4;
+    /**
+     * Magic of pcap file with nanosecond timestamps.
+     */
+    private static final int PCAP_NANOSECONDS = 0xA1B23C4D;
+
+    /**
+     * Used protocol.
+     */
+    private final NetworkType protocol;
+    /**
+     * Port of the recorded server.
+     */
+    private final int serverPort;
+    /**
+     * Read frames.
+     */
+    private final List<ReplayFrame> frames = new ArrayList<ReplayFrame>();
+
+    /**
+     * Constructor.
+     * 
+     * @param type
+     *            Used protocol.
+     * @param port
+     *            Port of the recorded server.
+     */
+    private CaptureReader(final NetworkType type, final int port) {
+        protocol = type;
+        serverPort = port;
+    }
+
+    /**
+     * Read the data that peers have sent to the server.
+     * 
+     * @param file
+     *            pcap, pcapng or flight recorder file.
+     * @param protocol
+     *            Used protocol.
+     * @param serverPort
+     *            Port of the recorded server. Not used with flight recorder
+     *            file.
+     * @return Frames in time order.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    static List<ReplayFrame> read(final String file,
+            final NetworkType protocol, final int serverPort)
+            throws IOException {
+        ByteBuffer bb = ByteBuffer.wrap(Files.readAllBytes(Paths.get(file)));
+        if (bb.remaining() < 4) {
+            throw new IOException("Invalid capture file.");
+        }
+        CaptureReader r = new CaptureReader(protocol, serverPort);
+        int magic = bb.getInt(0);
+        if (magic == SECTION_HEADER) {
+            r.readPcapng(bb);
+        } else if (magic == GXFlightRecorder.MAGIC) {
+            r.readFlightRecorder(bb);
+        } else {
+            r.readPcap(bb);
+        }
+        Collections.sort(r.frames, new Comparator<ReplayFrame>() {
+            @Override
+            public int compare(final ReplayFrame a, final ReplayFrame b) {
+                return Long.compare(a.getTime(), b.getTime());
+            }
+        });
+        return r.frames;
+    }
+
+    /**
+     * Read pcap file.
+     * 
+     * @param bb
+     *            File content.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private void readPcap(final ByteBuffer bb) throws IOException {
+        bb.order(ByteOrder.LITTLE_ENDIAN);
+        int magic = bb.getInt(0);
+        if (magic != PCAP_MICROSECONDS && magic != PCAP_NANOSECONDS) {
+            bb.order(ByteOrder.BIG_ENDIAN);
+            magic = bb.getInt(0);
+            if (magic != PCAP_MICROSECONDS && magic != PCAP_NANOSECONDS) {
+                throw new IOException("Unknown capture file format.");
+            }
+        }
+        int linkType = bb.getInt(20);
+        bb.position(24);
+        while (bb.remaining() >= 16) {
+            long seconds = bb.getInt() & 0xFFFFFFFFL;
+            long fraction = bb.getInt() & 0xFFFFFFFFL;
+            int length = bb.getInt();
+            bb.getInt();
+            if (length < 0 || length > bb.remaining()) {
+                break;
+            }
+            if (magic == PCAP_NANOSECONDS) {
+                fraction /= 1000;
+            }
+            decode(seconds * 1000000 + fraction, linkType, bb.array(),
+                    bb.position(), length);
+            bb.position(bb.position() + length);
+        }
+    }
+
+    /**
+     * Read pcapng file.
+     * 
+     * @param bb
+     *            File content.
+     */
+    private void readPcapng(final ByteBuffer bb) {
+        // Link type and timestamp units in a second of the interfaces.
+        List<long[]> interfaces = new ArrayList<long[]>();
+        int pos = 0;
+        while (bb.limit() - pos >= 12) {
+            int type = bb.getInt(pos);
+            if (type == SECTION_HEADER) {
+                bb.order(ByteOrder.BIG_ENDIAN);
+                if (bb.getInt(pos + 8) != 0x1A2B3C4D) {
+                    bb.order(ByteOrder.LITTLE_ENDIAN);
+                }
+                interfaces.clear();
+            }
+            int length = bb.getInt(pos + 4);
+            if (length < 12 || length > bb.limit() - pos) {
+                break;
+            }
+            if (type == INTERFACE_DESCRIPTION) {
+                interfaces.add(new long[] { bb.getShort(pos + 8) & 0xFFFF,
+                        getResolution(bb, pos + 16, pos + length - 4) });
+            } else if (type == ENHANCED_PACKET) {
+                int id = bb.getInt(pos + 8);
+                if (id >= 0 && id < interfaces.size()) {
+                    long[] it = interfaces.get(id);
+                    long ts = ((bb.getInt(pos + 12) & 0xFFFFFFFFL) << 32)
+                            | (bb.getInt(pos + 16) & 0xFFFFFFFFL);
+                    long time = (long) (ts * (1e6 / it[1]));
+                    int captured = Math.min(bb.getInt(pos + 20),
+                            length - 32);
+                    decode(time, (int) it[0], bb.array(), pos + 28,
+                            captured);
+                }
+            }
+            pos += length;
+        }
+    }
+
+    /**
+     * Get timestamp resolution from the interface options.
+     * 
+     * @param bb
+     *            File content.
+     * @param start
+     *            Start of the options.
+     * @param end
+     *            End of the options.
+     * @return Timestamp units in a second.
+     */
+    private static long getResolution(final ByteBuffer bb, final int start,
+            final int end) {
+        int pos = start;
+        while (pos + 4 <= end) {
+            int code = bb.getShort(pos) & 0xFFFF;
+            int length = bb.getShort(pos + 2) & 0xFFFF;
+            if (code == 0) {
+                break;
+            }
+            // if_tsresol.
+            if (code == 9 && length == 1) {
+                int value = bb.get(pos + 4);
+                if ((value & 0x80) == 0) {
+                    long units = 1;
+                    for (int i = 0; i != value; ++i) {
+                        units *= 10;
+                    }
+                    return units;
+                }
+                return 1L << (value & 0x7F);
+            }
+            pos += 4 + ((length + 3) & ~3);
+        }
+        return 1000000;
+    }
+
+    /**
+     * Read saved flight recorder. Data that the recorded media has
+     * received is replayed.
+     * 
+     * @param bb
+     *            File content.
+     */
+    private void readFlightRecorder(final ByteBuffer bb) {
+        bb.position(4);
+        while (bb.remaining() >= 18) {
+            int start = bb.position();
+            int size = bb.getInt();
+            long time = bb.getLong();
+            bb.getInt();
+            boolean sent = bb.get() != 0;
+            int peerLength = bb.get() & 0xFF;
+            if (size < 18 + peerLength || size > bb.limit() - start) {
+                break;
+            }
+            StringBuilder peer = new StringBuilder();
+            for (int pos = 0; pos != peerLength; ++pos) {
+                peer.append((char) bb.get());
+            }
+            byte[] data = new byte[size - 18 - peerLength];
+            bb.get(data);
+            if (!sent && data.length != 0) {
+                frames.add(new ReplayFrame(time * 1000, peer.toString(),
+                        data));
+            }
+        }
+    }
+
+    /**
+     * Decode captured packet and save data that is sent to the server.
+     * 
+     * @param time
+     *            Time in microseconds.
+     * @param linkType
+     *            Link type.
+     * @param data
+     *            Captured data.
+     * @param index
+     *            Start of the packet.
+     * @param length
+     *            Captured length of the packet.
+     */
+    private void decode(final long time, final int linkType,
+            final byte[] data, final int index, final int length) {
+        ByteBuffer bb = ByteBuffer.wrap(data, index, length).slice();
+        int ip;
+        switch (linkType) {
+        // Ethernet.
+        case 1:
+            ip = 14;
+            while (bb.limit() >= ip && (bb.getShort(ip - 2) == (short) 0x8100
+                    || bb.getShort(ip - 2) == (short) 0x88A8)) {
+                ip += 4;
+            }
+            break;
+        // Raw IP.
+        case 101:
+        case 228:
+        case 229:
+            ip = 0;
+            break;
+        // Linux cooked capture.
+        case 113:
+            ip = 16;
+            break;
+        case 276:
+            ip = 20;
+            break;
+        // BSD loopback.
+        case 0:
+        case 108:
+            ip = 4;
+            break;
+        default:
+            return;
+        }
+        if (bb.limit() < ip + 20) {
+            return;
+        }
+        int version = (bb.get(ip) & 0xFF) >> 4;
+        int transport;
+        int end;
+        int next;
+        byte[] source;
+        if (version == 4) {
+            transport = ip + (bb.get(ip) & 0xF) * 4;
+            end = ip + (bb.getShort(ip + 2) & 0xFFFF);
+            next = bb.get(ip + 9);
+            source = new byte[4];
+            bb.position(ip + 12);
+        } else if (version == 6 && bb.limit() >= ip + 40) {
+            transport = ip + 40;
+            end = transport + (bb.getShort(ip + 4) & 0xFFFF);
+            next = bb.get(ip + 6);
+            source = new byte[16];
+            bb.position(ip + 8);
+        } else {
+            return;
+        }
+        bb.get(source);
+        end = Math.min(end, bb.limit());
+        int payload;
+        if (protocol == NetworkType.TCP && next == 6 && end >= transport + 20) {
+            payload = transport + ((bb.get(transport + 12) & 0xF0) >> 2);
+        } else if (protocol == NetworkType.UDP && next == 17
+                && end >= transport + 8) {
+            payload = transport + 8;
+        } else {
+            return;
+        }
+        if (payload >= end || (bb.getShort(transport + 2)
+                & 0xFFFF) != serverPort) {
+            return;
+        }
+        int port = bb.getShort(transport) & 0xFFFF;
+        String peer;
+        try {
+            peer = InetAddress.getByAddress(source).getHostAddress() + ":"
+                    + port;
+        } catch (IOException e) {
+            return;
+        }
+        byte[] tmp = new byte[end - payload];
+        bb.position(payload);
+        bb.get(tmp);
+        frames.add(new ReplayFrame(time, peer, tmp));
+    }
+}
@@ -0,0 +1,160 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Echo server that is run in its own process, so that its thread count and
+ * heap usage are not mixed with the simulated meters. Server reports its
+ * state on each line it writes.
+ */
+final class ChildServer implements ServerProbe, Runnable {
+    /**
+     * Server process.
+     */
+    private final Process process;
+    /**
+     * Reader of the server output.
+     */
+    private final BufferedReader reader;
+    /**
+     * Latest thread count.
+     */
+    private volatile int threadCount;
+    /**
+     * Latest heap usage.
+     */
+    private volatile long heapUsed;
+
+    /**
+     * Start server process.
+     * 
+     * @param settings
+     *            Settings.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    ChildServer(final LoadSettings settings) throws IOException {
+        List<String> cmd = new ArrayList<String>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin"
+                + File.separator + "java");
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(GXLoadGenerator.class.getName());
+        cmd.add("server");
+        cmd.add("-p");
+        cmd.add(String.valueOf(settings.getPort()));
+        cmd.add("-t");
+        cmd.add(settings.getProtocol().toString());
+        cmd.add("-e");
+        cmd.add(settings.getEngine().toString());
+        cmd.add("-b");
+        cmd.add(String.valueOf(settings.getBacklog()));
+        cmd.add("-R");
+        cmd.add(String.valueOf(settings.getReportInterval()));
+        process = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            update(line);
+            if (line.startsWith(LoadServer.READY)) {
+                break;
+            }
+        }
+        if (line == null) {
+            throw new IOException("Server process failed.");
+        }
+        Thread t = new Thread(this, "Server output");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Update state from report line of the server.
+     * 
+     * @param line
+     *            Report line.
+     */
+    private void update(final String line) {
+        for (String it : line.split(" ")) {
+            if (it.startsWith("threads=")) {
+                threadCount = Integer.parseInt(it.substring(8));
+            } else if (it.startsWith("heapKB=")) {
+                heapUsed = 1024 * Long.parseLong(it.substring(7));
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                update(line);
+            }
+        } catch (IOException e) {
+            // Server is closed.
+        }
+    }
+
+    @Override
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    @Override
+    public long getHeapUsed() {
+        return heapUsed;
+    }
+
+    /**
+     * Stop the server process.
+     * 
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    void close() throws InterruptedException {
+        process.destroy();
+        process.waitFor();
+    }
+}
@@ -0,0 +1,204 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+import gurux.net.enums.NetworkEngine;
+
+/**
+ * Opens a fleet of simulated meters against the server and reports how the
+ * server copes with them.
+ */
+public final class GXLoadGenerator {
+    /**
+     * Constructor.
+     */
+    private GXLoadGenerator() {
+
+    }
+
+    /**
+     * Create thread factory for daemon threads.
+     * 
+     * @param name
+     *            Thread name.
+     * @return Thread factory.
+     */
+    static ThreadFactory daemon(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Main method.
+     * 
+     * @param args
+     *            Command line arguments.
+     */
+    public static void main(final String[] args) {
+        LoadSettings settings;
+        try {
+            settings = LoadSettings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            LoadSettings.showHelp();
+            System.exit(1);
+            return;
+        }
+        try {
+            if ("server".equals(settings.getMode())) {
+                new LoadServer(settings).run(settings);
+            } else if ("client".equals(settings.getMode())) {
+                MeterFleet fleet = new MeterFleet(settings);
+                fleet.run(getProbe(settings));
+                fleet.printSummary();
+            } else if ("replay".equals(settings.getMode())) {
+                replay(settings);
+            } else {
+                compare(settings);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Connect to the JMX of the server under test.
+     * 
+     * @param settings
+     *            Settings.
+     * @return Server probe or null, if JMX address is not given.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    private static ServerProbe getProbe(final LoadSettings settings)
+            throws IOException {
+        if (settings.getJmx() == null) {
+            return null;
+        }
+        return JmxServerProbe.connect(settings.getJmx());
+    }
+
+    /**
+     * Replay recorded traffic against the server.
+     * 
+     * @param settings
+     *            Settings.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private static void replay(final LoadSettings settings)
+            throws Exception {
+        List<ReplayFrame> frames = CaptureReader.read(settings.getFile(),
+                settings.getProtocol(), settings.getRecordedPort());
+        if (frames.isEmpty()) {
+            System.out.println("No data to replay. Check protocol and port "
+                    + "of the recorded server.");
+            return;
+        }
+        TrafficReplay replay = new TrafficReplay(settings, frames);
+        System.out.println(String.format(
+                "Replaying %d frames from %d peers with %d copies.",
+                frames.size(), replay.getPeerCount(), settings.getCopies()));
+        replay.run(getProbe(settings));
+        replay.printSummary();
+    }
+
+    /**
+     * Run the same load against each server engine. Server is started in
+     * its own process, so that thread and heap figures belong only to the
+     * server.
+     * 
+     * @param settings
+     *            Settings.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    private static void compare(final LoadSettings settings)
+            throws Exception {
+        NetworkEngine[] engines;
+        if (settings.getEngine() == null) {
+            engines = NetworkEngine.values();
+        } else {
+            engines = new NetworkEngine[] { settings.getEngine() };
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-15s %9s %10s %10s %8s %8s %9s %8s %8s%n",
+                "Engine", "Connected", "Connect/s", "Replies/s", "p50 ms",
+                "p99 ms", "Timeouts", "Threads", "Heap MB"));
+        for (NetworkEngine engine : engines) {
+            settings.setEngine(engine);
+            System.out.println("Testing " + engine + " engine.");
+            ChildServer server;
+            try {
+                server = new ChildServer(settings);
+            } catch (IOException e) {
+                System.out.println(engine + " engine is not supported.");
+                sb.append(String.format("%-15s not supported%n", engine));
+                continue;
+            }
+            MeterFleet fleet = new MeterFleet(settings);
+            try {
+                fleet.run(server);
+            } finally {
+                server.close();
+            }
+            fleet.printSummary();
+            sb.append(String.format(
+                    "%-15s %9d %10.0f %10.0f %8.2f %8.2f %9d %8d %8d%n",
+                    engine, fleet.getConnected(), fleet.getConnectRate(),
+                    fleet.getThroughput(),
+                    fleet.getLatency().getPercentile(50) / 1000.0,
+                    fleet.getLatency().getPercentile(99) / 1000.0,
+                    fleet.getTimeouts(), fleet.getPeakThreads(),
+                    fleet.getPeakHeap() / (1024 * 1024)));
+            // Give the operating system time to release the ports.
+            Thread.sleep(2000);
+        }
+        System.out.print(sb);
+    }
+}
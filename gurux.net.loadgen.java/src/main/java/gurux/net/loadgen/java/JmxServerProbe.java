@@ -0,0 +1,114 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+
+/**
+ * Reads thread count and heap usage from the platform MXBeans. Server can
+ * be in this JVM or in other JVM that has enabled remote JMX.
+ */
+final class JmxServerProbe implements ServerProbe {
+    /**
+     * Threads of the server.
+     */
+    private final ThreadMXBean threads;
+    /**
+     * Memory of the server.
+     */
+    private final MemoryMXBean memory;
+
+    /**
+     * Constructor.
+     * 
+     * @param connection
+     *            Connection to the MBean server.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    JmxServerProbe(final MBeanServerConnection connection)
+            throws IOException {
+        threads = ManagementFactory.newPlatformMXBeanProxy(connection,
+                ManagementFactory.THREAD_MXBEAN_NAME, ThreadMXBean.class);
+        memory = ManagementFactory.newPlatformMXBeanProxy(connection,
+                ManagementFactory.MEMORY_MXBEAN_NAME, MemoryMXBean.class);
+    }
+
+    /**
+     * Connect to the remote JVM.
+     * 
+     * @param address
+     *            Host name and JMX port separated with colon.
+     * @return Probe.
+     * @throws IOException
+     *             Occurred exception.
+     */
+    static JmxServerProbe connect(final String address) throws IOException {
+        JMXConnector c = JMXConnectorFactory.connect(new JMXServiceURL(
+                "service:jmx:rmi:///jndi/rmi://" + address + "/jmxrmi"));
+        return new JmxServerProbe(c.getMBeanServerConnection());
+    }
+
+    /**
+     * @return Probe of this JVM.
+     */
+    static JmxServerProbe local() {
+        try {
+            return new JmxServerProbe(
+                    ManagementFactory.getPlatformMBeanServer());
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @Override
+    public int getThreadCount() {
+        return threads.getThreadCount();
+    }
+
+    @Override
+    public long getHeapUsed() {
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
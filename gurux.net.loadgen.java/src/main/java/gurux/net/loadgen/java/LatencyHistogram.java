@@ -0,0 +1,172 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in microseconds. Each power of two is divided to
+ * 16 buckets, so percentiles are accurate to about six percent. Values can
+ * be recorded from several threads without locking.
+ */
+final class LatencyHistogram {
+    /**
+     * Amount of buckets in each power of two.
+     */
+    private static final int SUB_BUCKETS = 16;
+    /**
+     * Bits of the sub buckets.
+     */
+    private static final int SUB_BITS = 4;
+    /**
+     * Amount of buckets.
+     */
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BITS + 1);
+
+    /**
+     * Counts of the buckets.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Get bucket of the value.
+     * 
+     * @param value
+     *            Value.
+     * @return Bucket index.
+     */
+    private static int indexOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(0, value);
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS * (exp - SUB_BITS + 1) + sub;
+    }
+
+    /**
+     * Get highest value of the bucket.
+     * 
+     * @param index
+     *            Bucket index.
+     * @return Highest value of the bucket.
+     */
+    private static long highestOf(final int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = SUB_BUCKETS + index % SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Record value.
+     * 
+     * @param micros
+     *            Latency in microseconds.
+     */
+    void record(final long micros) {
+        counts.incrementAndGet(indexOf(micros));
+    }
+
+    /**
+     * Move recorded values to other histogram and clear this histogram.
+     * 
+     * @param target
+     *            Histogram where values are added. Null if values are only
+     *            cleared.
+     * @return Histogram where values of this histogram are moved.
+     */
+    LatencyHistogram drainTo(final LatencyHistogram target) {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int pos = 0; pos != BUCKETS; ++pos) {
+            long v = counts.getAndSet(pos, 0);
+            if (v != 0) {
+                h.counts.set(pos, v);
+                if (target != null) {
+                    target.counts.addAndGet(pos, v);
+                }
+            }
+        }
+        return h;
+    }
+
+    /**
+     * @return Amount of recorded values.
+     */
+    long getCount() {
+        long count = 0;
+        for (int pos = 0; pos != BUCKETS; ++pos) {
+            count += counts.get(pos);
+        }
+        return count;
+    }
+
+    /**
+     * Get percentile.
+     * 
+     * @param percentile
+     *            Percentile from 0 to 100.
+     * @return Latency in microseconds. Zero if there are no values.
+     */
+    long getPercentile(final double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long limit = (long) Math.ceil(count * percentile / 100);
+        long sum = 0;
+        for (int pos = 0; pos != BUCKETS; ++pos) {
+            sum += counts.get(pos);
+            if (sum >= Math.max(1, limit)) {
+                return highestOf(pos);
+            }
+        }
+        return highestOf(BUCKETS - 1);
+    }
+
+    /**
+     * @return Latency percentiles in milliseconds as a string.
+     */
+    @Override
+    public String toString() {
+        return String.format("p50=%.2fms p90=%.2fms p99=%.2fms "
+                + "p99.9=%.2fms max=%.2fms", getPercentile(50) / 1000.0,
+                getPercentile(90) / 1000.0, getPercentile(99) / 1000.0,
+                getPercentile(99.9) / 1000.0, getPercentile(100) / 1000.0);
+    }
+}
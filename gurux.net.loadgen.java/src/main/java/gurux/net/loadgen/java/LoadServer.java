@@ -0,0 +1,131 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+import gurux.net.GXNet;
+import gurux.net.GXNetStatistics;
+
+/**
+ * Echo server under test. Received data is sent back to the meter.
+ */
+final class LoadServer implements IGXMediaListener {
+    /**
+     * Line that server writes when it's ready.
+     */
+    static final String READY = "READY";
+
+    /**
+     * Server media.
+     */
+    private final GXNet media;
+
+    /**
+     * Constructor.
+     * 
+     * @param settings
+     *            Settings.
+     */
+    LoadServer(final LoadSettings settings) {
+        media = new GXNet(settings.getProtocol(), settings.getPort());
+        media.setEngine(settings.getEngine());
+        media.setAcceptBacklog(settings.getBacklog());
+        media.setManagementName("LoadServer");
+        media.addListener(this);
+    }
+
+    /**
+     * Open the server and report its state until the process is stopped.
+     * 
+     * @param settings
+     *            Settings.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    void run(final LoadSettings settings) throws Exception {
+        media.open();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                media.close();
+            }
+        });
+        JmxServerProbe probe = JmxServerProbe.local();
+        System.out.println(READY + " " + settings.getProtocol() + " port "
+                + settings.getPort() + " engine " + settings.getEngine());
+        while (true) {
+            GXNetStatistics s = media.getStatistics();
+            System.out.println(String.format(
+                    "clients=%d threads=%d heapKB=%d connects=%d "
+                            + "rejects=%d frames=%d errors=%d",
+                    media.getConnections().size(), probe.getThreadCount(),
+                    probe.getHeapUsed() / 1024, s.getConnects(),
+                    s.getRejects(), s.getFramesReceived(), s.getErrors()));
+            Thread.sleep(1000L * settings.getReportInterval());
+        }
+    }
+
+    @Override
+    public void onReceived(final Object sender, final ReceiveEventArgs e) {
+        try {
+            media.send(e.getData(), e.getSenderInfo());
+        } catch (Exception ex) {
+            // Meter has disconnected.
+        }
+    }
+
+    @Override
+    public void onError(final Object sender, final Exception ex) {
+    }
+
+    @Override
+    public void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}
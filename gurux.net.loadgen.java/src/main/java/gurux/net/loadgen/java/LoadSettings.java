@@ -0,0 +1,474 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import gurux.net.enums.NetworkEngine;
+import gurux.net.enums.NetworkType;
+
+/**
+ * Command line settings of the load generator.
+ */
+final class LoadSettings {
+    /**
+     * Run mode. server, client, compare or replay.
+     */
+    private String mode;
+    /**
+     * Host name of the server.
+     */
+    private String host = "localhost";
+    /**
+     * Port of the server.
+     */
+    private int port = 4061;
+    /**
+     * Used protocol.
+     */
+    private NetworkType protocol = NetworkType.TCP;
+    /**
+     * Engine of the server. Null in compare mode if all engines are
+     * compared.
+     */
+    private NetworkEngine engine;
+    /**
+     * Engine of the simulated meters.
+     */
+    private NetworkEngine clientEngine = NetworkEngine.THREAD;
+    /**
+     * Amount of simulated meters.
+     */
+    private int clients = 1000;
+    /**
+     * How many meters connect in a second. Zero if not limited.
+     */
+    private int connectRate = 1000;
+    /**
+     * How many requests are sent in a second.
+     */
+    private int rate = 1000;
+    /**
+     * Request pattern.
+     */
+    private String pattern = "constant";
+    /**
+     * Interval of the burst pattern in milliseconds.
+     */
+    private int burstInterval = 10000;
+    /**
+     * Sent request.
+     */
+    private byte[] message = createMessage(32);
+    /**
+     * Duration of the test in seconds.
+     */
+    private int duration = 60;
+    /**
+     * How long reply is waited in milliseconds.
+     */
+    private int waitTime = 5000;
+    /**
+     * Amount of threads that send the requests.
+     */
+    private int senderCount = Runtime.getRuntime().availableProcessors();
+    /**
+     * Accept backlog of the server.
+     */
+    private int backlog = 1024;
+    /**
+     * Report interval in seconds.
+     */
+    private int reportInterval = 1;
+    /**
+     * JMX address of the server under test. host:port.
+     */
+    private String jmx;
+    /**
+     * Replayed capture file.
+     */
+    private String file;
+    /**
+     * Replay speed. 1 is the original timing and 0 as fast as possible.
+     */
+    private double speed = 1;
+    /**
+     * How many simulated peers replay the traffic of each recorded peer.
+     */
+    private int copies = 1;
+    /**
+     * Port of the recorded server. Zero if same as the port of the server.
+     */
+    private int recordedPort;
+
+    /**
+     * Create request of given size.
+     * 
+     * @param size
+     *            Request size.
+     * @return Request.
+     */
+    private static byte[] createMessage(final int size) {
+        byte[] data = new byte[size];
+        for (int pos = 0; pos != size; ++pos) {
+            data[pos] = (byte) pos;
+        }
+        return data;
+    }
+
+    /**
+     * Convert hex string to bytes.
+     * 
+     * @param value
+     *            Hex string. Spaces are ignored.
+     * @return Bytes.
+     */
+    private static byte[] fromHex(final String value) {
+        String tmp = value.replace(" ", "");
+        if (tmp.isEmpty() || tmp.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid message: " + value);
+        }
+        byte[] data = new byte[tmp.length() / 2];
+        for (int pos = 0; pos != data.length; ++pos) {
+            data[pos] = (byte) Integer.parseInt(
+                    tmp.substring(2 * pos, 2 * pos + 2), 16);
+        }
+        return data;
+    }
+
+    /**
+     * Parse command line arguments.
+     * 
+     * @param args
+     *            Command line arguments.
+     * @return Settings.
+     */
+    static LoadSettings parse(final String[] args) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Mode is missing.");
+        }
+        LoadSettings s = new LoadSettings();
+        s.mode = args[0];
+        if (!"server".equals(s.mode) && !"client".equals(s.mode)
+                && !"compare".equals(s.mode) && !"replay".equals(s.mode)) {
+            throw new IllegalArgumentException("Invalid mode: " + s.mode);
+        }
+        for (int pos = 1; pos < args.length; ++pos) {
+            String name = args[pos];
+            if (pos + 1 == args.length) {
+                throw new IllegalArgumentException(
+                        "Value is missing: " + name);
+            }
+            String value = args[++pos];
+            if ("-h".equals(name)) {
+                s.host = value;
+            } else if ("-p".equals(name)) {
+                s.port = Integer.parseInt(value);
+            } else if ("-t".equals(name)) {
+                s.protocol = NetworkType.valueOf(value.toUpperCase());
+            } else if ("-e".equals(name)) {
+                s.engine = NetworkEngine.valueOf(value.toUpperCase());
+            } else if ("-E".equals(name)) {
+                s.clientEngine = NetworkEngine.valueOf(value.toUpperCase());
+            } else if ("-c".equals(name)) {
+                s.clients = Integer.parseInt(value);
+            } else if ("-u".equals(name)) {
+                s.connectRate = Integer.parseInt(value);
+            } else if ("-r".equals(name)) {
+                s.rate = Integer.parseInt(value);
+            } else if ("-P".equals(name)) {
+                if (!"constant".equals(value) && !"burst".equals(value)) {
+                    throw new IllegalArgumentException(
+                            "Invalid pattern: " + value);
+                }
+                s.pattern = value;
+            } else if ("-i".equals(name)) {
+                s.burstInterval = Integer.parseInt(value);
+            } else if ("-s".equals(name)) {
+                s.message = createMessage(Integer.parseInt(value));
+            } else if ("-m".equals(name)) {
+                s.message = fromHex(value);
+            } else if ("-d".equals(name)) {
+                s.duration = Integer.parseInt(value);
+            } else if ("-w".equals(name)) {
+                s.waitTime = Integer.parseInt(value);
+            } else if ("-T".equals(name)) {
+                s.senderCount = Integer.parseInt(value);
+            } else if ("-b".equals(name)) {
+                s.backlog = Integer.parseInt(value);
+            } else if ("-R".equals(name)) {
+                s.reportInterval = Integer.parseInt(value);
+            } else if ("-j".equals(name)) {
+                s.jmx = value;
+            } else if ("-f".equals(name)) {
+                s.file = value;
+            } else if ("-x".equals(name)) {
+                s.speed = Double.parseDouble(value);
+            } else if ("-n".equals(name)) {
+                s.copies = Integer.parseInt(value);
+            } else if ("-o".equals(name)) {
+                s.recordedPort = Integer.parseInt(value);
+            } else {
+                throw new IllegalArgumentException("Invalid argument: " + name);
+            }
+        }
+        if (s.clients < 1 || s.rate < 1 || s.senderCount < 1
+                || s.reportInterval < 1 || s.duration < 1 || s.speed < 0
+                || s.copies < 1) {
+            throw new IllegalArgumentException("Invalid arguments.");
+        }
+        if ("replay".equals(s.mode) && s.file == null) {
+            throw new IllegalArgumentException("Replayed file is missing.");
+        }
+        if (s.engine == null && !"compare".equals(s.mode)) {
+            s.engine = NetworkEngine.THREAD;
+        }
+        return s;
+    }
+
+    /**
+     * Show help.
+     */
+    static void showHelp() {
+        System.out.println("Simulates a fleet of meters against GXNet server.");
+        System.out.println(
+                "GXLoadGenerator server|client|compare|replay [options]");
+        System.out.println(" server  Run echo server and report its threads "
+                + "and heap.");
+        System.out.println(" client  Run meters against the server.");
+        System.out.println(" compare Run meters against echo server of each "
+                + "engine in own process.");
+        System.out.println(" replay  Replay recorded traffic against the "
+                + "server.");
+        System.out.println(" -h \t Host name. Default is localhost.");
+        System.out.println(" -p \t Port. Default is 4061.");
+        System.out.println(" -t \t Protocol. TCP or UDP.");
+        System.out.println(" -e \t Server engine. THREAD, VIRTUAL_THREAD "
+                + "or SELECTOR.");
+        System.out.println(" -E \t Meter engine. THREAD or VIRTUAL_THREAD.");
+        System.out.println(" -c \t Amount of meters. Default is 1000.");
+        System.out.println(" -u \t Meters that connect in a second. "
+                + "0 is not limited.");
+        System.out.println(" -r \t Requests in a second. Default is 1000.");
+        System.out.println(" -P \t Request pattern. constant or burst.");
+        System.out.println(" -i \t Burst interval in ms. Default is 10000.");
+        System.out.println(" -s \t Request size. Default is 32.");
+        System.out.println(" -m \t Request as hex string.");
+        System.out.println(" -d \t Duration in seconds. Default is 60.");
+        System.out.println(" -w \t Reply wait time in ms. Default is 5000.");
+        System.out.println(" -T \t Amount of sender threads.");
+        System.out.println(" -b \t Accept backlog of the server.");
+        System.out.println(" -R \t Report interval in seconds.");
+        System.out.println(" -j \t JMX host:port of the server under test.");
+        System.out.println(" -f \t Replayed pcap, pcapng or flight "
+                + "recorder file.");
+        System.out.println(" -x \t Replay speed. 1 is original timing "
+                + "and 0 as fast as possible.");
+        System.out.println(" -n \t Simulated peers for each recorded peer. "
+                + "Default is 1.");
+        System.out.println(" -o \t Port of the recorded server. "
+                + "Default is same as -p.");
+        System.out.println("Example:");
+        System.out.println(" GXLoadGenerator compare -c 10000 -r 5000 -d 30");
+        System.out.println(" GXLoadGenerator replay -f meters.pcapng -x 10 "
+                + "-n 100");
+    }
+
+    /**
+     * @return Run mode.
+     */
+    String getMode() {
+        return mode;
+    }
+
+    /**
+     * @return Host name of the server.
+     */
+    String getHost() {
+        return host;
+    }
+
+    /**
+     * @return Port of the server.
+     */
+    int getPort() {
+        return port;
+    }
+
+    /**
+     * @return Used protocol.
+     */
+    NetworkType getProtocol() {
+        return protocol;
+    }
+
+    /**
+     * @return Engine of the server.
+     */
+    NetworkEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @param value
+     *            Engine of the server.
+     */
+    void setEngine(final NetworkEngine value) {
+        engine = value;
+    }
+
+    /**
+     * @return Engine of the simulated meters.
+     */
+    NetworkEngine getClientEngine() {
+        return clientEngine;
+    }
+
+    /**
+     * @return Amount of simulated meters.
+     */
+    int getClients() {
+        return clients;
+    }
+
+    /**
+     * @return How many meters connect in a second. Zero if not limited.
+     */
+    int getConnectRate() {
+        return connectRate;
+    }
+
+    /**
+     * @return How many requests are sent in a second.
+     */
+    int getRate() {
+        return rate;
+    }
+
+    /**
+     * @return True, if all meters send at the same time.
+     */
+    boolean isBurst() {
+        return "burst".equals(pattern);
+    }
+
+    /**
+     * @return Interval of the burst pattern in milliseconds.
+     */
+    int getBurstInterval() {
+        return burstInterval;
+    }
+
+    /**
+     * @return Sent request.
+     */
+    byte[] getMessage() {
+        return message;
+    }
+
+    /**
+     * @return Duration of the test in seconds.
+     */
+    int getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return How long reply is waited in milliseconds.
+     */
+    int getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * @return Amount of threads that send the requests.
+     */
+    int getSenderCount() {
+        return senderCount;
+    }
+
+    /**
+     * @return Accept backlog of the server.
+     */
+    int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * @return Report interval in seconds.
+     */
+    int getReportInterval() {
+        return reportInterval;
+    }
+
+    /**
+     * @return JMX address of the server under test. Null if not used.
+     */
+    String getJmx() {
+        return jmx;
+    }
+
+    /**
+     * @return Replayed capture file.
+     */
+    String getFile() {
+        return file;
+    }
+
+    /**
+     * @return Replay speed. 1 is the original timing and 0 as fast as
+     *         possible.
+     */
+    double getSpeed() {
+        return speed;
+    }
+
+    /**
+     * @return How many simulated peers replay the traffic of each recorded
+     *         peer.
+     */
+    int getCopies() {
+        return copies;
+    }
+
+    /**
+     * @return Port of the recorded server.
+     */
+    int getRecordedPort() {
+        if (recordedPort == 0) {
+            return port;
+        }
+        return recordedPort;
+    }
+}
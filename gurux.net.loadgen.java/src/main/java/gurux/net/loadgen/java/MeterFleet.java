@@ -0,0 +1,531 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+import gurux.common.ReceiveParameters;
+import gurux.net.GXNet;
+
+/**
+ * Simulated meters that connect to the server and send requests at the
+ * target rate. Latency is measured from the time when request should have
+ * been sent, so a slow server is not hidden by the senders falling behind.
+ */
+final class MeterFleet {
+    /**
+     * Maximum amount of threads that open and close the meters.
+     */
+    private static final int MAX_CONNECT_THREADS = 64;
+    /**
+     * How often report time is checked in milliseconds.
+     */
+    private static final int REPORT_CHECK_INTERVAL = 100;
+
+    /**
+     * Settings.
+     */
+    private final LoadSettings settings;
+    /**
+     * Connected meters. Null if meter is not connected yet.
+     */
+    private final AtomicReferenceArray<Meter> meters;
+    /**
+     * Is test running.
+     */
+    private volatile boolean running = true;
+    /**
+     * Time when next meter can connect.
+     */
+    private long nextConnect;
+    /**
+     * Amount of connected meters.
+     */
+    private final AtomicLong connected = new AtomicLong();
+    /**
+     * Amount of failed connects.
+     */
+    private final AtomicLong connectErrors = new AtomicLong();
+    /**
+     * How long it took to connect all meters in nanoseconds.
+     */
+    private volatile long connectTime;
+    /**
+     * Amount of sent requests.
+     */
+    private final AtomicLong sent = new AtomicLong();
+    /**
+     * Amount of received replies.
+     */
+    private final AtomicLong replies = new AtomicLong();
+    /**
+     * Amount of timed out requests.
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+    /**
+     * Amount of failed requests.
+     */
+    private final AtomicLong errors = new AtomicLong();
+    /**
+     * Amount of requests that were not sent, because the meter was still
+     * waiting for the previous reply.
+     */
+    private final AtomicLong skipped = new AtomicLong();
+    /**
+     * Latencies of the current report interval.
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /**
+     * Latencies of the whole test.
+     */
+    private final LatencyHistogram total = new LatencyHistogram();
+    /**
+     * Highest thread count of the server.
+     */
+    private int peakThreads;
+    /**
+     * Highest heap usage of the server.
+     */
+    private long peakHeap;
+
+    /**
+     * Simulated meter.
+     */
+    private final class Meter implements BiConsumer<byte[], Throwable> {
+        /**
+         * Client media.
+         */
+        private final GXNet media;
+        /**
+         * Request that is waiting for the reply. Null if there is no
+         * pending request.
+         */
+        private volatile CompletableFuture<byte[]> pending;
+        /**
+         * Time when pending request should have been sent.
+         */
+        private volatile long started;
+
+        /**
+         * Constructor.
+         * 
+         * @param m
+         *            Client media.
+         */
+        Meter(final GXNet m) {
+            media = m;
+        }
+
+        /**
+         * Send request if previous reply is received.
+         * 
+         * @param intended
+         *            Time when request should be sent.
+         */
+        void send(final long intended) {
+            if (pending != null) {
+                skipped.incrementAndGet();
+                return;
+            }
+            ReceiveParameters<byte[]> args =
+                    new ReceiveParameters<byte[]>(byte[].class);
+            args.setCount(settings.getMessage().length);
+            args.setWaitTime(settings.getWaitTime());
+            started = intended;
+            CompletableFuture<byte[]> f =
+                    media.sendAndReceive(settings.getMessage(), null, args);
+            pending = f;
+            sent.incrementAndGet();
+            f.whenComplete(this);
+        }
+
+        @Override
+        public void accept(final byte[] reply, final Throwable ex) {
+            long elapsed = System.nanoTime() - started;
+            pending = null;
+            if (ex == null) {
+                replies.incrementAndGet();
+                latency.record(elapsed / 1000);
+            } else if (ex instanceof TimeoutException) {
+                timeouts.incrementAndGet();
+            } else {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Sends the requests of every n:th meter.
+     */
+    private final class Sender implements Runnable {
+        /**
+         * Index of the first meter.
+         */
+        private final int first;
+        /**
+         * Index of the next meter.
+         */
+        private int next;
+
+        /**
+         * Constructor.
+         * 
+         * @param index
+         *            Index of the first meter.
+         */
+        Sender(final int index) {
+            first = index;
+            next = index;
+        }
+
+        /**
+         * Find next connected meter.
+         * 
+         * @return Meter or null, if meters are not connected yet.
+         */
+        private Meter nextMeter() {
+            int step = settings.getSenderCount();
+            for (int pos = first; pos < meters.length(); pos += step) {
+                Meter m = meters.get(next);
+                next += step;
+                if (next >= meters.length()) {
+                    next = first;
+                }
+                if (m != null) {
+                    return m;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Wait until given time or until test is stopped.
+         * 
+         * @param time
+         *            Time to wait.
+         * @return False, if test is stopped.
+         */
+        private boolean waitUntil(final long time) {
+            long now;
+            while (running && (now = System.nanoTime()) < time) {
+                LockSupport.parkNanos(
+                        Math.min(time - now, TimeUnit.MILLISECONDS.toNanos(1)));
+            }
+            return running;
+        }
+
+        @Override
+        public void run() {
+            if (settings.isBurst()) {
+                long interval = TimeUnit.MILLISECONDS
+                        .toNanos(settings.getBurstInterval());
+                long time = System.nanoTime() + interval;
+                while (waitUntil(time)) {
+                    for (int pos = first; pos < meters.length(); pos +=
+                            settings.getSenderCount()) {
+                        Meter m = meters.get(pos);
+                        if (m != null) {
+                            m.send(time);
+                        }
+                    }
+                    time += interval;
+                }
+            } else {
+                double period = 1e9 * settings.getSenderCount()
+                        / settings.getRate();
+                long start = System.nanoTime();
+                for (long count = 0;
+                        waitUntil(start + (long) (count * period)); ++count) {
+                    Meter m = nextMeter();
+                    if (m != null) {
+                        m.send(start + (long) (count * period));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param s
+     *            Settings.
+     */
+    MeterFleet(final LoadSettings s) {
+        settings = s;
+        meters = new AtomicReferenceArray<Meter>(s.getClients());
+    }
+
+    /**
+     * Wait until next meter can connect.
+     * 
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private void waitConnect() throws InterruptedException {
+        if (settings.getConnectRate() == 0) {
+            return;
+        }
+        long time;
+        synchronized (this) {
+            long now = System.nanoTime();
+            time = Math.max(nextConnect, now);
+            nextConnect = time + 1000000000L / settings.getConnectRate();
+        }
+        long wait = time - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Connect meter.
+     * 
+     * @param index
+     *            Meter index.
+     * @param start
+     *            Start time of the test.
+     */
+    private void connect(final int index, final long start) {
+        try {
+            waitConnect();
+            if (!running) {
+                return;
+            }
+            GXNet media = new GXNet(settings.getProtocol(),
+                    settings.getHost(), settings.getPort());
+            media.setEngine(settings.getClientEngine());
+            media.setReceiveBufferSize(Math.max(media.getReceiveBufferSize(),
+                    settings.getMessage().length));
+            media.open();
+            meters.set(index, new Meter(media));
+            connected.incrementAndGet();
+        } catch (InterruptedException e) {
+            return;
+        } catch (Exception e) {
+            connectErrors.incrementAndGet();
+        }
+        if (connected.get() + connectErrors.get() == meters.length()) {
+            connectTime = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Run the test.
+     * 
+     * @param probe
+     *            Probe of the server under test. Null if not used.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    void run(final ServerProbe probe) throws Exception {
+        final long start = System.nanoTime();
+        ExecutorService connectors = Executors.newFixedThreadPool(
+                Math.min(MAX_CONNECT_THREADS, meters.length()),
+                GXLoadGenerator.daemon("Connector"));
+        for (int pos = 0; pos != meters.length(); ++pos) {
+            final int index = pos;
+            connectors.execute(new Runnable() {
+                @Override
+                public void run() {
+                    connect(index, start);
+                }
+            });
+        }
+        Thread[] senders = new Thread[settings.getSenderCount()];
+        for (int pos = 0; pos != senders.length; ++pos) {
+            senders[pos] = new Thread(new Sender(pos), "Sender " + pos);
+            senders[pos].setDaemon(true);
+            senders[pos].start();
+        }
+        long end = start + TimeUnit.SECONDS.toNanos(settings.getDuration());
+        long report = start;
+        long last = start;
+        long lastConnected = 0;
+        long lastSent = 0;
+        long lastReplies = 0;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            Thread.sleep(REPORT_CHECK_INTERVAL);
+            if (now - report < TimeUnit.SECONDS
+                    .toNanos(settings.getReportInterval())) {
+                continue;
+            }
+            report = now;
+            double seconds = (now - last) / 1e9;
+            last = now;
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%4ds connected=%d (%.0f/s) ",
+                    TimeUnit.NANOSECONDS.toSeconds(now - start),
+                    connected.get(),
+                    (connected.get() - lastConnected) / seconds));
+            sb.append(String.format("sent=%.0f/s replies=%.0f/s ",
+                    (sent.get() - lastSent) / seconds,
+                    (replies.get() - lastReplies) / seconds));
+            sb.append(String.format("timeouts=%d errors=%d skipped=%d ",
+                    timeouts.get(), errors.get(), skipped.get()));
+            sb.append(latency.drainTo(total));
+            lastConnected = connected.get();
+            lastSent = sent.get();
+            lastReplies = replies.get();
+            if (probe != null) {
+                int threads = probe.getThreadCount();
+                long heap = probe.getHeapUsed();
+                peakThreads = Math.max(peakThreads, threads);
+                peakHeap = Math.max(peakHeap, heap);
+                sb.append(String.format(" server threads=%d heap=%dMB",
+                        threads, heap / (1024 * 1024)));
+            }
+            System.out.println(sb);
+        }
+        running = false;
+        for (Thread it : senders) {
+            it.join();
+        }
+        connectors.shutdownNow();
+        connectors.awaitTermination(1, TimeUnit.MINUTES);
+        latency.drainTo(total);
+        close();
+    }
+
+    /**
+     * Close all meters.
+     * 
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private void close() throws InterruptedException {
+        ExecutorService closers = Executors.newFixedThreadPool(
+                Math.min(MAX_CONNECT_THREADS, meters.length()),
+                GXLoadGenerator.daemon("Closer"));
+        for (int pos = 0; pos != meters.length(); ++pos) {
+            final Meter m = meters.get(pos);
+            if (m != null) {
+                closers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        m.media.close();
+                    }
+                });
+            }
+        }
+        closers.shutdown();
+        closers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @return Amount of connected meters.
+     */
+    long getConnected() {
+        return connected.get();
+    }
+
+    /**
+     * @return Achieved connect rate in a second.
+     */
+    double getConnectRate() {
+        long time = connectTime;
+        if (time == 0) {
+            time = TimeUnit.SECONDS.toNanos(settings.getDuration());
+        }
+        return connected.get() / (time / 1e9);
+    }
+
+    /**
+     * @return Received replies in a second.
+     */
+    double getThroughput() {
+        return replies.get() / (double) settings.getDuration();
+    }
+
+    /**
+     * @return Latencies of the whole test.
+     */
+    LatencyHistogram getLatency() {
+        return total;
+    }
+
+    /**
+     * @return Amount of timed out requests.
+     */
+    long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return Highest thread count of the server.
+     */
+    int getPeakThreads() {
+        return peakThreads;
+    }
+
+    /**
+     * @return Highest heap usage of the server in bytes.
+     */
+    long getPeakHeap() {
+        return peakHeap;
+    }
+
+    /**
+     * Print summary of the test.
+     */
+    void printSummary() {
+        System.out.println(String.format(
+                "Connected %d of %d meters (%.0f/s). Connect errors %d.",
+                connected.get(), meters.length(), getConnectRate(),
+                connectErrors.get()));
+        System.out.println(String.format(
+                "Sent %d requests. Received %d replies (%.0f/s). "
+                        + "Timeouts %d. Errors %d. Skipped %d.",
+                sent.get(), replies.get(), getThroughput(), timeouts.get(),
+                errors.get(), skipped.get()));
+        System.out.println("Latency " + total);
+        if (peakThreads != 0) {
+            System.out.println(String.format(
+                    "Server peak threads %d. Peak heap %dMB.", peakThreads,
+                    peakHeap / (1024 * 1024)));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+/**
+ * Recorded data that a peer has sent to the server.
+ */
+final class ReplayFrame {
+    /**
+     * Time in microseconds.
+     */
+    private final long time;
+    /**
+     * Peer IP address and port.
+     */
+    private final String peer;
+    /**
+     * Data.
+     */
+    private final byte[] data;
+
+    /**
+     * Constructor.
+     * 
+     * @param timeValue
+     *            Time in microseconds.
+     * @param peerValue
+     *            Peer IP address and port.
+     * @param value
+     *            Data.
+     */
+    ReplayFrame(final long timeValue, final String peerValue,
+            final byte[] value) {
+        time = timeValue;
+        peer = peerValue;
+        data = value;
+    }
+
+    /**
+     * @return Time in microseconds.
+     */
+    long getTime() {
+        return time;
+    }
+
+    /**
+     * @return Peer IP address and port.
+     */
+    String getPeer() {
+        return peer;
+    }
+
+    /**
+     * @return Data.
+     */
+    byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,433 @@
+//
+// --------------------------------------------------------------------------
+//  Gurux Ltd
+// 
+//
+//
+// Filename:        $HeadURL$
+//
+// Version:         $Revision$,
+//                  $Date$
+//                  $Author$
+//
+// Copyright (c) Gurux Ltd
+//
+//---------------------------------------------------------------------------
+//
+//  DESCRIPTION
+//
+// This file is a part of Gurux Device Framework.
+//
+// Gurux Device Framework is Open Source software; you can redistribute it
+// and/or modify it under the terms of the GNU General Public License 
+// as published by the Free Software Foundation; version 2 of the License.
+// Gurux Device Framework is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of 
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+// See the GNU General Public License for more details.
+//
+// More information of Gurux products: http://www.gurux.org
+//
+// This code is licensed under the GNU General Public License v2. 
+// Full text may be retrieved at http://www.gnu.org/licenses/gpl-2.0.txt
+//---------------------------------------------------------------------------
+
+
+package gurux.net.loadgen.java;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import gurux.common.IGXMediaListener;
+import gurux.common.MediaStateEventArgs;
+import gurux.common.PropertyChangedEventArgs;
+import gurux.common.ReceiveEventArgs;
+import gurux.common.TraceEventArgs;
+import gurux.net.GXNet;
+
+/**
+ * Replays recorded traffic against the server. Each recorded peer is
+ * replayed by the given amount of simulated peers with original timing,
+ * scaled speed or as fast as possible.
+ */
+final class TrafficReplay implements IGXMediaListener {
+    /**
+     * Maximum amount of threads that open and close the connections.
+     */
+    private static final int MAX_CONNECT_THREADS = 64;
+
+    /**
+     * Action for a peer index.
+     */
+    private interface IntAction {
+        /**
+         * Run action.
+         * 
+         * @param index
+         *            Peer index.
+         */
+        void run(int index);
+    }
+
+    /**
+     * Settings.
+     */
+    private final LoadSettings settings;
+    /**
+     * Replayed frames in time order.
+     */
+    private final List<ReplayFrame> frames;
+    /**
+     * Indexes of the recorded peers.
+     */
+    private final Map<String, Integer> peers = new HashMap<String, Integer>();
+    /**
+     * Index of the recorded peer of each frame.
+     */
+    private final int[] peerIndexes;
+    /**
+     * Simulated peers. Peers of the same recorded peer are one after
+     * another. Null if peer is not connected.
+     */
+    private final GXNet[] clients;
+    /**
+     * Time when next peer can connect.
+     */
+    private long nextConnect;
+    /**
+     * Amount of connected peers.
+     */
+    private final AtomicLong connected = new AtomicLong();
+    /**
+     * Amount of failed connects.
+     */
+    private final AtomicLong connectErrors = new AtomicLong();
+    /**
+     * Amount of sent frames.
+     */
+    private final AtomicLong sent = new AtomicLong();
+    /**
+     * Amount of sent bytes.
+     */
+    private final AtomicLong bytesSent = new AtomicLong();
+    /**
+     * Amount of received replies.
+     */
+    private final AtomicLong replies = new AtomicLong();
+    /**
+     * Amount of failed sends.
+     */
+    private final AtomicLong errors = new AtomicLong();
+    /**
+     * Longest time in microseconds that a frame was sent after its
+     * scheduled time.
+     */
+    private final AtomicLong maxLag = new AtomicLong();
+    /**
+     * How long replay took in nanoseconds.
+     */
+    private long elapsed;
+    /**
+     * Highest thread count of the server.
+     */
+    private int peakThreads;
+    /**
+     * Highest heap usage of the server.
+     */
+    private long peakHeap;
+
+    /**
+     * Constructor.
+     * 
+     * @param s
+     *            Settings.
+     * @param list
+     *            Replayed frames in time order.
+     */
+    TrafficReplay(final LoadSettings s, final List<ReplayFrame> list) {
+        settings = s;
+        frames = list;
+        peerIndexes = new int[list.size()];
+        for (int pos = 0; pos != list.size(); ++pos) {
+            Integer index = peers.get(list.get(pos).getPeer());
+            if (index == null) {
+                index = peers.size();
+                peers.put(list.get(pos).getPeer(), index);
+            }
+            peerIndexes[pos] = index;
+        }
+        clients = new GXNet[peers.size() * s.getCopies()];
+    }
+
+    /**
+     * @return Amount of recorded peers.
+     */
+    int getPeerCount() {
+        return peers.size();
+    }
+
+    /**
+     * Wait until next peer can connect.
+     * 
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private void waitConnect() throws InterruptedException {
+        if (settings.getConnectRate() == 0) {
+            return;
+        }
+        long time;
+        synchronized (this) {
+            long now = System.nanoTime();
+            time = Math.max(nextConnect, now);
+            nextConnect = time + 1000000000L / settings.getConnectRate();
+        }
+        long wait = time - System.nanoTime();
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    /**
+     * Connect simulated peer.
+     * 
+     * @param index
+     *            Peer index.
+     */
+    private void connect(final int index) {
+        try {
+            waitConnect();
+            GXNet media = new GXNet(settings.getProtocol(),
+                    settings.getHost(), settings.getPort());
+            media.setEngine(settings.getClientEngine());
+            media.addListener(this);
+            media.open();
+            clients[index] = media;
+            connected.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            connectErrors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Run action for each simulated peer with connect threads.
+     * 
+     * @param name
+     *            Thread name.
+     * @param action
+     *            Action that is run for each peer index.
+     * @throws InterruptedException
+     *             If current thread is interrupted.
+     */
+    private void forEachPeer(final String name, final IntAction action)
+            throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(MAX_CONNECT_THREADS, clients.length)),
+                GXLoadGenerator.daemon(name));
+        for (int pos = 0; pos != clients.length; ++pos) {
+            final int index = pos;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    action.run(index);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Sends the frames of every n:th simulated peer.
+     */
+    private final class Sender implements Runnable {
+        /**
+         * Index of the sender.
+         */
+        private final int index;
+        /**
+         * Start time of the replay.
+         */
+        private final long start;
+
+        /**
+         * Constructor.
+         * 
+         * @param value
+         *            Index of the sender.
+         * @param startTime
+         *            Start time of the replay.
+         */
+        Sender(final int value, final long startTime) {
+            index = value;
+            start = startTime;
+        }
+
+        @Override
+        public void run() {
+            int count = settings.getSenderCount();
+            int copies = settings.getCopies();
+            double speed = settings.getSpeed();
+            long first = frames.get(0).getTime();
+            for (int pos = 0; pos != frames.size(); ++pos) {
+                ReplayFrame f = frames.get(pos);
+                long scheduled = start;
+                if (speed != 0) {
+                    scheduled += (long) ((f.getTime() - first) * 1000 / speed);
+                    long now;
+                    while ((now = System.nanoTime()) < scheduled) {
+                        LockSupport.parkNanos(scheduled - now);
+                    }
+                }
+                int peer = peerIndexes[pos] * copies;
+                for (int c = 0; c != copies; ++c) {
+                    GXNet media = clients[peer + c];
+                    if ((peer + c) % count != index || media == null) {
+                        continue;
+                    }
+                    try {
+                        media.send(f.getData(), null);
+                        sent.incrementAndGet();
+                        bytesSent.addAndGet(f.getData().length);
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                if (speed != 0) {
+                    long lag = (System.nanoTime() - scheduled) / 1000;
+                    long max;
+                    while (lag > (max = maxLag.get())
+                            && !maxLag.compareAndSet(max, lag)) {
+                        continue;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the replay.
+     * 
+     * @param probe
+     *            Probe of the server under test. Null if not used.
+     * @throws Exception
+     *             Occurred exception.
+     */
+    void run(final ServerProbe probe) throws Exception {
+        forEachPeer("Connector", new IntAction() {
+            @Override
+            public void run(final int index) {
+                connect(index);
+            }
+        });
+        System.out.println(String.format(
+                "Connected %d of %d peers. Connect errors %d.",
+                connected.get(), clients.length, connectErrors.get()));
+        long start = System.nanoTime();
+        Thread[] senders = new Thread[settings.getSenderCount()];
+        for (int pos = 0; pos != senders.length; ++pos) {
+            senders[pos] = new Thread(new Sender(pos, start), "Sender " + pos);
+            senders[pos].setDaemon(true);
+            senders[pos].start();
+        }
+        long last = start;
+        long lastSent = 0;
+        long lastBytes = 0;
+        long lastReplies = 0;
+        for (Thread it : senders) {
+            while (it.isAlive()) {
+                long interval = TimeUnit.SECONDS
+                        .toNanos(settings.getReportInterval());
+                it.join(TimeUnit.NANOSECONDS.toMillis(interval));
+                long now = System.nanoTime();
+                if (now - last < interval) {
+                    continue;
+                }
+                double seconds = (now - last) / 1e9;
+                last = now;
+                StringBuilder sb = new StringBuilder();
+                sb.append(String.format(
+                        "%4ds sent=%.0f/s (%.0f kB/s) replies=%.0f/s "
+                                + "errors=%d lag=%.2fms",
+                        TimeUnit.NANOSECONDS.toSeconds(now - start),
+                        (sent.get() - lastSent) / seconds,
+                        (bytesSent.get() - lastBytes) / seconds / 1024,
+                        (replies.get() - lastReplies) / seconds, errors.get(),
+                        maxLag.get() / 1000.0));
+                lastSent = sent.get();
+                lastBytes = bytesSent.get();
+                lastReplies = replies.get();
+                if (probe != null) {
+                    int threads = probe.getThreadCount();
+                    long heap = probe.getHeapUsed();
+                    peakThreads = Math.max(peakThreads, threads);
+                    peakHeap = Math.max(peakHeap, heap);
+                    sb.append(String.format(" server threads=%d heap=%dMB",
+                            threads, heap / (1024 * 1024)));
+                }
+                System.out.println(sb);
+            }
+        }
+        elapsed = System.nanoTime() - start;
+        // Give the server time to answer to the last frames.
+        Thread.sleep(Math.min(settings.getWaitTime(), 1000));
+        forEachPeer("Closer", new IntAction() {
+            @Override
+            public void run(final int index) {
+                if (clients[index] != null) {
+                    clients[index].close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Print summary of the replay.
+     */
+    void printSummary() {
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        System.out.println(String.format(
+                "Replayed %d frames (%d bytes) in %.2f s. %.0f frames/s.",
+                sent.get(), bytesSent.get(), seconds, sent.get() / seconds));
+        System.out.println(String.format(
+                "Received %d replies. Errors %d. Max lag %.2f ms.",
+                replies.get(), errors.get(), maxLag.get() / 1000.0));
+        if (peakThreads != 0) {
+            System.out.println(String.format(
+                    "Server peak threads %d. Peak heap %dMB.", peakThreads,
+                    peakHeap / (1024 * 1024)));
+        }
+    }
+
+    @Override
+    public void onError(final Object sender, final Exception ex) {
+        errors.incrementAndGet();
+    }
+
+    @Override
+    public void onReceived(final Object sender, final ReceiveEventArgs e) {
+        replies.incrementAndGet();
+    }
+
+    @Override
+    public void onMediaStateChange(final Object sender,
+            final MediaStateEventArgs e) {
+    }
+
+    @Override
+    public void onTrace(final Object sender, final TraceEventArgs e) {
+    }
+
+    @Override
+    public void onPropertyChanged(final Object sender,
+            final PropertyChangedEventArgs e) {
+    }
+}